@@ -0,0 +1,36 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions between the 162-character string format and the int matrix.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    private String representation;
+    private int[][][] matrix;
+
+    @Setup
+    public void setUp() {
+        matrix = SudokuUtilities.generateSudokuMatrix(SudokuUtilities.SudokuLevel.MEDIUM);
+        representation = SudokuUtilities.convertMatrixToString(matrix);
+    }
+
+    @Benchmark
+    public int[][][] convertStringToIntMatrix() {
+        return SudokuUtilities.convertStringToIntMatrix(representation);
+    }
+
+    @Benchmark
+    public String convertMatrixToString() {
+        return SudokuUtilities.convertMatrixToString(matrix);
+    }
+}
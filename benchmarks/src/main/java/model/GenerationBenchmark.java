@@ -0,0 +1,25 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures puzzle generation for every difficulty level.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+
+    @Param({"EASY", "MEDIUM", "HARD", "EXPERT", "EXTREME"})
+    public SudokuUtilities.SudokuLevel level;
+
+    @Benchmark
+    public int[][][] generateSudokuMatrix() {
+        return SudokuUtilities.generateSudokuMatrix(level);
+    }
+}
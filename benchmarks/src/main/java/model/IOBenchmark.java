@@ -0,0 +1,70 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures saving and loading games, both to a file and to an in-memory buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IOBenchmark {
+
+    // Every save is logged at DEBUG; kept off even under a verbose logging configuration, so the
+    // benchmark measures the save and not the console. Held here, as loggers are only weakly referenced.
+    private static final Logger IO_LOGGER = Logger.getLogger(SudokuIO.class.getName());
+
+    private SudokuModel model;
+    private Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SudokuIO.MAX_GAME_SIZE);
+
+    @Setup
+    public void setUp() throws IOException {
+        IO_LOGGER.setLevel(Level.INFO);
+        model = new SudokuModel();
+        file = Files.createTempFile("benchmark", ".sudoku");
+        SudokuIO.saveGameToFile(file.toString(), model);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void saveGameToFile() throws IOException {
+        SudokuIO.saveGameToFile(file.toString(), model);
+    }
+
+    @Benchmark
+    public void loadGameFromFile() throws IOException, ClassNotFoundException {
+        SudokuIO.loadGameFromFile(file.toString(), model);
+    }
+
+    @Benchmark
+    public ByteBuffer writeGame() {
+        buffer.clear();
+        SudokuIO.writeGame(buffer, model, true);
+        return buffer;
+    }
+
+    @Benchmark
+    public SudokuModel writeAndReadGame() throws IOException {
+        buffer.clear();
+        SudokuIO.writeGame(buffer, model, true);
+        buffer.flip();
+        SudokuIO.readGame(buffer, model);
+        return model;
+    }
+}
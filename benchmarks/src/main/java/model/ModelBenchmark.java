@@ -0,0 +1,54 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the SudokuModel operations that run on every user action.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    private SudokuModel model;
+    private int[] editableCells;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new SudokuModel();
+        int count = 0;
+        int[] cells = new int[SudokuSolver.CELLS];
+        for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+            if (model.isCellEditable(cell / 9, cell % 9)) {
+                cells[count++] = cell;
+            }
+        }
+        editableCells = Arrays.copyOf(cells, count);
+    }
+
+    @Benchmark
+    public void updateCell() {
+        int cell = editableCells[next++ % editableCells.length];
+        model.updateCell(cell / 9, cell % 9, next % 10);
+    }
+
+    @Benchmark
+    public void provideHint() {
+        model.provideHint();
+        if (model.isBoardFilled()) {
+            model.clearAllEmptyCells();
+        }
+    }
+
+    @Benchmark
+    public boolean isDone() {
+        return model.isDone();
+    }
+}
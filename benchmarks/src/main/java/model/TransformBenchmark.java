@@ -0,0 +1,72 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the start position transforms, both through the string-based methods of
+ * GenerateNewStartPositions and directly on flat boards, and the canonical form of a puzzle.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private String representation;
+    private final byte[] board = new byte[SudokuSolver.CELLS];
+    private final byte[] target = new byte[SudokuSolver.CELLS];
+    private final SudokuTransform transform = new SudokuTransform();
+    private final SudokuCanonicalizer canonicalizer = new SudokuCanonicalizer();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        representation = SudokuUtilities.convertMatrixToString(
+                SudokuUtilities.generateSudokuMatrix(SudokuUtilities.SudokuLevel.MEDIUM));
+        SudokuUtilities.convertStringToBoards(representation, board, new byte[SudokuSolver.CELLS]);
+        transform.randomize(random);
+    }
+
+    @Benchmark
+    public String mirrorHorizontally() {
+        return GenerateNewStartPositions.mirrorHorizontally(representation);
+    }
+
+    @Benchmark
+    public String mirrorVertically() {
+        return GenerateNewStartPositions.mirrorVertically(representation);
+    }
+
+    @Benchmark
+    public String swapPair() {
+        return GenerateNewStartPositions.swapPair(representation);
+    }
+
+    @Benchmark
+    public String randomize() {
+        return GenerateNewStartPositions.randomize(representation, random);
+    }
+
+    @Benchmark
+    public byte[] applyTransform() {
+        transform.apply(board, target);
+        return target;
+    }
+
+    @Benchmark
+    public byte[] randomizeAndApplyTransform() {
+        transform.randomize(random).apply(board, target);
+        return target;
+    }
+
+    @Benchmark
+    public byte[] canonicalize() {
+        canonicalizer.canonicalize(board, target);
+        return target;
+    }
+}
@@ -0,0 +1,214 @@
+package com.lab4;
+
+import model.SudokuBatch;
+import model.SudokuBulkGenerator;
+import model.SudokuPuzzlePool;
+import model.SudokuSessionStore;
+import model.SudokuUtilities;
+import service.SudokuHttpService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless entry point for working with puzzle files without starting the JavaFX window.
+ * <pre>
+ * solve     &lt;input|-&gt; [output|-] [--threads N]
+ * validate  &lt;input|-&gt; [output|-] [--threads N]
+ * canonical &lt;input|-&gt; [output|-] [--threads N]
+ * dedupe    &lt;input|-&gt; [output|-] [--threads N]
+ * generate  &lt;level&gt; &lt;count&gt; [output|-] [--threads N] [--seed S]
+ * serve     &lt;port&gt; [save-directory] [--threads N]
+ * </pre>
+ * Results go to standard output unless an output file is given; the summary with throughput
+ * and latency percentiles is printed to standard error. Generated puzzles are written in the
+ * input format of solve and validate. canonical writes the canonical form of every puzzle, and
+ * dedupe tells for every puzzle whether it is equivalent to one on an earlier line. serve runs
+ * {@link SudokuHttpService} on localhost until the process is stopped, with N threads
+ * generating puzzles in the background and saved games in the given directory, by default
+ * {@code sudoku-saves} in the working directory. Games that are not played for 30 minutes are ended.
+ * At most 100,000 games, or 256 MiB of them, are kept in memory, and games not played for 5
+ * minutes are moved to a spill file in the save directory until they are played again.
+ */
+public class SudokuCli {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SESSION_IDLE_MINUTES = 30;  // Games not played for this long are ended by serve
+    private static final int SPILL_IDLE_MINUTES = 5;     // Games not played for this long are moved to disk by serve
+    private static final int MAX_RESIDENT_GAMES = 100_000;
+    private static final long MAX_RESIDENT_BYTES = 256L << 20;
+    private static final String SPILL_FILE = "sessions.spill";
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static int run(String[] args) throws IOException {
+        if (args.length < 2) {
+            return usage();
+        }
+        String command = args[0].toLowerCase(Locale.ROOT);
+        boolean generate = command.equals("generate");
+        if (generate && args.length < 3) {
+            return usage();
+        }
+        String input = args[1];
+        String output = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        for (int i = generate ? 3 : 2; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return usage();
+                }
+                if (threads < 1) {
+                    return usage();
+                }
+            } else if (generate && args[i].equals("--seed") && i + 1 < args.length) {
+                try {
+                    seed = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    return usage();
+                }
+            } else if (output.equals("-") && !args[i].startsWith("--")) {
+                output = args[i];
+            } else {
+                return usage();
+            }
+        }
+
+        switch (command) {
+            case "solve":
+                return batch(SudokuBatch.Mode.SOLVE, input, output, threads);
+            case "validate":
+                return batch(SudokuBatch.Mode.VALIDATE, input, output, threads);
+            case "canonical":
+                return batch(SudokuBatch.Mode.CANONICALIZE, input, output, threads);
+            case "dedupe":
+                return batch(SudokuBatch.Mode.DEDUPLICATE, input, output, threads);
+            case "generate":
+                return generate(args[1], args[2], output, threads, seed);
+            case "serve":
+                return serve(input, output.equals("-") ? "sudoku-saves" : output, threads);
+            default:
+                return usage();
+        }
+    }
+
+    private static int batch(SudokuBatch.Mode mode, String input, String output, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (BufferedReader in = openInput(input); Writer out = openOutput(output)) {
+            SudokuBatch.Report report = SudokuBatch.process(in, out, mode, pool);
+            System.err.println(report);
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static int generate(String levelName, String countText, String output, int threads, long seed)
+            throws IOException {
+        SudokuUtilities.SudokuLevel level;
+        long count;
+        try {
+            level = SudokuUtilities.SudokuLevel.valueOf(levelName.toUpperCase(Locale.ROOT));
+            count = Long.parseLong(countText);
+        } catch (IllegalArgumentException e) {
+            return usage();
+        }
+        if (count < 0) {
+            return usage();
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Writer out = openOutput(output)) {
+            SudokuBatch.Report report = SudokuBulkGenerator.generate(level, count, seed, out, pool);
+            System.err.println(report);
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static int serve(String portText, String saveDirectory, int threads) throws IOException {
+        int port;
+        try {
+            port = Integer.parseInt(portText);
+        } catch (NumberFormatException e) {
+            return usage();
+        }
+        if (port < 0 || port > 65535) {
+            return usage();
+        }
+        SudokuPuzzlePool pool = new SudokuPuzzlePool(SudokuPuzzlePool.DEFAULT_LOW_WATERMARK * 16,
+                SudokuPuzzlePool.DEFAULT_HIGH_WATERMARK * 16, threads);  // Many players start games at once
+        Path saves = Files.createDirectories(Path.of(saveDirectory));
+        SudokuSessionStore sessions = new SudokuSessionStore(pool, 1 << 16, saves.resolve(SPILL_FILE),
+                MAX_RESIDENT_GAMES, MAX_RESIDENT_BYTES);
+        sessions.startExpiry(SESSION_IDLE_MINUTES, 1, TimeUnit.MINUTES);
+        sessions.startIdleSpill(SPILL_IDLE_MINUTES, 1, TimeUnit.MINUTES);
+        SudokuHttpService service = new SudokuHttpService(new InetSocketAddress("localhost", port), saves, sessions);
+        service.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.stop(1);
+            System.err.println(sessions);
+            try {
+                sessions.close();
+            } catch (IOException e) {
+                System.err.println("I/O error: " + e.getMessage());
+            }
+        }));
+        System.err.println("Listening on http://localhost:" + service.getPort() + "/games");
+        try {
+            Thread.currentThread().join();  // Serve until the process is stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static BufferedReader openInput(String input) throws IOException {
+        if (input.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII), BUFFER_SIZE);
+        }
+        return Files.newBufferedReader(Path.of(input), StandardCharsets.US_ASCII);
+    }
+
+    private static Writer openOutput(String output) throws IOException {
+        if (output.equals("-")) {
+            // Do not close System.out together with the writer
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        return Files.newBufferedWriter(Path.of(output), StandardCharsets.US_ASCII);
+    }
+
+    private static int usage() {
+        System.err.println("Usage: SudokuCli solve|validate|canonical|dedupe <input|-> [output|-] [--threads N]");
+        System.err.println("       SudokuCli generate <easy|medium|hard|expert|extreme> <count> [output|-] [--threads N] [--seed S]");
+        System.err.println("       SudokuCli serve <port> [save-directory] [--threads N]");
+        System.err.println("  Puzzles have one 81-character line each, '0' or '.' for an empty cell.");
+        return 2;
+    }
+}
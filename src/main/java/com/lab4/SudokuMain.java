@@ -3,18 +3,24 @@ package com.lab4;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import model.SudokuMetrics;
 import model.SudokuModel;
 import view.SudokuController;
 import view.SudokuView;
 
+import java.util.concurrent.TimeUnit;
+
 public class SudokuMain extends Application {
 
+    private SudokuController sudokuController;
+
     @Override
     public void start(Stage primaryStage) {
 
+        SudokuMetrics.shared().startReporting(1, TimeUnit.MINUTES); // Sammanfattning i loggen varje minut, även via JMX
         SudokuModel sudokuModel = new SudokuModel(); // Initiera modellen
         SudokuView sudokuView = new SudokuView(sudokuModel);
-        SudokuController sudokuController = new SudokuController(sudokuModel,sudokuView);
+        sudokuController = new SudokuController(sudokuModel,sudokuView);
 
         Scene scene = new Scene(sudokuView.getMainLayout(),495,400);
 
@@ -25,6 +31,11 @@ public class SudokuMain extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        sudokuController.shutdown(); // Anropas både via Arkiv > Avsluta och när fönstret stängs
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,8 +1,12 @@
 package model;
 
+import java.util.random.RandomGenerator;
+
 /**
  * This class provides methods for manipulating Sudoku board configurations, including
- * horizontal and vertical mirroring, and swapping values in the Sudoku grid.
+ * horizontal and vertical mirroring, swapping values and random symmetries of the Sudoku grid.
+ * Each manipulation is expressed as a {@link SudokuTransform} and applied in a single pass
+ * over flat boards, so the string representation is only parsed and built once per call.
  */
 public class GenerateNewStartPositions extends SudokuUtilities {
 
@@ -14,26 +18,11 @@ public class GenerateNewStartPositions extends SudokuUtilities {
      * @return the new string representation after horizontal mirroring
      */
     static String mirrorHorizontally(String stringRepresentation) {
-        int[][][] matrix = convertStringToIntMatrix(stringRepresentation);
-
-        // Loop through half of the rows to mirror horizontally
-        for (int row = 0; row < GRID_SIZE / 2; row++) {
-            int oppositeRow = GRID_SIZE - 1 - row;
-
-            // Swap row 'row' with row 'oppositeRow'
-            for (int col = 0; col < GRID_SIZE; col++) {
-                int temp = matrix[row][col][0];
-                matrix[row][col][0] = matrix[oppositeRow][col][0];
-                matrix[oppositeRow][col][0] = temp;
-
-                temp = matrix[row][col][1];
-                matrix[row][col][1] = matrix[oppositeRow][col][1];
-                matrix[oppositeRow][col][1] = temp;
-            }
-        }
-
-        // Update stringRepresentation from the matrix
-        return convertMatrixToString(matrix);
+        // Swapping the outer bands and the outer rows of every band reverses the row order
+        SudokuTransform transform = new SudokuTransform()
+                .swapBands(0, 2)
+                .swapRows(0, 2).swapRows(3, 5).swapRows(6, 8);
+        return applyTransform(stringRepresentation, transform);
     }
 
     /**
@@ -44,26 +33,11 @@ public class GenerateNewStartPositions extends SudokuUtilities {
      * @return the new string representation after vertical mirroring
      */
     static String mirrorVertically(String stringRepresentation) {
-        int[][][] matrix = convertStringToIntMatrix(stringRepresentation);
-
-        // Loop through half of the columns to mirror vertically
-        for (int col = 0; col < GRID_SIZE / 2; col++) {
-            int oppositeCol = GRID_SIZE - 1 - col;
-
-            // Swap column 'col' with column 'oppositeCol'
-            for (int row = 0; row < GRID_SIZE; row++) {
-                int temp = matrix[row][col][0];
-                matrix[row][col][0] = matrix[row][oppositeCol][0];
-                matrix[row][oppositeCol][0] = temp;
-
-                temp = matrix[row][col][1];
-                matrix[row][col][1] = matrix[row][oppositeCol][1];
-                matrix[row][oppositeCol][1] = temp;
-            }
-        }
-
-        // Update stringRepresentation from the matrix
-        return convertMatrixToString(matrix);
+        // Swapping the outer stacks and the outer columns of every stack reverses the column order
+        SudokuTransform transform = new SudokuTransform()
+                .swapStacks(0, 2)
+                .swapColumns(0, 2).swapColumns(3, 5).swapColumns(6, 8);
+        return applyTransform(stringRepresentation, transform);
     }
 
     /**
@@ -74,28 +48,38 @@ public class GenerateNewStartPositions extends SudokuUtilities {
      * @return the new string representation after swapping 1s and 2s
      */
     static String swapPair(String stringRepresentation) {
-        int[][][] matrix = convertStringToIntMatrix(stringRepresentation);
+        return applyTransform(stringRepresentation, new SudokuTransform().swapDigits(1, 2));
+    }
 
-        // Traverse the matrix and swap values of 1 and 2
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (matrix[i][j][1] == 1) {
-                    matrix[i][j][1] = 2;
-                    if (matrix[i][j][0] != 0) {
-                        matrix[i][j][0] = 2;
-                    }
-                }
-                else if (matrix[i][j][1] == 2) {
-                    matrix[i][j][1] = 1;
-                    if (matrix[i][j][0] != 0) {
-                        matrix[i][j][0] = 1;
-                    }
-                }
-            }
-        }
+    /**
+     * Applies a uniformly random symmetry of the grid: a random order of bands, stacks, rows and
+     * columns, an optional transposition and a random relabelling of the digits.
+     * The result is a different-looking grid with the same difficulty.
+     *
+     * @param stringRepresentation the string representation of the Sudoku grid
+     * @param random               the random number source to use
+     * @return the new string representation after the random transformation
+     */
+    static String randomize(String stringRepresentation, RandomGenerator random) {
+        return applyTransform(stringRepresentation, new SudokuTransform().randomize(random));
+    }
+
+    /**
+     * Applies a transform to both the initial values and the solution of a grid.
+     *
+     * @param stringRepresentation the string representation of the Sudoku grid
+     * @param transform            the transform to apply
+     * @return the string representation of the transformed grid
+     */
+    static String applyTransform(String stringRepresentation, SudokuTransform transform) {
+        byte[] puzzle = new byte[GRID_SIZE * GRID_SIZE];
+        byte[] solution = new byte[GRID_SIZE * GRID_SIZE];
+        convertStringToBoards(stringRepresentation, puzzle, solution);
 
-        // If necessary, update the string representation
-        return convertMatrixToString(matrix);
-        // You can use the updatedRepresentation for further processing if needed
+        byte[] transformedPuzzle = new byte[GRID_SIZE * GRID_SIZE];
+        byte[] transformedSolution = new byte[GRID_SIZE * GRID_SIZE];
+        transform.apply(puzzle, transformedPuzzle);
+        transform.apply(solution, transformedSolution);
+        return convertBoardsToString(transformedPuzzle, transformedSolution);
     }
 }
@@ -0,0 +1,168 @@
+package model;
+
+/**
+ * A set of long values, or of 128-bit values given as pairs of longs, stored in a single
+ * open-addressing array with linear probing.
+ * Every value takes 8 bytes, or 16 for a pair, and adding one does not allocate unless the table
+ * has to grow, which keeps sets of many millions of puzzle hashes compact. The value 0 (or the
+ * pair 0, 0) marks an empty slot and is stored as a separate flag. The set is not thread-safe.
+ */
+final class LongHashSet {
+
+    private static final int MAX_LENGTH = 1 << 30;  // Longs in the table
+
+    private final int shift;  // 0 for single longs, 1 for pairs: a slot starts at index slot << shift
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Creates a set of long values that holds the expected number of values without growing.
+     *
+     * @param expectedSize the number of values the set is expected to hold
+     */
+    LongHashSet(int expectedSize) {
+        this(expectedSize, 0);
+    }
+
+    private LongHashSet(int expectedSize, int shift) {
+        if (expectedSize < 0) throw new IllegalArgumentException("expected size " + expectedSize);
+        this.shift = shift;
+        int capacity = 16;
+        while (capacity < MAX_LENGTH >> shift && capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        table = new long[capacity << shift];
+    }
+
+    /**
+     * Creates a set of 128-bit values that holds the expected number of values without growing.
+     * Values are added and looked up with {@link #add(long, long)} and {@link #contains(long, long)}.
+     *
+     * @param expectedSize the number of values the set is expected to hold
+     * @return an empty set of pairs
+     */
+    static LongHashSet ofPairs(int expectedSize) {
+        return new LongHashSet(expectedSize, 1);
+    }
+
+    /**
+     * Adds a value to a set of long values.
+     *
+     * @param value the value to add
+     * @return true if the value was added, false if it was already in the set
+     */
+    boolean add(long value) {
+        return add(value, 0);
+    }
+
+    /**
+     * Adds a 128-bit value to a set of pairs.
+     *
+     * @param high the high half of the value
+     * @param low  the low half of the value, 0 for a set of long values
+     * @return true if the value was added, false if it was already in the set
+     */
+    boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        int mask = (table.length >> shift) - 1;
+        for (int slot = mix(high) & mask; ; slot = (slot + 1) & mask) {
+            int index = slot << shift;
+            long storedHigh = table[index];
+            long storedLow = shift == 0 ? 0 : table[index + 1];
+            if (storedHigh == high && storedLow == low) {
+                return false;
+            }
+            if (storedHigh == 0 && storedLow == 0) {
+                store(index, high, low);
+                if (++size > (table.length >> shift) * 3L / 4) {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a value is in a set of long values.
+     *
+     * @param value the value to look for
+     * @return true if the value is in the set, false otherwise
+     */
+    boolean contains(long value) {
+        return contains(value, 0);
+    }
+
+    /**
+     * Checks whether a 128-bit value is in a set of pairs.
+     *
+     * @param high the high half of the value
+     * @param low  the low half of the value, 0 for a set of long values
+     * @return true if the value is in the set, false otherwise
+     */
+    boolean contains(long high, long low) {
+        if (high == 0 && low == 0) {
+            return containsZero;
+        }
+        int mask = (table.length >> shift) - 1;
+        for (int slot = mix(high) & mask; ; slot = (slot + 1) & mask) {
+            int index = slot << shift;
+            long storedHigh = table[index];
+            long storedLow = shift == 0 ? 0 : table[index + 1];
+            if (storedHigh == high && storedLow == low) {
+                return true;
+            }
+            if (storedHigh == 0 && storedLow == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return containsZero ? size + 1 : size;
+    }
+
+    private void store(int index, long high, long low) {
+        if (shift == 0) {
+            if (low != 0) throw new IllegalArgumentException("set holds single longs");
+            table[index] = high;
+        } else {
+            table[index] = high;
+            table[index + 1] = low;
+        }
+    }
+
+    private void grow() {
+        if (table.length == MAX_LENGTH) throw new IllegalStateException("set is full");
+        long[] old = table;
+        table = new long[old.length << 1];
+        int mask = (table.length >> shift) - 1;
+        int step = 1 << shift;
+        for (int i = 0; i < old.length; i += step) {
+            long high = old[i];
+            long low = shift == 0 ? 0 : old[i + 1];
+            if (high != 0 || low != 0) {
+                int slot = mix(high) & mask;
+                while (table[slot << shift] != 0 || (shift != 0 && table[(slot << shift) + 1] != 0)) {
+                    slot = (slot + 1) & mask;
+                }
+                store(slot << shift, high, low);
+            }
+        }
+    }
+
+    // Spreads the bits so that values differing only in their high bits use different slots
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,285 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file holding many saved games in fixed-size slots, accessed through a memory mapping.
+ * Games are stored in the binary format of {@link SudokuIO} and are encoded and decoded directly
+ * in the mapped file, so saving or loading game N neither copies buffers nor issues system calls.
+ * Games are archived with their solution but without pencil marks.
+ * <p>
+ * Every slot has two halves and a generation number. A save writes the half that is not
+ * current and then publishes it by incrementing the generation with a single atomic store,
+ * so a reader always sees either the old or the new game and never a mix of both. A generation
+ * of 0 marks a free slot; the free-slot bitmap is rebuilt from the generations when the archive
+ * is opened.
+ * <p>
+ * Saves do not force the mapping to disk; {@link #force()} makes them durable. After a crash the
+ * generation may have reached the disk before the game it publishes, so a slot whose current
+ * half fails its checksum is read from the other half, which holds the game saved before it.
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "SDKA"
+ *      4     4  format version (1)
+ *      8     4  number of slots
+ *     12     4  slot size in bytes
+ *     16     -  slots: 4-byte generation, 4 reserved bytes, then two halves of 136 bytes
+ * </pre>
+ * The archive is thread-safe; saves to different slots do not block each other.
+ */
+public final class SudokuArchive implements Closeable {
+
+    private static final int MAGIC = 0x53444B41; // "SDKA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int HALF_SIZE = (SudokuIO.MAX_GAME_SIZE + 3) & ~3;
+    private static final int SLOT_SIZE = 8 + 2 * HALF_SIZE;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+    private static final int LOCK_STRIPES = 64;
+
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int slotCount;
+    private final long[] used;  // Bit per slot, set if the slot holds a game or has been handed out
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private int searchStart;    // Bitmap word to start looking for a free slot in
+
+    private SudokuArchive(FileChannel channel, MappedByteBuffer mapped, int slotCount) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.slotCount = slotCount;
+        this.used = new long[(slotCount + 63) / 64];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (generation(slot) != 0) {
+                used[slot >> 6] |= 1L << slot;
+            }
+        }
+    }
+
+    /**
+     * Opens an archive file, creating it with the given number of slots if it does not exist.
+     * An existing archive keeps the number of slots it was created with.
+     *
+     * @param path      the archive file
+     * @param slotCount the number of slots of a newly created archive
+     * @return the opened archive
+     * @throws IOException if the file cannot be opened or is not a valid archive
+     */
+    public static SudokuArchive open(Path path, int slotCount) throws IOException {
+        if (slotCount < 1 || slotCount > MAX_SLOTS) throw new IllegalArgumentException("slot count " + slotCount);
+
+        boolean create = !Files.exists(path);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (!create) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // Keep reading until the header is complete or the file ends
+                }
+                header.flip();
+                if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+                    throw new IOException("not a Sudoku archive: " + path);
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("unsupported archive version " + version);
+                slotCount = header.getInt();
+                int slotSize = header.getInt();
+                if (slotSize != SLOT_SIZE || slotCount < 1 || slotCount > MAX_SLOTS
+                        || channel.size() < HEADER_SIZE + (long) slotCount * SLOT_SIZE)
+                    throw new IOException("damaged Sudoku archive: " + path);
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+            if (create) {
+                mapped.putInt(0, MAGIC);
+                mapped.putInt(4, VERSION);
+                mapped.putInt(8, slotCount);
+                mapped.putInt(12, SLOT_SIZE);
+            }
+            return new SudokuArchive(channel, mapped, slotCount);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of slots in the archive.
+     *
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Reserves a free slot.
+     *
+     * @return the index of the reserved slot
+     * @throws IOException if every slot is in use
+     */
+    public synchronized int allocateSlot() throws IOException {
+        for (int i = 0; i < used.length; i++) {
+            int word = (searchStart + i) % used.length;
+            long free = ~used[word];
+            if (word == used.length - 1 && (slotCount & 63) != 0) {
+                free &= (1L << slotCount) - 1;  // Ignore the bits past the last slot
+            }
+            if (free != 0) {
+                int slot = word * 64 + Long.numberOfTrailingZeros(free);
+                used[word] |= 1L << slot;
+                searchStart = word;
+                return slot;
+            }
+        }
+        throw new IOException("Sudoku archive is full");
+    }
+
+    /**
+     * Saves a game into a newly reserved slot.
+     *
+     * @param model the game to save
+     * @return the index of the slot holding the game
+     * @throws IOException if every slot is in use
+     */
+    public int saveNew(SudokuModel model) throws IOException {
+        int slot = allocateSlot();
+        save(slot, model);
+        return slot;
+    }
+
+    /**
+     * Saves a game into a slot, replacing the game stored there. The new game becomes
+     * visible atomically once it is completely written.
+     *
+     * @param slot  the slot index
+     * @param model the game to save
+     */
+    public void save(int slot, SudokuModel model) {
+        checkSlot(slot);
+        synchronized (locks[slot % LOCK_STRIPES]) {
+            int generation = generation(slot);
+            int next = generation == Integer.MAX_VALUE ? 2 : generation + 1;  // Keep the parity alternating, skip 0
+            SudokuIO.writeGame(half(slot, next), model, true);
+            INT.setRelease(mapped, slotOffset(slot), next);
+        }
+        synchronized (this) {
+            used[slot >> 6] |= 1L << slot;
+        }
+    }
+
+    /**
+     * Loads the game stored in a slot into a model.
+     *
+     * @param slot  the slot index
+     * @param model the model receiving the game
+     * @return true if a game was loaded, false if the slot is free
+     * @throws IOException if the stored game is damaged and no earlier game of the slot is intact
+     */
+    public boolean load(int slot, SudokuModel model) throws IOException {
+        checkSlot(slot);
+        while (true) {
+            int generation = generation(slot);
+            if (generation == 0) {
+                return false;
+            }
+            try {
+                SudokuIO.readGame(half(slot, generation), model);
+                return true;
+            } catch (IOException ex) {
+                synchronized (locks[slot % LOCK_STRIPES]) {
+                    if (generation(slot) != generation) {
+                        continue;  // A concurrent save overwrote the half while it was being read, read the new one
+                    }
+                    if (generation == 1) {
+                        throw ex;  // The first game saved in the slot, the other half holds no earlier one
+                    }
+                    try {
+                        SudokuIO.readGame(half(slot, generation - 1), model);
+                        return true;
+                    } catch (IOException previous) {
+                        ex.addSuppressed(previous);
+                        throw ex;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a slot holds a game.
+     *
+     * @param slot the slot index
+     * @return true if the slot holds a game, false if it is free
+     */
+    public boolean isUsed(int slot) {
+        checkSlot(slot);
+        return generation(slot) != 0;
+    }
+
+    /**
+     * Deletes the game in a slot and makes the slot available again.
+     *
+     * @param slot the slot index
+     */
+    public void free(int slot) {
+        checkSlot(slot);
+        synchronized (locks[slot % LOCK_STRIPES]) {
+            INT.setRelease(mapped, slotOffset(slot), 0);
+        }
+        synchronized (this) {
+            used[slot >> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public void force() {
+        mapped.force();
+    }
+
+    /**
+     * Writes all changes to the storage device and closes the archive file.
+     *
+     * @throws IOException if an I/O error occurs while closing
+     */
+    @Override
+    public void close() throws IOException {
+        mapped.force();
+        channel.close();
+    }
+
+    private int generation(int slot) {
+        return (int) INT.getAcquire(mapped, slotOffset(slot));
+    }
+
+    private ByteBuffer half(int slot, int generation) {
+        return mapped.slice(slotOffset(slot) + 8 + (generation & 1) * HALF_SIZE, HALF_SIZE);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= slotCount) throw new IndexOutOfBoundsException("slot " + slot);
+    }
+}
@@ -0,0 +1,274 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves, validates or canonicalizes a stream of puzzles, one 81-character puzzle per line,
+ * using every thread of a fork-join pool. Digits 1-9 are givens and '0' or '.' marks an empty cell.
+ * <p>
+ * Lines are read in chunks; while one chunk is being processed by the pool, the next one is
+ * read and the results of the previous one are written, so input of any length is handled
+ * in constant memory. Results are written in input order, one line per puzzle:
+ * <ul>
+ *     <li>{@link Mode#SOLVE}: the 81-digit solution, {@code NO_SOLUTION} or {@code INVALID}</li>
+ *     <li>{@link Mode#VALIDATE}: {@code UNIQUE}, {@code MULTIPLE}, {@code NONE} or {@code INVALID}</li>
+ *     <li>{@link Mode#CANONICALIZE}: the 81-digit canonical form, see {@link SudokuCanonicalizer}, or {@code INVALID}</li>
+ *     <li>{@link Mode#DEDUPLICATE}: {@code NEW}, {@code DUPLICATE} if a puzzle on an earlier line is
+ *     equivalent, or {@code INVALID}</li>
+ * </ul>
+ * A line is invalid if it does not hold exactly 81 cells or contains any other character;
+ * blank lines are skipped.
+ */
+public final class SudokuBatch {
+
+    /**
+     * What to do with every puzzle.
+     */
+    public enum Mode {
+        SOLVE, VALIDATE, CANONICALIZE, DEDUPLICATE
+    }
+
+    private static final int CHUNK_SIZE = 16384;
+    private static final int SPLIT_THRESHOLD = 256;  // Puzzles per task below which a range is not split
+
+    private static final ThreadLocal<SudokuSolver> SOLVER = ThreadLocal.withInitial(SudokuSolver::new);
+    private static final ThreadLocal<SudokuCanonicalizer> CANONICALIZER = ThreadLocal.withInitial(SudokuCanonicalizer::new);
+
+    private SudokuBatch() {
+    }
+
+    /**
+     * Processes every line of the input and writes one result line per puzzle.
+     *
+     * @param in   the puzzles, one per line
+     * @param out  receives the results in input order
+     * @param mode what to do with the puzzles
+     * @param pool the pool to process the puzzles in
+     * @return the number of puzzles, the elapsed time and the latency per puzzle
+     * @throws IOException if reading or writing fails
+     */
+    public static Report process(BufferedReader in, Writer out, Mode mode, ForkJoinPool pool) throws IOException {
+        LatencyHistogram latencies = new LatencyHistogram();
+        long start = System.nanoTime();
+        long count = 0;
+        // Puzzles are canonicalized in the pool and looked up in input order while the results are written
+        SudokuCanonicalIndex seen = mode == Mode.DEDUPLICATE ? new SudokuCanonicalIndex(CHUNK_SIZE) : null;
+
+        Chunk pending = null;  // Chunk being processed by the pool
+        while (true) {
+            Chunk next = Chunk.read(in);
+            if (next != null) {
+                next.task = pool.submit(new ChunkTask(next, 0, next.size, mode, latencies));
+            }
+            if (pending != null) {
+                pending.write(out, seen);
+                count += pending.size;
+            }
+            if (next == null) {
+                break;
+            }
+            pending = next;
+        }
+        out.flush();
+        return new Report(count, System.nanoTime() - start, latencies);
+    }
+
+    // Result of one puzzle line, written without building a string
+    private static int processLine(String line, Mode mode, char[] result) {
+        byte[] puzzle = new byte[SudokuSolver.CELLS];
+        if (!parse(line, puzzle)) {
+            return copy("INVALID", result);
+        }
+        if (mode == Mode.CANONICALIZE || mode == Mode.DEDUPLICATE) {
+            CANONICALIZER.get().canonicalize(puzzle, puzzle);
+            for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+                result[cell] = (char) ('0' + puzzle[cell]);
+            }
+            return SudokuSolver.CELLS;
+        }
+        SudokuSolver solver = SOLVER.get();
+        if (mode == Mode.VALIDATE) {
+            switch (solver.countSolutions(puzzle, 2)) {
+                case 0: return copy("NONE", result);
+                case 1: return copy("UNIQUE", result);
+                default: return copy("MULTIPLE", result);
+            }
+        }
+        byte[] solution = new byte[SudokuSolver.CELLS];
+        if (!solver.solve(puzzle, solution)) {
+            return copy("NO_SOLUTION", result);
+        }
+        for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+            result[cell] = (char) ('0' + solution[cell]);
+        }
+        return SudokuSolver.CELLS;
+    }
+
+    private static boolean parse(String line, byte[] puzzle) {
+        int length = line.length();
+        while (length > 0 && Character.isWhitespace(line.charAt(length - 1))) {
+            length--;  // Tolerate trailing whitespace and carriage returns
+        }
+        if (length != SudokuSolver.CELLS) {
+            return false;
+        }
+        for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+            char c = line.charAt(cell);
+            if (c >= '1' && c <= '9') {
+                puzzle[cell] = (byte) (c - '0');
+            } else if (c == '0' || c == '.') {
+                puzzle[cell] = 0;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int copy(String text, char[] result) {
+        text.getChars(0, text.length(), result, 0);
+        return text.length();
+    }
+
+    // A block of input lines and the matching results, filled in by the pool
+    private static final class Chunk {
+        final String[] lines = new String[CHUNK_SIZE];
+        final char[][] results = new char[CHUNK_SIZE][];
+        final int[] lengths = new int[CHUNK_SIZE];
+        int size;
+        ForkJoinTask<?> task;  // Fills in the results
+
+        static Chunk read(BufferedReader in) throws IOException {
+            Chunk chunk = new Chunk();
+            String line;
+            while (chunk.size < CHUNK_SIZE && (line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    chunk.lines[chunk.size++] = line;
+                }
+            }
+            return chunk.size == 0 ? null : chunk;
+        }
+
+        // With an index, every canonical form is replaced by whether an equivalent puzzle came before
+        void write(Writer out, SudokuCanonicalIndex seen) throws IOException {
+            task.join();
+            byte[] canonical = new byte[SudokuSolver.CELLS];
+            for (int i = 0; i < size; i++) {
+                if (seen != null && lengths[i] == SudokuSolver.CELLS) {
+                    for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+                        canonical[cell] = (byte) (results[i][cell] - '0');
+                    }
+                    lengths[i] = copy(seen.addCanonical(canonical) ? "NEW" : "DUPLICATE", results[i]);
+                }
+                out.write(results[i], 0, lengths[i]);
+                out.write('\n');
+            }
+        }
+    }
+
+    // Splits a range of a chunk in halves until it is small enough to process directly
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Chunk chunk;  // Tasks are never serialized; only the fork/join framework needs the type
+        private final int from;
+        private final int to;
+        private final Mode mode;
+        private final transient LatencyHistogram latencies;
+
+        ChunkTask(Chunk chunk, int from, int to, Mode mode, LatencyHistogram latencies) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+            this.mode = mode;
+            this.latencies = latencies;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(chunk, from, middle, mode, latencies),
+                        new ChunkTask(chunk, middle, to, mode, latencies));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                char[] result = new char[SudokuSolver.CELLS];
+                long start = System.nanoTime();
+                chunk.lengths[i] = processLine(chunk.lines[i], mode, result);
+                latencies.record(System.nanoTime() - start);
+                chunk.results[i] = result;
+                chunk.lines[i] = null;  // Let the line be collected before the chunk is written
+            }
+        }
+    }
+
+    /**
+     * Summary of a batch run.
+     */
+    public static final class Report {
+        private final long count;
+        private final long elapsedNanos;
+        private final LatencyHistogram latencies;
+
+        Report(long count, long elapsedNanos, LatencyHistogram latencies) {
+            this.count = count;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Returns the number of puzzles processed.
+         *
+         * @return the number of puzzles
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the wall-clock time of the whole run.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the throughput of the run.
+         *
+         * @return the number of puzzles processed per second
+         */
+        public double getPuzzlesPerSecond() {
+            return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the time taken per puzzle, measured on the thread that processed it.
+         *
+         * @return the latency histogram
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d puzzles in %.3f s (%.0f puzzles/s), latency p50 %s, p90 %s, p99 %s, p99.9 %s, max %s",
+                    count, elapsedNanos / 1e9, getPuzzlesPerSecond(),
+                    micros(latencies.percentile(50)), micros(latencies.percentile(90)),
+                    micros(latencies.percentile(99)), micros(latencies.percentile(99.9)),
+                    micros(latencies.percentile(100)));
+        }
+
+        private static String micros(long nanos) {
+            return String.format("%.1f us", nanos / 1000.0);
+        }
+    }
+}
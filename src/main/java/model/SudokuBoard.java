@@ -0,0 +1,397 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The SudokuBoard class holds the complete state of one game in primitive arrays.
+ * Initial values, solution values and user values are stored as one byte per cell in
+ * row-major order, and the cells whose initial value is shown are tracked in a bitset.
+ * Updating a cell writes a single byte, so moves do not allocate.
+ * The board also keeps running counts of empty and incorrect cells and of the filled cells in
+ * every row, column and box, adjusted on every write, so completion and correctness queries
+ * are constant-time. The candidates of every empty cell are maintained the same way, together
+ * with per-house digit counts that answer rule conflict queries without scanning the board.
+ * Changed cells are collected in a bitset until they are drained, so that observers can
+ * redraw only what changed.
+ * {@link SudokuCell} offers an object view of a single cell when one is needed.
+ */
+public final class SudokuBoard implements Serializable {
+
+    public static final int CELLS = SudokuSolver.CELLS;
+
+    private final byte[] initialValues = new byte[CELLS];  // 0 if the cell starts empty
+    private final byte[] solutionValues = new byte[CELLS];
+    private final byte[] userValues = new byte[CELLS];     // 0 if the user has not filled the cell
+    private final long[] visible = new long[2];            // Bit per cell, set if the initial value is shown
+    private final short[] pencilMarks = new short[CELLS];  // Digits the user has noted per cell, bit d-1 for digit d
+    private final long[] changed = new long[2];            // Bit per cell, set if the cell changed since the last drain
+
+    private final byte[] houseFilled = new byte[27];  // Filled cells per row (0-8), column (9-17) and box (18-26)
+    private int emptyCells;      // Cells displaying no value
+    private int incorrectCells;  // Cells not holding their solution value
+    private int wrongEntries;    // Cells with a user value that differs from the solution
+    private final SudokuCandidates candidates = new SudokuCandidates();  // Candidates implied by the displayed values
+
+    /**
+     * Starts a new game on this board from a puzzle. User values are cleared.
+     *
+     * @param puzzle the puzzle to load
+     */
+    public void load(SudokuPuzzle puzzle) {
+        visible[0] = 0;
+        visible[1] = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int initialValue = puzzle.getGiven(cell);
+            initialValues[cell] = (byte) initialValue;
+            solutionValues[cell] = (byte) puzzle.getSolution(cell);
+            userValues[cell] = 0;
+            pencilMarks[cell] = 0;
+            if (initialValue != 0) {
+                visible[cell >> 6] |= 1L << cell;  // Only non-empty initial values are shown
+            }
+        }
+        recount();
+    }
+
+    /**
+     * Copies the complete state of another board into this board.
+     *
+     * @param other the board to copy from
+     */
+    public void copyFrom(SudokuBoard other) {
+        System.arraycopy(other.initialValues, 0, initialValues, 0, CELLS);
+        System.arraycopy(other.solutionValues, 0, solutionValues, 0, CELLS);
+        System.arraycopy(other.userValues, 0, userValues, 0, CELLS);
+        System.arraycopy(other.pencilMarks, 0, pencilMarks, 0, CELLS);
+        visible[0] = other.visible[0];
+        visible[1] = other.visible[1];
+        recount();
+    }
+
+    /**
+     * Retrieves the value to display in a cell: the initial value if it is shown, otherwise the user value.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the value to display, 0 for an empty cell
+     */
+    public int getDisplayValue(int cell) {
+        return isVisible(cell) ? initialValues[cell] : userValues[cell];
+    }
+
+    /**
+     * Retrieves the value the user has entered in a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the user value, 0 if none has been entered
+     */
+    public int getUserValue(int cell) {
+        return userValues[cell];
+    }
+
+    /**
+     * Retrieves the solution value of a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the solution value
+     */
+    public int getSolutionValue(int cell) {
+        return solutionValues[cell];
+    }
+
+    /**
+     * Retrieves the initial value of a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the initial value, 0 if the cell starts empty
+     */
+    public int getInitialValue(int cell) {
+        return initialValues[cell];
+    }
+
+    /**
+     * Checks if the initial value of a cell is shown to the user, which makes the cell read-only.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return true if the initial value is shown, false otherwise
+     */
+    public boolean isVisible(int cell) {
+        return (visible[cell >> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Sets the value the user has entered in a cell.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param value the user value, 0 to clear the cell
+     */
+    public void setUserValue(int cell, int value) {
+        if (userValues[cell] == value) {
+            return;
+        }
+        track(cell, -1);
+        userValues[cell] = (byte) value;
+        track(cell, 1);
+        markChanged(cell);
+    }
+
+    /**
+     * Sets the initial value of a cell.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param value the initial value, 0 for an empty cell
+     */
+    public void setInitialValue(int cell, int value) {
+        if (initialValues[cell] == value) {
+            return;
+        }
+        track(cell, -1);
+        initialValues[cell] = (byte) value;
+        track(cell, 1);
+        markChanged(cell);
+    }
+
+    /**
+     * Sets the solution value of a cell.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param value the solution value
+     */
+    public void setSolutionValue(int cell, int value) {
+        if (solutionValues[cell] == value) {
+            return;
+        }
+        track(cell, -1);
+        solutionValues[cell] = (byte) value;
+        track(cell, 1);
+        markChanged(cell);
+    }
+
+    /**
+     * Sets whether the initial value of a cell is shown to the user.
+     *
+     * @param cell      the cell index in row-major order (0-80)
+     * @param isVisible true if the initial value should be shown, false otherwise
+     */
+    public void setVisible(int cell, boolean isVisible) {
+        if (isVisible(cell) == isVisible) {
+            return;
+        }
+        track(cell, -1);
+        if (isVisible) {
+            visible[cell >> 6] |= 1L << cell;
+        } else {
+            visible[cell >> 6] &= ~(1L << cell);
+        }
+        track(cell, 1);
+        markChanged(cell);
+    }
+
+    /**
+     * Retrieves the digits the user has noted as possible in a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the mask of noted digits, bit d-1 for digit d
+     */
+    public int getPencilMarks(int cell) {
+        return pencilMarks[cell];
+    }
+
+    /**
+     * Sets the digits the user has noted as possible in a cell.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param marks the mask of noted digits, bit d-1 for digit d
+     */
+    public void setPencilMarks(int cell, int marks) {
+        marks &= SudokuSolver.ALL_DIGITS;
+        if (pencilMarks[cell] == marks) {
+            return;
+        }
+        pencilMarks[cell] = (short) marks;
+        markChanged(cell);
+    }
+
+    /**
+     * Checks whether the user value of a cell, or its initial value if the user has not
+     * entered one, matches the solution.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return true if the cell holds its solution value, false otherwise
+     */
+    public boolean isCorrect(int cell) {
+        int userValue = userValues[cell];
+        return userValue != 0 ? userValue == solutionValues[cell] : initialValues[cell] == solutionValues[cell];
+    }
+
+    /**
+     * Checks if every cell displays a value.
+     *
+     * @return true if no cell is empty, false otherwise
+     */
+    public boolean isFilled() {
+        return emptyCells == 0;
+    }
+
+    /**
+     * Checks if every cell holds its solution value.
+     *
+     * @return true if the board is solved, false otherwise
+     */
+    public boolean isSolved() {
+        return incorrectCells == 0;
+    }
+
+    /**
+     * Checks if any value entered by the user differs from the solution.
+     *
+     * @return true if at least one user value is wrong, false otherwise
+     */
+    public boolean hasWrongEntries() {
+        return wrongEntries != 0;
+    }
+
+    /**
+     * Checks if any digit is displayed more than once in a row, column or box.
+     * Unlike {@link #hasWrongEntries()} this follows the rules alone and does not consult the solution.
+     *
+     * @return true if the board has a conflict, false otherwise
+     */
+    public boolean hasConflicts() {
+        return candidates.hasDuplicates();
+    }
+
+    /**
+     * Checks if the value displayed in a cell is also displayed elsewhere in its row, column or box.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return true if the cell takes part in a conflict, false if it is empty or its value is unique
+     */
+    public boolean isConflicting(int cell) {
+        int displayValue = getDisplayValue(cell);
+        return displayValue != 0 && candidates.isDuplicated(cell, displayValue);
+    }
+
+    /**
+     * Checks if displaying a value in a cell would repeat a digit displayed elsewhere in its row,
+     * column or box. The cell's own current value is not counted.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param value the value to test, 1-9
+     * @return true if the value would conflict with another cell, false otherwise
+     */
+    public boolean wouldConflict(int cell, int value) {
+        if (value < 1 || value > 9) throw new IllegalArgumentException("value " + value);
+        int own = getDisplayValue(cell) == value ? 1 : 0;
+        return candidates.getDigitCount(SudokuSolver.ROW_OF[cell], value) > own
+                || candidates.getDigitCount(9 + SudokuSolver.COL_OF[cell], value) > own
+                || candidates.getDigitCount(18 + SudokuSolver.BOX_OF[cell], value) > own;
+    }
+
+    /**
+     * Returns the number of cells displaying a value in a row, column or box.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @return the number of filled cells in the house (0-9)
+     */
+    public int getFilledCount(int house) {
+        return houseFilled[house];
+    }
+
+    /**
+     * Returns the digits that can still be placed in a cell without repeating a digit displayed
+     * in its row, column or box.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the mask of candidates, bit d-1 for digit d, 0 if the cell displays a value
+     */
+    public int getCandidateMask(int cell) {
+        return candidates.getCandidates(cell);
+    }
+
+    /**
+     * Returns the digits displayed in a row, column or box.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @return the mask of digits displayed at least once in the house, bit d-1 for digit d
+     */
+    public int getHouseDigits(int house) {
+        return candidates.getHouseMask(house);
+    }
+
+    /**
+     * Returns the candidates implied by the values displayed on this board.
+     *
+     * @return the candidate state, updated by every write to the board
+     */
+    SudokuCandidates getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Checks if any cell has changed since the changes were last drained.
+     *
+     * @return true if there are undrained changes, false otherwise
+     */
+    public boolean hasChanges() {
+        return (changed[0] | changed[1]) != 0;
+    }
+
+    /**
+     * Writes the indices of all cells changed since the last call into an array, in ascending order,
+     * and forgets the changes.
+     *
+     * @param cells an array of at least 81 elements receiving the cell indices
+     * @return the number of changed cells
+     */
+    public int drainChanges(int[] cells) {
+        int count = 0;
+        for (int word = 0; word < changed.length; word++) {
+            for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+                cells[count++] = word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            changed[word] = 0;
+        }
+        return count;
+    }
+
+    private void markChanged(int cell) {
+        changed[cell >> 6] |= 1L << cell;
+    }
+
+    // Adds (delta 1) or removes (delta -1) the cell's contribution to the running counts
+    private void track(int cell, int delta) {
+        int displayValue = getDisplayValue(cell);
+        if (displayValue == 0) {
+            emptyCells += delta;
+        } else {
+            houseFilled[SudokuSolver.ROW_OF[cell]] += delta;
+            houseFilled[9 + SudokuSolver.COL_OF[cell]] += delta;
+            houseFilled[18 + SudokuSolver.BOX_OF[cell]] += delta;
+            if (delta > 0) {
+                candidates.place(cell, displayValue);
+            } else {
+                candidates.remove(cell, displayValue);
+            }
+        }
+        if (!isCorrect(cell)) {
+            incorrectCells += delta;
+            if (userValues[cell] != 0) {
+                wrongEntries += delta;
+            }
+        }
+    }
+
+    private void recount() {
+        emptyCells = 0;
+        incorrectCells = 0;
+        wrongEntries = 0;
+        for (int house = 0; house < 27; house++) {
+            houseFilled[house] = 0;
+        }
+        candidates.clear();
+        for (int cell = 0; cell < CELLS; cell++) {
+            track(cell, 1);
+            markChanged(cell);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates large numbers of distinct puzzles of one level using every thread of a fork-join pool.
+ * <p>
+ * Puzzles are generated in chunks, and every chunk is split recursively into tasks that
+ * the pool's threads steal from each other, so slow puzzles do not leave threads idle.
+ * Every task works with its own {@link SudokuGenerator} and a {@link SplittableRandom} split
+ * off its parent's, so threads share no state and the same seed always produces the same
+ * puzzles in the same order, whatever the number of threads. While the next chunks are
+ * generated, the finished one is deduplicated and handed on, and every puzzle that was already
+ * produced or that {@link SudokuRater} rates at another level is replaced by a new one. Chunks
+ * are sized by how many generated puzzles it took per kept one so far, so rare levels are
+ * generated in full chunks too.
+ */
+public final class SudokuBulkGenerator {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int CHUNKS_IN_PROGRESS = 2;
+    private static final int SPLIT_THRESHOLD = 16;  // Puzzles per task below which a range is not split
+
+    private SudokuBulkGenerator() {
+    }
+
+    /**
+     * Generates distinct puzzles and writes them one per line as 81 digits, 0 for an empty cell,
+     * in the format read by {@link SudokuBatch}.
+     *
+     * @param level the difficulty level of the puzzles
+     * @param count the number of puzzles to generate
+     * @param seed  the seed of the random streams
+     * @param out   receives the puzzles
+     * @param pool  the pool to generate the puzzles in
+     * @return the number of puzzles, the elapsed time and the time taken per puzzle
+     * @throws IOException if writing fails
+     */
+    public static SudokuBatch.Report generate(SudokuUtilities.SudokuLevel level, long count, long seed,
+                                              Writer out, ForkJoinPool pool) throws IOException {
+        char[] line = new char[CELLS + 1];
+        line[CELLS] = '\n';
+        Run run = new Run(level, count, seed, pool);
+        for (Chunk chunk = run.next(); chunk != null; chunk = run.next()) {
+            for (int i = 0; i < chunk.size; i++) {
+                if (chunk.accepted[i]) {
+                    byte[] puzzle = chunk.puzzles[i];
+                    for (int cell = 0; cell < CELLS; cell++) {
+                        line[cell] = (char) ('0' + puzzle[cell]);
+                    }
+                    out.write(line);
+                }
+            }
+        }
+        out.flush();
+        return run.report();
+    }
+
+    /**
+     * Generates distinct puzzles.
+     *
+     * @param level the difficulty level of the puzzles
+     * @param count the number of puzzles to generate
+     * @param seed  the seed of the random streams
+     * @param pool  the pool to generate the puzzles in
+     * @return the puzzles in the order they were generated, each rated at the level
+     */
+    public static List<SudokuPuzzle> generate(SudokuUtilities.SudokuLevel level, int count, long seed,
+                                              ForkJoinPool pool) {
+        List<SudokuPuzzle> puzzles = new ArrayList<>(count);
+        Run run = new Run(level, count, seed, pool);
+        for (Chunk chunk = run.next(); chunk != null; chunk = run.next()) {
+            for (int i = 0; i < chunk.size; i++) {
+                if (chunk.accepted[i]) {
+                    puzzles.add(new SudokuPuzzle(chunk.levels[i], chunk.puzzles[i], chunk.solutions[i]));
+                }
+            }
+        }
+        return puzzles;
+    }
+
+    // Hands out generated chunks in order, keeping the pool busy with the chunks after it
+    private static final class Run {
+        private final SudokuUtilities.SudokuLevel level;
+        private final long count;
+        private final ForkJoinPool pool;
+        private final SplittableRandom random;
+        private final LongHashSet seen;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final long start = System.nanoTime();
+        private final ArrayDeque<Chunk> inProgress = new ArrayDeque<>();  // Chunks being generated by the pool
+        private long inProgressExpected;  // Puzzles those chunks are expected to add
+        private long generated;           // Puzzles generated so far, including rejected ones
+        private long accepted;            // Distinct puzzles of the level handed out so far
+
+        Run(SudokuUtilities.SudokuLevel level, long count, long seed, ForkJoinPool pool) {
+            if (count < 0) throw new IllegalArgumentException("count " + count);
+            this.level = level;
+            this.count = count;
+            this.pool = pool;
+            this.random = new SplittableRandom(seed);
+            this.seen = new LongHashSet((int) Math.min(count, Integer.MAX_VALUE));
+            submit();
+        }
+
+        // Returns the next chunk with the puzzles to keep marked, or null once enough puzzles were handed out
+        Chunk next() {
+            Chunk chunk = inProgress.poll();
+            if (chunk == null || accepted == count) {
+                for (; chunk != null; chunk = inProgress.poll()) {
+                    chunk.task.cancel(false);  // Chunks started in case the ones before fell short
+                }
+                return null;
+            }
+            chunk.task.join();
+            inProgressExpected -= chunk.expected;
+            generated += chunk.size;
+            for (int i = 0; i < chunk.size; i++) {
+                chunk.accepted[i] = accepted < count && chunk.levels[i] == level && seen.add(hash(chunk.puzzles[i]));
+                if (chunk.accepted[i]) {
+                    accepted++;
+                }
+            }
+            submit();  // Replace the rejected puzzles and keep the pool busy while the caller consumes this chunk
+            return chunk;
+        }
+
+        SudokuBatch.Report report() {
+            return new SudokuBatch.Report(accepted, System.nanoTime() - start, latencies);
+        }
+
+        // Starts generating the missing puzzles, expecting the chunks in progress to keep as many as the ones before
+        private void submit() {
+            long needed = count - accepted - inProgressExpected;
+            while (needed > 0 && inProgress.size() < CHUNKS_IN_PROGRESS) {
+                // Puzzles generated per kept one so far; until one is kept, every chunk is generated in full
+                double perAccepted = accepted > 0 ? (double) generated / accepted : generated > 0 ? CHUNK_SIZE : 1;
+                int size = (int) Math.min(CHUNK_SIZE, Math.ceil(needed * perAccepted));
+                long expected = Math.max(1, Math.min(needed, (long) (size / perAccepted)));
+                Chunk chunk = new Chunk(size, expected);
+                chunk.task = pool.submit(new GenerateTask(chunk, 0, chunk.size, level, random.split(), latencies));
+                inProgress.add(chunk);
+                inProgressExpected += expected;
+                needed -= expected;
+            }
+        }
+    }
+
+    // A block of generated puzzles, their solutions and rated levels, filled in by the pool
+    private static final class Chunk {
+        final byte[][] puzzles;
+        final byte[][] solutions;
+        final SudokuUtilities.SudokuLevel[] levels;
+        final boolean[] accepted;
+        final int size;
+        final long expected;  // Puzzles this chunk is expected to add
+        ForkJoinTask<?> task;  // Fills in the puzzles
+
+        Chunk(int size, long expected) {
+            this.size = size;
+            this.expected = expected;
+            puzzles = new byte[size][CELLS];
+            solutions = new byte[size][CELLS];
+            levels = new SudokuUtilities.SudokuLevel[size];
+            accepted = new boolean[size];
+        }
+    }
+
+    // Splits a range of a chunk in halves, each with its own random stream, until it is small enough to generate
+    private static final class GenerateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Chunk chunk;  // Tasks are never serialized; only the fork/join framework needs the type
+        private final int from;
+        private final int to;
+        private final SudokuUtilities.SudokuLevel level;
+        private final transient SplittableRandom random;
+        private final transient LatencyHistogram latencies;
+
+        GenerateTask(Chunk chunk, int from, int to, SudokuUtilities.SudokuLevel level,
+                     SplittableRandom random, LatencyHistogram latencies) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+            this.random = random;
+            this.latencies = latencies;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GenerateTask(chunk, from, middle, level, random.split(), latencies),
+                        new GenerateTask(chunk, middle, to, level, random.split(), latencies));
+                return;
+            }
+            SudokuGenerator generator = new SudokuGenerator(random);
+            for (int i = from; i < to; i++) {
+                long start = System.nanoTime();
+                chunk.levels[i] = generator.generate(level, chunk.puzzles[i], chunk.solutions[i]);
+                latencies.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    // 64-bit FNV-1a hash of the givens, finished with a bit mixer; collisions are negligible below billions of puzzles
+    private static long hash(byte[] puzzle) {
+        long h = 0xCBF29CE484222325L;
+        for (int cell = 0; cell < CELLS; cell++) {
+            h = (h ^ puzzle[cell]) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,166 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The candidates of every cell of a board, kept up to date as digits are placed and removed.
+ * For every row, column and box it counts how often each digit appears, and for every empty
+ * cell it keeps the mask of digits that appear in none of its houses. Placing or removing a
+ * digit updates the three houses and the 20 peers of the cell, so the candidates never have to
+ * be recomputed from the whole board. The same counts tell in constant time whether a digit
+ * is repeated in a house, and a running total of repeats tells whether the board breaks the
+ * rules at all. Masks use bit d-1 for digit d.
+ */
+final class SudokuCandidates implements Serializable {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+    private static final int ALL_DIGITS = SudokuSolver.ALL_DIGITS;
+
+    private final int[] cellMasks = new int[CELLS];       // Candidates of empty cells, 0 for filled cells
+    private final long[] filled = new long[2];            // Bit per cell, set if the cell holds a digit
+    private final int[] houseMasks = new int[27];         // Digits present in each row (0-8), column (9-17) and box (18-26)
+    private final byte[] digitCounts = new byte[27 * 9];  // Occurrences of each digit in each house
+    private int duplicates;                               // Occurrences beyond the first, summed over all houses and digits
+
+    SudokuCandidates() {
+        clear();
+    }
+
+    /**
+     * Empties every cell, so that every digit is a candidate everywhere.
+     */
+    void clear() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            cellMasks[cell] = ALL_DIGITS;
+        }
+        filled[0] = 0;
+        filled[1] = 0;
+        for (int house = 0; house < 27; house++) {
+            houseMasks[house] = 0;
+        }
+        for (int i = 0; i < digitCounts.length; i++) {
+            digitCounts[i] = 0;
+        }
+        duplicates = 0;
+    }
+
+    /**
+     * Records a digit placed in an empty cell.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param digit the digit, 1-9
+     */
+    void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        filled[cell >> 6] |= 1L << cell;
+        cellMasks[cell] = 0;
+        count(SudokuSolver.ROW_OF[cell], digit, 1);
+        count(9 + SudokuSolver.COL_OF[cell], digit, 1);
+        count(18 + SudokuSolver.BOX_OF[cell], digit, 1);
+        for (int peer : SudokuSolver.PEERS[cell]) {
+            cellMasks[peer] &= ~bit;  // Filled peers stay 0
+        }
+    }
+
+    /**
+     * Records a digit removed from a cell, which becomes empty.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param digit the digit that was in the cell, 1-9
+     */
+    void remove(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        filled[cell >> 6] &= ~(1L << cell);
+        count(SudokuSolver.ROW_OF[cell], digit, -1);
+        count(9 + SudokuSolver.COL_OF[cell], digit, -1);
+        count(18 + SudokuSolver.BOX_OF[cell], digit, -1);
+        cellMasks[cell] = ALL_DIGITS & ~usedByHouses(cell);
+        for (int peer : SudokuSolver.PEERS[cell]) {
+            if (!isFilled(peer) && (usedByHouses(peer) & bit) == 0) {
+                cellMasks[peer] |= bit;  // The digit may still appear elsewhere in one of the peer's houses
+            }
+        }
+    }
+
+    /**
+     * Returns the candidates of a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the mask of digits that can be placed in the cell, 0 if the cell is filled
+     */
+    int getCandidates(int cell) {
+        return cellMasks[cell];
+    }
+
+    /**
+     * Checks if a cell holds a digit.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return true if the cell is filled, false if it is empty
+     */
+    boolean isFilled(int cell) {
+        return (filled[cell >> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the digits present in a house.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @return the mask of digits that appear at least once in the house
+     */
+    int getHouseMask(int house) {
+        return houseMasks[house];
+    }
+
+    /**
+     * Returns how often a digit appears in a house.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @param digit the digit, 1-9
+     * @return the number of cells in the house holding the digit
+     */
+    int getDigitCount(int house, int digit) {
+        return digitCounts[house * 9 + digit - 1];
+    }
+
+    /**
+     * Checks if a digit in a cell is repeated in the cell's row, column or box.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param digit the digit in the cell, 1-9
+     * @return true if another cell of one of its houses holds the same digit
+     */
+    boolean isDuplicated(int cell, int digit) {
+        return getDigitCount(SudokuSolver.ROW_OF[cell], digit) > 1
+                || getDigitCount(9 + SudokuSolver.COL_OF[cell], digit) > 1
+                || getDigitCount(18 + SudokuSolver.BOX_OF[cell], digit) > 1;
+    }
+
+    /**
+     * Checks if any digit appears more than once in a row, column or box.
+     *
+     * @return true if the placed digits break the rules, false otherwise
+     */
+    boolean hasDuplicates() {
+        return duplicates != 0;
+    }
+
+    private int usedByHouses(int cell) {
+        return houseMasks[SudokuSolver.ROW_OF[cell]]
+                | houseMasks[9 + SudokuSolver.COL_OF[cell]]
+                | houseMasks[18 + SudokuSolver.BOX_OF[cell]];
+    }
+
+    private void count(int house, int digit, int delta) {
+        int index = house * 9 + digit - 1;
+        if (delta > 0 ? digitCounts[index] > 0 : digitCounts[index] > 1) {
+            duplicates += delta;  // The digit was already there, or is still there after the removal
+        }
+        digitCounts[index] += delta;
+        if (digitCounts[index] == 0) {
+            houseMasks[house] &= ~(1 << (digit - 1));
+        } else {
+            houseMasks[house] |= 1 << (digit - 1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package model;
+
+/**
+ * A set of puzzles up to symmetry: a puzzle is in the set if any puzzle that
+ * {@link SudokuTransform} can turn it into was added. Puzzles are reduced to their
+ * {@link SudokuCanonicalizer canonical form}, and the set keeps a 128-bit fingerprint of every
+ * canonical form in a {@link LongHashSet} of long pairs, a single open-addressing array with
+ * linear probing. Every puzzle takes 16 bytes, and looking one up costs one
+ * canonicalization and a probe, however many puzzles the set holds. Two different
+ * canonical forms share a fingerprint with a probability of about n² / 2¹²⁹, which is
+ * negligible for billions of puzzles. The set is not thread-safe.
+ */
+public final class SudokuCanonicalIndex {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+
+    private final SudokuCanonicalizer canonicalizer = new SudokuCanonicalizer();
+    private final byte[] canonical = new byte[CELLS];
+    private final LongHashSet fingerprints;
+
+    /**
+     * Creates an index that holds the expected number of puzzles without growing.
+     *
+     * @param expectedSize the number of puzzles the index is expected to hold
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public SudokuCanonicalIndex(int expectedSize) {
+        fingerprints = LongHashSet.ofPairs(expectedSize);
+    }
+
+    /**
+     * Adds the symmetry class of a puzzle to the index.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @return true if the puzzle was added, false if an equivalent puzzle was already in the index
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public boolean add(byte[] puzzle) {
+        canonicalizer.canonicalize(puzzle, canonical);
+        return addCanonical(canonical);
+    }
+
+    /**
+     * Checks whether a puzzle equivalent to the given one is in the index.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @return true if an equivalent puzzle was added, false otherwise
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public boolean contains(byte[] puzzle) {
+        canonicalizer.canonicalize(puzzle, canonical);
+        return containsCanonical(canonical);
+    }
+
+    /**
+     * Adds a puzzle that is already in canonical form, for callers that canonicalize on other threads.
+     *
+     * @param canonical 81 values of a canonical form as computed by {@link SudokuCanonicalizer}
+     * @return true if the puzzle was added, false if it was already in the index
+     */
+    public boolean addCanonical(byte[] canonical) {
+        return fingerprints.add(high(canonical), low(canonical));
+    }
+
+    /**
+     * Checks whether a puzzle that is already in canonical form is in the index.
+     *
+     * @param canonical 81 values of a canonical form as computed by {@link SudokuCanonicalizer}
+     * @return true if the puzzle was added, false otherwise
+     */
+    public boolean containsCanonical(byte[] canonical) {
+        return fingerprints.contains(high(canonical), low(canonical));
+    }
+
+    /**
+     * Returns the number of symmetry classes in the index.
+     *
+     * @return the number of distinct puzzles up to symmetry
+     */
+    public int size() {
+        return fingerprints.size();
+    }
+
+    // Two independent 64-bit hashes of the cells, each finished with a bit mixer: FNV-1a and a polynomial hash
+    private static long high(byte[] canonical) {
+        long h = 0xCBF29CE484222325L;
+        for (int cell = 0; cell < CELLS; cell++) {
+            h = (h ^ canonical[cell]) * 0x100000001B3L;
+        }
+        return finish(h);
+    }
+
+    private static long low(byte[] canonical) {
+        long h = 0x84222325CBF29CE4L;
+        for (int cell = 0; cell < CELLS; cell++) {
+            h = h * 0xC6A4A7935BD1E995L + canonical[cell] + 1;
+        }
+        return finish(h);
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
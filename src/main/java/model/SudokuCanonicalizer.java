@@ -0,0 +1,329 @@
+package model;
+
+/**
+ * Maps a puzzle to the canonical representative of its symmetry class: the lexicographically
+ * smallest board, read in row-major order with 0 for an empty cell, among all boards that
+ * {@link SudokuTransform} can produce from it by transposition, band, stack, row and column
+ * permutations and digit relabelling. Two puzzles are equivalent exactly when their canonical
+ * forms are equal.
+ * <p>
+ * The geometric part of the group has 2 × 1296 × 1296 = 3,359,232 elements, and relabelling
+ * multiplies that by 9!, so the group is never enumerated. For a fixed arrangement the smallest
+ * relabelling numbers the digits in order of first appearance, so only arrangements have to be
+ * compared, and they are compared one output row at a time. The first row holds distinct
+ * digits, so it is smallest when its empty cells come first, which depends only on how its
+ * clues are spread over the stacks: the best first rows and the column orders producing them
+ * are found without trying all 1296 column orders. After that every candidate has fixed its
+ * transposition and column order and extends its row order by one row that keeps the band
+ * structure, and only candidates whose row ties with the smallest row found survive. A row
+ * that compares larger is abandoned at its first larger cell. Most candidates die in the
+ * first few rows. Puzzles with many empty rows leave more ties alive; an empty board is the
+ * worst case and keeps every arrangement.
+ * <p>
+ * Candidate buffers grow on demand and are kept, so a warm canonicalizer does not allocate.
+ * Instances are not thread-safe; use one canonicalizer per thread.
+ */
+public final class SudokuCanonicalizer {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+    private static final int COLUMN_ORDERS = 1296;  // 6 stack orders × 6³ column orders within the stacks
+
+    // Candidate layout in the int buffers
+    private static final int TRANSPOSED = 0;     // 1 if the board is read transposed
+    private static final int ORDER = 1;          // Index into COLUMN_ORDER
+    private static final int USED_ROWS = 2;      // Bit per source row already placed
+    private static final int LAST_ROW = 3;       // Source row placed at the previous output row
+    private static final int NEXT_LABEL = 4;     // Label the next new digit gets
+    private static final int LABELS = 5;         // 10 entries: the label of every source digit, 0 if not seen yet
+    private static final int STRIDE = LABELS + 10;
+
+    // For every column order, the source column shown at every output column
+    private static final byte[][] COLUMN_ORDER = new byte[COLUMN_ORDERS][9];
+    private static final int[][] PERMUTATIONS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+
+    // Column order index = stack order * 216 + order within output stacks 0, 1 and 2 as base-6 digits
+    static {
+        int index = 0;
+        for (int[] stacks : PERMUTATIONS) {
+            for (int[] first : PERMUTATIONS) {
+                for (int[] second : PERMUTATIONS) {
+                    for (int[] third : PERMUTATIONS) {
+                        int[][] inner = {first, second, third};
+                        for (int stack = 0; stack < 3; stack++) {
+                            for (int i = 0; i < 3; i++) {
+                                COLUMN_ORDER[index][stack * 3 + i] = (byte) (stacks[stack] * 3 + inner[stack][i]);
+                            }
+                        }
+                        index++;
+                    }
+                }
+            }
+        }
+    }
+
+    private final byte[][] views = new byte[2][CELLS];  // The board as given and transposed
+    private final int[] row = new int[9];               // Row of the candidate being compared
+    private final int[] best = new int[9];              // Smallest row found for the current output row
+    private final int[] labels = new int[10];
+    private final int[] stackCounts = new int[3];  // Clues per stack of the first row being placed
+    private final int[][] innerOrders = new int[3][6];  // Orders within each output stack that put empty cells first
+    private final int[] innerCounts = new int[3];
+    private int[] current = new int[2 * COLUMN_ORDERS * STRIDE];
+    private int[] next = new int[2 * COLUMN_ORDERS * STRIDE];
+
+    /**
+     * Computes the canonical form of a puzzle.
+     *
+     * @param puzzle    81 values in row-major order, 0 for an empty cell
+     * @param canonical an array of 81 elements receiving the canonical form; may be the puzzle array
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public void canonicalize(byte[] puzzle, byte[] canonical) {
+        if (puzzle.length != CELLS) throw new IllegalArgumentException("puzzle length " + puzzle.length);
+        for (int cell = 0; cell < CELLS; cell++) {
+            int value = puzzle[cell];
+            if (value < 0 || value > 9) throw new IllegalArgumentException("value " + value);
+            views[0][cell] = (byte) value;
+            views[1][(cell % 9) * 9 + cell / 9] = (byte) value;
+        }
+
+        int count = placeFirstRow();
+        for (int outputRow = 0; outputRow < 9; outputRow++) {
+            if (outputRow > 0) {
+                count = extend(count, outputRow);
+            }
+            for (int col = 0; col < 9; col++) {
+                canonical[outputRow * 9 + col] = (byte) best[col];
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Computes the canonical form of a puzzle as a new array.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @return the 81 values of the canonical form
+     */
+    public byte[] canonicalize(byte[] puzzle) {
+        byte[] canonical = new byte[CELLS];
+        canonicalize(puzzle, canonical);
+        return canonical;
+    }
+
+    /**
+     * Finds the candidates for the first output row into {@link #next}, and the row itself into {@link #best}.
+     * Every source row is first arranged as well as it can be, with its stacks ordered by their
+     * number of clues and the empty cells first within every stack; the smallest of these
+     * arrangements, compared as clue patterns, is the first row. Its clues are numbered in order.
+     *
+     * @return the number of candidates
+     */
+    private int placeFirstRow() {
+        int bestPattern = Integer.MAX_VALUE;
+        for (int transposed = 0; transposed < 2; transposed++) {
+            for (int sourceRow = 0; sourceRow < 9; sourceRow++) {
+                bestPattern = Math.min(bestPattern, firstRowPattern(transposed, sourceRow));
+            }
+        }
+        int label = 0;
+        for (int col = 0; col < 9; col++) {
+            best[col] = (bestPattern & 1 << (8 - col)) != 0 ? ++label : 0;
+        }
+
+        int survivors = 0;
+        for (int transposed = 0; transposed < 2; transposed++) {
+            for (int sourceRow = 0; sourceRow < 9; sourceRow++) {
+                if (firstRowPattern(transposed, sourceRow) == bestPattern) {
+                    survivors = placeFirstRow(survivors, transposed, sourceRow);
+                }
+            }
+        }
+        return survivors;
+    }
+
+    // Bit 8 - c is set if output column c holds a clue when the row is arranged as well as possible
+    private int firstRowPattern(int transposed, int sourceRow) {
+        byte[] view = views[transposed];
+        for (int stack = 0; stack < 3; stack++) {
+            stackCounts[stack] = 0;
+            for (int i = 0; i < 3; i++) {
+                if (view[sourceRow * 9 + stack * 3 + i] != 0) {
+                    stackCounts[stack]++;
+                }
+            }
+        }
+        int a = Math.min(stackCounts[0], Math.min(stackCounts[1], stackCounts[2]));
+        int c = Math.max(stackCounts[0], Math.max(stackCounts[1], stackCounts[2]));
+        int b = stackCounts[0] + stackCounts[1] + stackCounts[2] - a - c;
+        return ((1 << a) - 1) << 6 | ((1 << b) - 1) << 3 | (1 << c) - 1;
+    }
+
+    // Adds every column order that arranges a source row as its best first row
+    private int placeFirstRow(int survivors, int transposed, int sourceRow) {
+        byte[] view = views[transposed];
+        for (int stackOrder = 0; stackOrder < 6; stackOrder++) {
+            int[] stacks = PERMUTATIONS[stackOrder];
+            if (count(view, sourceRow, stacks[0]) > count(view, sourceRow, stacks[1])
+                    || count(view, sourceRow, stacks[1]) > count(view, sourceRow, stacks[2])) {
+                continue;  // The stacks must be ordered by their number of clues
+            }
+            for (int stack = 0; stack < 3; stack++) {
+                innerCounts[stack] = 0;
+                for (int inner = 0; inner < 6; inner++) {
+                    if (emptyFirst(view, sourceRow * 9 + stacks[stack] * 3, PERMUTATIONS[inner])) {
+                        innerOrders[stack][innerCounts[stack]++] = inner;
+                    }
+                }
+            }
+            for (int i = 0; i < innerCounts[0]; i++) {
+                for (int j = 0; j < innerCounts[1]; j++) {
+                    for (int k = 0; k < innerCounts[2]; k++) {
+                        int order = stackOrder * 216 + innerOrders[0][i] * 36 + innerOrders[1][j] * 6 + innerOrders[2][k];
+                        survivors = placeFirstRow(survivors, transposed, order, sourceRow);
+                    }
+                }
+            }
+        }
+        return survivors;
+    }
+
+    private int placeFirstRow(int survivors, int transposed, int order, int sourceRow) {
+        byte[] view = views[transposed];
+        byte[] columns = COLUMN_ORDER[order];
+        for (int digit = 0; digit <= 9; digit++) {
+            labels[digit] = 0;
+        }
+        int nextLabel = 1;
+        for (int col = 0; col < 9; col++) {
+            int value = view[sourceRow * 9 + columns[col]];
+            if (value != 0) {
+                labels[value] = nextLabel++;
+            }
+        }
+        return append(survivors, transposed, order, 1 << sourceRow, sourceRow, nextLabel);
+    }
+
+    private static int count(byte[] view, int sourceRow, int stack) {
+        int clues = 0;
+        for (int i = 0; i < 3; i++) {
+            if (view[sourceRow * 9 + stack * 3 + i] != 0) {
+                clues++;
+            }
+        }
+        return clues;
+    }
+
+    // True if reading three cells in the given order puts all empty cells before the clues
+    private static boolean emptyFirst(byte[] view, int offset, int[] order) {
+        boolean clue = false;
+        for (int i = 0; i < 3; i++) {
+            if (view[offset + order[i]] != 0) {
+                clue = true;
+            } else if (clue) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Extends every candidate by one row and keeps those giving the smallest row; returns their number
+    private int extend(int count, int outputRow) {
+        int survivors = 0;
+        boolean found = false;
+        for (int candidate = 0; candidate < count; candidate++) {
+            int base = candidate * STRIDE;
+            int usedRows = current[base + USED_ROWS];
+            int firstRow;
+            int lastRow;
+            if (outputRow % 3 == 0) {
+                firstRow = 0;  // A new band: any row of a band that has not been used
+                lastRow = 8;
+            } else {
+                firstRow = current[base + LAST_ROW] / 3 * 3;  // The rest of the band started above
+                lastRow = firstRow + 2;
+            }
+            for (int sourceRow = firstRow; sourceRow <= lastRow; sourceRow++) {
+                if ((usedRows & (1 << sourceRow)) != 0
+                        || outputRow % 3 == 0 && (usedRows & (7 << (sourceRow / 3 * 3))) != 0) {
+                    continue;
+                }
+                int compared = readRow(base, sourceRow, found);
+                if (compared > 0) {
+                    continue;
+                }
+                if (compared < 0 || !found) {
+                    System.arraycopy(row, 0, best, 0, 9);
+                    survivors = 0;
+                    found = true;
+                }
+                survivors = keep(survivors, base, sourceRow);
+            }
+        }
+        return survivors;
+    }
+
+    /**
+     * Reads a source row through a candidate's transposition, column order and labels into
+     * {@link #row}, comparing it with the best row so far and stopping as soon as it is larger.
+     * New digits get labels in {@link #labels}, starting from the candidate's labels.
+     *
+     * @return negative if the row is smaller than the best row, 0 if equal, positive if larger
+     */
+    private int readRow(int base, int sourceRow, boolean compare) {
+        byte[] view = views[current[base + TRANSPOSED]];
+        byte[] columns = COLUMN_ORDER[current[base + ORDER]];
+        System.arraycopy(current, base + LABELS, labels, 0, 10);
+        int nextLabel = current[base + NEXT_LABEL];
+        int offset = sourceRow * 9;
+        boolean smaller = !compare;
+        for (int col = 0; col < 9; col++) {
+            int value = view[offset + columns[col]];
+            if (value != 0) {
+                if (labels[value] == 0) {
+                    labels[value] = nextLabel++;
+                }
+                value = labels[value];
+            }
+            row[col] = value;
+            if (!smaller) {
+                if (value > best[col]) {
+                    return 1;
+                }
+                smaller = value < best[col];
+            }
+        }
+        return smaller && compare ? -1 : 0;
+    }
+
+    // Appends a candidate extended by a source row, with the labels of the row just read
+    private int keep(int survivors, int base, int sourceRow) {
+        int nextLabel = current[base + NEXT_LABEL];
+        for (int digit = 1; digit <= 9; digit++) {
+            if (labels[digit] >= nextLabel) {
+                nextLabel = labels[digit] + 1;
+            }
+        }
+        return append(survivors, current[base + TRANSPOSED], current[base + ORDER],
+                current[base + USED_ROWS] | 1 << sourceRow, sourceRow, nextLabel);
+    }
+
+    // Appends a candidate to the next generation, with the labels in {@link #labels}
+    private int append(int survivors, int transposed, int order, int usedRows, int lastRow, int nextLabel) {
+        int target = survivors * STRIDE;
+        if (target + STRIDE > next.length) {
+            int[] grown = new int[next.length * 2];
+            System.arraycopy(next, 0, grown, 0, target);
+            next = grown;
+        }
+        next[target + TRANSPOSED] = transposed;
+        next[target + ORDER] = order;
+        next[target + USED_ROWS] = usedRows;
+        next[target + LAST_ROW] = lastRow;
+        next[target + NEXT_LABEL] = nextLabel;
+        System.arraycopy(labels, 0, next, target + LABELS, 10);
+        return survivors + 1;
+    }
+}
@@ -1,31 +1,26 @@
 package model;
 
-import java.io.Serializable;
-
 /**
  * The SudokuCell class represents an individual cell in a Sudoku puzzle.
  * Each cell has an initial value, a solution value, a visibility flag,
  * and a user-provided value that can be set during gameplay.
+ * A cell is a view over one position of a {@link SudokuBoard}; reads and writes go straight
+ * to the board, so creating a cell is optional and never copies any state.
  */
-public class SudokuCell implements Serializable {
+public class SudokuCell {
 
-    private int initialValue;  // The initial value of the cell (0 if the cell is empty)
-    private int solutionValue;  // The correct solution value of the cell
-    private boolean isVisible;  // Whether the initial value should be displayed
-    private int userValue;  // The value input by the user
+    private final SudokuBoard board;  // The board holding the cell's state
+    private final int cell;  // The cell index in row-major order
 
     /**
-     * Constructs a SudokuCell with a specified initial value, solution value, and visibility.
+     * Constructs a view of one cell of a board.
      *
-     * @param initialValue   the initial value of the cell, or 0 if the cell is empty
-     * @param solutionValue  the correct solution value for the cell
-     * @param isVisible      whether the initial value should be displayed to the user
+     * @param board the board holding the cell's state
+     * @param cell  the cell index in row-major order (0-80)
      */
-    public SudokuCell(int initialValue, int solutionValue, boolean isVisible) {
-        this.initialValue = initialValue;
-        this.solutionValue = solutionValue;
-        this.isVisible = isVisible;
-        this.userValue = 0;  // Default user value is 0 when no input has been provided
+    public SudokuCell(SudokuBoard board, int cell) {
+        this.board = board;
+        this.cell = cell;
     }
 
     // Getters
@@ -37,7 +32,7 @@ public class SudokuCell implements Serializable {
      * @return the value to display in the UI, either the initial or user value
      */
     public int getDisplayValue() {
-        return isVisible ? initialValue : userValue;
+        return board.getDisplayValue(cell);
     }
 
     /**
@@ -46,7 +41,7 @@ public class SudokuCell implements Serializable {
      * @return the value provided by the user
      */
     public int getUserValue() {
-        return userValue;
+        return board.getUserValue(cell);
     }
 
     /**
@@ -55,7 +50,7 @@ public class SudokuCell implements Serializable {
      * @return the solution value of the cell
      */
     public int getSolutionValue() {
-        return solutionValue;
+        return board.getSolutionValue(cell);
     }
 
     /**
@@ -64,7 +59,7 @@ public class SudokuCell implements Serializable {
      * @return the initial value of the cell
      */
     public int getInitialValue() {
-        return initialValue;
+        return board.getInitialValue(cell);
     }
 
     /**
@@ -73,7 +68,7 @@ public class SudokuCell implements Serializable {
      * @return true if the initial value is visible; false otherwise
      */
     public boolean isVisible() {
-        return isVisible;
+        return board.isVisible(cell);
     }
 
     // Setters
@@ -84,7 +79,7 @@ public class SudokuCell implements Serializable {
      * @param value the user-provided value for the cell
      */
     public void setUserValue(int value) {
-        this.userValue = value;
+        board.setUserValue(cell, value);
     }
 
     /**
@@ -93,7 +88,7 @@ public class SudokuCell implements Serializable {
      * @param initialValue the initial value to set
      */
     public void setInitialValue(int initialValue) {
-        this.initialValue = initialValue;
+        board.setInitialValue(cell, initialValue);
     }
 
     /**
@@ -102,7 +97,7 @@ public class SudokuCell implements Serializable {
      * @param solutionValue the correct solution value to set
      */
     public void setSolutionValue(int solutionValue) {
-        this.solutionValue = solutionValue;
+        board.setSolutionValue(cell, solutionValue);
     }
 
     /**
@@ -111,7 +106,7 @@ public class SudokuCell implements Serializable {
      * @param visible true if the initial value should be visible; false otherwise
      */
     public void setVisible(boolean visible) {
-        isVisible = visible;
+        board.setVisible(cell, visible);
     }
 
     // Other methods
@@ -123,6 +118,6 @@ public class SudokuCell implements Serializable {
      * @return true if the user's input (or initial value) matches the solution; false otherwise
      */
     public boolean isCorrect() {
-        return userValue != 0 ? userValue == solutionValue : initialValue == solutionValue;
+        return board.isCorrect(cell);
     }
 }
@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Receives notifications when cells of a {@link SudokuModel} change, so that only the changed
+ * cells need to be redrawn. Listeners are called on the thread that changed the model.
+ */
+@FunctionalInterface
+public interface SudokuChangeListener {
+
+    /**
+     * Called after one or more cells have changed their value, initial value or solution.
+     * The array is reused for the next notification and must not be kept.
+     *
+     * @param cells the indices of the changed cells in row-major order (0-80), in ascending order
+     * @param count the number of valid entries in {@code cells}
+     */
+    void cellsChanged(int[] cells, int count);
+}
@@ -0,0 +1,302 @@
+package model;
+
+/**
+ * One game on a grid of any {@link SudokuShape}: the givens, the solution and the user's values.
+ * Like {@link SudokuBoard} it keeps running counts that make every query constant-time: the
+ * empty cells, the wrong entries, and for every house a count per digit together with an
+ * {@code int} mask of the digits present. Candidates and conflicts are read from those masks,
+ * so a move updates three houses instead of scanning the grid.
+ * <p>
+ * A grid is not thread-safe; the view only changes it on the JavaFX application thread.
+ */
+public final class SudokuGrid {
+
+    private final SudokuShape shape;
+    private final SudokuUtilities.SudokuLevel level;
+    private final byte[] givens;
+    private final byte[] solution;
+    private final byte[] values;       // Displayed values: the givens and the user's entries, 0 if empty
+    private final int[] houseMasks;    // Digits present in each house, bit d-1 for digit d
+    private final byte[] digitCounts;  // Occurrences of each digit in each house
+    private int duplicates;            // Occurrences beyond the first, summed over all houses and digits
+    private int emptyCells;
+    private int wrongEntries;          // User values that differ from the solution
+
+    /**
+     * Starts a game from a puzzle and its solution. The arrays are not copied.
+     *
+     * @param shape    the shape of the grid
+     * @param level    the difficulty level of the puzzle
+     * @param givens   the initial values in row-major order, 0 for an empty cell
+     * @param solution the solution values in row-major order
+     * @throws IllegalArgumentException if the arrays do not match the shape
+     */
+    public SudokuGrid(SudokuShape shape, SudokuUtilities.SudokuLevel level, byte[] givens, byte[] solution) {
+        if (givens.length != shape.getCells()) throw new IllegalArgumentException("givens length " + givens.length);
+        if (solution.length != shape.getCells()) throw new IllegalArgumentException("solution length " + solution.length);
+        this.shape = shape;
+        this.level = level;
+        this.givens = givens;
+        this.solution = solution;
+        this.values = new byte[shape.getCells()];
+        this.houseMasks = new int[shape.getHouseCount()];
+        this.digitCounts = new byte[shape.getHouseCount() * shape.getSize()];
+        emptyCells = shape.getCells();
+        for (int cell = 0; cell < givens.length; cell++) {
+            if (givens[cell] < 0 || givens[cell] > shape.getSize())
+                throw new IllegalArgumentException("value " + givens[cell]);
+            if (givens[cell] != 0) {
+                write(cell, givens[cell]);
+            }
+        }
+    }
+
+    /**
+     * Returns the shape of this grid.
+     *
+     * @return the shape
+     */
+    public SudokuShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns the difficulty level the puzzle was generated for.
+     *
+     * @return the level
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the value displayed in a cell.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the given or user value, 0 for an empty cell
+     */
+    public int getValue(int row, int col) {
+        return values[row * shape.getSize() + col];
+    }
+
+    /**
+     * Returns the solution value of a cell.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the value the cell holds in the solution
+     */
+    public int getSolutionValue(int row, int col) {
+        return solution[row * shape.getSize() + col];
+    }
+
+    /**
+     * Checks if a cell can be edited, that is if it was empty at the start of the game.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return true if the cell is not a given, false otherwise
+     */
+    public boolean isCellEditable(int row, int col) {
+        return givens[row * shape.getSize() + col] == 0;
+    }
+
+    /**
+     * Enters a value in an editable cell. Given cells are left unchanged.
+     *
+     * @param row   the row index of the cell
+     * @param col   the column index of the cell
+     * @param value the value to enter, 0 to empty the cell
+     * @return true if the displayed value changed, false otherwise
+     * @throws IllegalArgumentException if the value is outside the digits of the shape
+     */
+    public boolean setValue(int row, int col, int value) {
+        if (value < 0 || value > shape.getSize()) throw new IllegalArgumentException("value " + value);
+        int cell = row * shape.getSize() + col;
+        if (givens[cell] != 0 || values[cell] == value) {
+            return false;
+        }
+        SudokuMetrics.shared().recordMove();
+        change(cell, value);
+        return true;
+    }
+
+    private void change(int cell, int value) {
+        if (values[cell] != 0) {
+            erase(cell);
+        }
+        if (value != 0) {
+            write(cell, value);
+        }
+    }
+
+    /**
+     * Empties every cell that was empty at the start of the game.
+     */
+    public void clearUserValues() {
+        for (int cell = 0; cell < values.length; cell++) {
+            if (givens[cell] == 0 && values[cell] != 0) {
+                erase(cell);
+            }
+        }
+    }
+
+    /**
+     * Corrects the first wrong entry, or if there is none fills the empty cell with the fewest
+     * candidates with its solution value.
+     *
+     * @return the index of the changed cell in row-major order, or -1 if the grid is solved
+     */
+    public int provideHint() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int size = shape.getSize();
+        for (int cell = 0; cell < values.length; cell++) {
+            if (values[cell] != 0 && values[cell] != solution[cell]) {
+                best = cell;
+                break;
+            }
+            if (values[cell] == 0) {
+                int count = Integer.bitCount(getCandidates(cell / size, cell % size));
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                }
+            }
+        }
+        if (best >= 0) {
+            SudokuMetrics.shared().recordHint();
+            change(best, solution[best]);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the digits that can be placed in a cell without repeating a digit of its houses.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the mask of candidates, bit d-1 for digit d, 0 if the cell displays a value
+     */
+    public int getCandidates(int row, int col) {
+        int cell = row * shape.getSize() + col;
+        if (values[cell] != 0) {
+            return 0;
+        }
+        int size = shape.getSize();
+        return ~(houseMasks[row] | houseMasks[size + col] | houseMasks[2 * size + shape.boxOf[cell]]) & shape.getAllDigits();
+    }
+
+    /**
+     * Checks if displaying a value in a cell would repeat a digit of its row, column or box.
+     * The cell's own current value is not counted.
+     *
+     * @param row   the row index of the cell
+     * @param col   the column index of the cell
+     * @param value the value to test, 1 to the size of the grid
+     * @return true if the value would conflict with another cell, false otherwise
+     */
+    public boolean wouldConflict(int row, int col, int value) {
+        if (value < 1 || value > shape.getSize()) throw new IllegalArgumentException("value " + value);
+        int cell = row * shape.getSize() + col;
+        int own = values[cell] == value ? 1 : 0;
+        return countInHouses(cell, value, own);
+    }
+
+    /**
+     * Checks if the value displayed in a cell is repeated in its row, column or box.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return true if the cell takes part in a conflict, false otherwise
+     */
+    public boolean isConflicting(int row, int col) {
+        int cell = row * shape.getSize() + col;
+        return values[cell] != 0 && countInHouses(cell, values[cell], 1);
+    }
+
+    /**
+     * Checks if any digit is displayed more than once in a row, column or box.
+     *
+     * @return true if the grid breaks the rules, false otherwise
+     */
+    public boolean hasConflicts() {
+        return duplicates != 0;
+    }
+
+    /**
+     * Checks if any value entered by the user differs from the solution.
+     *
+     * @return true if at least one user value is wrong, false otherwise
+     */
+    public boolean hasWrongEntries() {
+        return wrongEntries != 0;
+    }
+
+    /**
+     * Checks if every cell displays a value.
+     *
+     * @return true if no cell is empty, false otherwise
+     */
+    public boolean isFilled() {
+        return emptyCells == 0;
+    }
+
+    /**
+     * Checks if the game is solved: every cell is filled and no entry is wrong.
+     *
+     * @return true if the grid equals its solution, false otherwise
+     */
+    public boolean isSolved() {
+        return emptyCells == 0 && wrongEntries == 0;
+    }
+
+    // True if one of the cell's houses holds the value more than the given number of times
+    private boolean countInHouses(int cell, int value, int allowed) {
+        int size = shape.getSize();
+        return digitCounts[shape.rowOf[cell] * size + value - 1] > allowed
+                || digitCounts[(size + shape.colOf[cell]) * size + value - 1] > allowed
+                || digitCounts[(2 * size + shape.boxOf[cell]) * size + value - 1] > allowed;
+    }
+
+    private void write(int cell, int value) {
+        values[cell] = (byte) value;
+        emptyCells--;
+        if (givens[cell] == 0 && value != solution[cell]) {
+            wrongEntries++;
+        }
+        track(cell, value, 1);
+    }
+
+    private void erase(int cell) {
+        int value = values[cell];
+        values[cell] = 0;
+        emptyCells++;
+        if (givens[cell] == 0 && value != solution[cell]) {
+            wrongEntries--;
+        }
+        track(cell, value, -1);
+    }
+
+    // Adds (delta 1) or removes (delta -1) a value in all three houses of a cell
+    private void track(int cell, int value, int delta) {
+        int size = shape.getSize();
+        count(shape.rowOf[cell], value, delta);
+        count(size + shape.colOf[cell], value, delta);
+        count(2 * size + shape.boxOf[cell], value, delta);
+    }
+
+    private void count(int house, int digit, int delta) {
+        int index = house * shape.getSize() + digit - 1;
+        if (delta > 0 ? digitCounts[index] > 0 : digitCounts[index] > 1) {
+            duplicates += delta;  // The digit was already there, or is still there after the removal
+        }
+        digitCounts[index] += delta;
+        if (digitCounts[index] == 0) {
+            houseMasks[house] &= ~(1 << (digit - 1));
+        } else {
+            houseMasks[house] |= 1 << (digit - 1);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package model;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates random puzzles with a unique solution for grids of any {@link SudokuShape}.
+ * A full grid is built the same way as in {@link SudokuGenerator}, by shuffling digits into the
+ * independent diagonal boxes and solving the rest. Clues are then removed in random order,
+ * skipping every removal that would allow a second solution, until the number of clues for the
+ * level is reached or no clue is left that can be proven removable within a bounded search.
+ * {@link SudokuRater} only knows the 9×9 grid, so the level of a generated
+ * grid is set by its number of clues alone.
+ * <p>
+ * On the large grids the bounded search stops removing clues well before the sparse levels:
+ * 16×16 puzzles end near the HARD density and 25×25 puzzles near the MEDIUM density, whatever
+ * the level asked for, and giving the search ten times more guesses only saves a few clues.
+ * Harder levels are therefore not offered there; see {@link #hardestLevel(SudokuShape)}.
+ * <p>
+ * Instances are not thread-safe; use one generator per thread.
+ */
+public final class SudokuGridGenerator {
+
+    // Guesses allowed to prove that a clue can be removed; a clue that cannot be proven removable in
+    // time is kept, which costs a few extra clues on sparse 16×16 and 25×25 grids but bounds the run time
+    private static final long MAX_GUESSES = 200;
+    // Guesses allowed to complete the shuffled diagonal boxes before another shuffle is tried
+    private static final long MAX_FILL_GUESSES = 10_000;
+
+    private final SudokuShape shape;
+    private final RandomGenerator random;
+    private final SudokuGridSolver solver;
+    private final int[] order;
+
+    /**
+     * Creates a generator for one shape with its own random number source.
+     *
+     * @param shape the shape of the grids to generate
+     */
+    public SudokuGridGenerator(SudokuShape shape) {
+        this(shape, new SplittableRandom());
+    }
+
+    /**
+     * Creates a generator for one shape drawing all random choices from the given source.
+     *
+     * @param shape  the shape of the grids to generate
+     * @param random the random number source to use
+     */
+    public SudokuGridGenerator(SudokuShape shape, RandomGenerator random) {
+        this.shape = shape;
+        this.random = random;
+        this.solver = new SudokuGridSolver(shape);
+        this.order = new int[shape.getCells()];
+    }
+
+    /**
+     * Returns the hardest level this generator reaches on a shape. Puzzles asked for a harder
+     * level are generated and labelled at this level.
+     *
+     * @param shape the shape of the grid
+     * @return EXTREME on 4×4 and 9×9, HARD on 16×16 and MEDIUM on 25×25
+     */
+    public static SudokuUtilities.SudokuLevel hardestLevel(SudokuShape shape) {
+        switch (shape.getBoxSize()) {
+            case 4: return SudokuUtilities.SudokuLevel.HARD;
+            case 5: return SudokuUtilities.SudokuLevel.MEDIUM;
+            default: return SudokuUtilities.SudokuLevel.EXTREME;
+        }
+    }
+
+    /**
+     * Returns the number of clues a generated puzzle of a level keeps. More clues may remain if
+     * none of them can be removed without making the solution ambiguous.
+     *
+     * @param shape the shape of the grid
+     * @param level the difficulty level
+     * @return the target number of given cells
+     */
+    static int targetClues(SudokuShape shape, SudokuUtilities.SudokuLevel level) {
+        int cells = shape.getCells();
+        switch (level) {
+            case EASY: return cells * 50 / 100;
+            case MEDIUM: return cells * 44 / 100;
+            case HARD: return cells * 38 / 100;
+            case EXPERT: return cells * 33 / 100;
+            default: return cells * 28 / 100;
+        }
+    }
+
+    /**
+     * Generates a new game.
+     *
+     * @param level the difficulty level, lowered to the {@link #hardestLevel(SudokuShape) hardest level} of the shape
+     * @return a grid holding the new puzzle and its solution, with no user values
+     */
+    public SudokuGrid generate(SudokuUtilities.SudokuLevel level) {
+        byte[] givens = new byte[shape.getCells()];
+        byte[] solution = new byte[shape.getCells()];
+        generate(level, givens, solution);
+        return new SudokuGrid(shape, reachable(level), givens, solution);
+    }
+
+    /**
+     * Generates a new puzzle together with its solution.
+     *
+     * @param level    the difficulty level, lowered to the {@link #hardestLevel(SudokuShape) hardest level} of the shape
+     * @param puzzle   an array of {@link SudokuShape#getCells()} elements receiving the initial values
+     * @param solution an array of {@link SudokuShape#getCells()} elements receiving the solution
+     */
+    public void generate(SudokuUtilities.SudokuLevel level, byte[] puzzle, byte[] solution) {
+        int cells = shape.getCells();
+        fillRandomGrid(puzzle, solution);
+        System.arraycopy(solution, 0, puzzle, 0, cells);
+
+        for (int cell = 0; cell < cells; cell++) {
+            order[cell] = cell;
+        }
+        shuffle(order, cells);
+
+        int clues = cells;
+        int target = targetClues(shape, reachable(level));
+        for (int i = 0; i < cells && clues > target; i++) {
+            int cell = order[i];
+            byte value = puzzle[cell];
+            puzzle[cell] = 0;
+            if (solver.hasSolutionWithout(puzzle, cell, value, MAX_GUESSES)) {
+                puzzle[cell] = value;  // Removing this clue would make the solution ambiguous
+            } else {
+                clues--;
+            }
+        }
+    }
+
+    private SudokuUtilities.SudokuLevel reachable(SudokuUtilities.SudokuLevel level) {
+        SudokuUtilities.SudokuLevel hardest = hardestLevel(shape);
+        return level.compareTo(hardest) > 0 ? hardest : level;
+    }
+
+    private void fillRandomGrid(byte[] grid, byte[] solution) {
+        do {
+            shuffleDiagonalBoxes(grid);
+        } while (!solver.solve(grid, solution, MAX_FILL_GUESSES));
+    }
+
+    // The diagonal boxes share no row or column; unlike on the 9×9 grid not every shuffle can be
+    // completed on other shapes (on 4×4 about half cannot), and on 25×25 some take very long to
+    // complete, so the caller retries with a new shuffle
+    private void shuffleDiagonalBoxes(byte[] grid) {
+        int size = shape.getSize();
+        int boxSize = shape.getBoxSize();
+        for (int cell = 0; cell < grid.length; cell++) {
+            grid[cell] = 0;
+        }
+        for (int box = 0; box < boxSize; box++) {
+            for (int i = 0; i < size; i++) {
+                order[i] = i + 1;
+            }
+            shuffle(order, size);
+            for (int i = 0; i < size; i++) {
+                int row = box * boxSize + i / boxSize;
+                int col = box * boxSize + i % boxSize;
+                grid[row * size + col] = (byte) order[i];
+            }
+        }
+    }
+
+    private void shuffle(int[] values, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = values[i];
+            values[i] = values[j];
+            values[j] = temp;
+        }
+    }
+}
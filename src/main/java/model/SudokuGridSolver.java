@@ -0,0 +1,269 @@
+package model;
+
+/**
+ * The constraint-propagation search of {@link SudokuSolver} for grids of any {@link SudokuShape}.
+ * Every house keeps an {@code int} mask of the digits placed in it, the solver places naked
+ * and hidden singles until none are left and then branches on the empty cell with the fewest
+ * candidates. Search frames are preallocated for the shape, so solving does not allocate.
+ * <p>
+ * Boards are flat arrays of {@link SudokuShape#getCells()} values in row-major order, where 0
+ * marks an empty cell. Instances are not thread-safe; use one solver per thread.
+ */
+public final class SudokuGridSolver {
+
+    private final SudokuShape shape;
+    private final int cellCount;
+    private final int houseCount;
+    private final int allDigits;
+    private final int[][] cellStack;  // One frame per search depth, as in SudokuSolver
+    private final int[][] usedStack;
+    private final int[] firstSolution;
+    private int solutionCount;
+    private int solutionLimit;
+    private long branchesLeft;  // Guesses the search may still make before it gives up
+
+    /**
+     * Creates a solver for grids of one shape.
+     *
+     * @param shape the shape of the grids to solve
+     */
+    public SudokuGridSolver(SudokuShape shape) {
+        this.shape = shape;
+        this.cellCount = shape.getCells();
+        this.houseCount = shape.getHouseCount();
+        this.allDigits = shape.getAllDigits();
+        this.cellStack = new int[cellCount + 1][cellCount];
+        this.usedStack = new int[cellCount + 1][houseCount];
+        this.firstSolution = new int[cellCount];
+    }
+
+    /**
+     * Returns the shape of the grids this solver works on.
+     *
+     * @return the shape
+     */
+    public SudokuShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Solves the puzzle and writes the first solution found into the given array.
+     *
+     * @param puzzle   the values in row-major order, 0 for an empty cell
+     * @param solution an array of at least {@link SudokuShape#getCells()} elements receiving the solved grid
+     * @return true if the puzzle has at least one solution, false otherwise
+     * @throws IllegalArgumentException if the puzzle does not match the shape
+     */
+    public boolean solve(byte[] puzzle, byte[] solution) {
+        return solve(puzzle, solution, Long.MAX_VALUE);
+    }
+
+    /**
+     * Solves the puzzle like {@link #solve(byte[], byte[])}, but gives up after a number of guesses.
+     *
+     * @param puzzle     the values in row-major order, 0 for an empty cell
+     * @param solution   an array of at least {@link SudokuShape#getCells()} elements receiving the solved grid
+     * @param maxGuesses the number of guesses after which the search gives up
+     * @return true if a solution was found, false if there is none or the search gave up
+     * @throws IllegalArgumentException if the puzzle does not match the shape
+     */
+    public boolean solve(byte[] puzzle, byte[] solution, long maxGuesses) {
+        if (search(puzzle, 1, maxGuesses) == 0) {
+            return false;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            solution[cell] = (byte) firstSolution[cell];
+        }
+        return true;
+    }
+
+    /**
+     * Counts the solutions of a puzzle, stopping as soon as the given limit is reached.
+     *
+     * @param puzzle the values in row-major order, 0 for an empty cell
+     * @param limit  the number of solutions after which the search stops
+     * @return the number of solutions found, never more than the limit
+     * @throws IllegalArgumentException if the puzzle does not match the shape
+     */
+    public int countSolutions(byte[] puzzle, int limit) {
+        return search(puzzle, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Checks whether a puzzle may have a solution in which a cell holds a value other than the given one.
+     * For a puzzle that has a solution with that value, this tells whether the cell can be left
+     * empty without losing uniqueness, and it is cheaper than counting solutions because every
+     * branch that places the excluded value is cut off. On large sparse grids refuting another
+     * solution can take exponential time, so the search gives up after a number of guesses and
+     * then answers true, which keeps a generator that relies on the answer on the safe side.
+     *
+     * @param puzzle     the values in row-major order, 0 for an empty cell; the cell must be empty
+     * @param cell       the cell index in row-major order
+     * @param excluded   the value the cell must not hold
+     * @param maxGuesses the number of guesses after which the search gives up
+     * @return true if another solution exists or the search gave up, false if none exists
+     * @throws IllegalArgumentException if the puzzle does not match the shape
+     */
+    public boolean hasSolutionWithout(byte[] puzzle, int cell, int excluded, long maxGuesses) {
+        if (!load(puzzle)) {
+            return false;
+        }
+        int[] cells = cellStack[0];
+        int[] used = usedStack[0];
+        solutionCount = 0;
+        solutionLimit = 1;
+        branchesLeft = maxGuesses;
+        for (int mask = candidates(used, cell) & ~(1 << (excluded - 1)); mask != 0 && solutionCount == 0; mask &= mask - 1) {
+            int[] nextCells = cellStack[1];
+            int[] nextUsed = usedStack[1];
+            System.arraycopy(cells, 0, nextCells, 0, cellCount);
+            System.arraycopy(used, 0, nextUsed, 0, houseCount);
+            place(nextCells, nextUsed, cell, Integer.numberOfTrailingZeros(mask) + 1);
+            search(1);
+        }
+        return solutionCount > 0 || branchesLeft < 0;
+    }
+
+    private int search(byte[] puzzle, int limit, long maxGuesses) {
+        if (!load(puzzle)) {
+            return 0;  // The givens already contradict each other
+        }
+        solutionCount = 0;
+        solutionLimit = limit;
+        branchesLeft = maxGuesses;
+        search(0);
+        return solutionCount;
+    }
+
+    private boolean load(byte[] puzzle) {
+        if (puzzle.length != cellCount) throw new IllegalArgumentException("puzzle length " + puzzle.length);
+
+        int[] cells = cellStack[0];
+        int[] used = usedStack[0];
+        for (int house = 0; house < houseCount; house++) {
+            used[house] = 0;
+        }
+        boolean valid = true;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int value = puzzle[cell];
+            if (value < 0 || value > shape.getSize()) throw new IllegalArgumentException("value " + value);
+            cells[cell] = 0;
+            if (value != 0 && !place(cells, used, cell, value)) {
+                valid = false;  // Keep validating the remaining values
+            }
+        }
+        return valid;
+    }
+
+    private void search(int depth) {
+        int[] cells = cellStack[depth];
+        int[] used = usedStack[depth];
+        if (!propagate(cells, used)) {
+            return;
+        }
+
+        // Pick the empty cell with the fewest candidates
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cellCount && bestCount > 2; cell++) {
+            if (cells[cell] == 0) {
+                int count = Integer.bitCount(candidates(used, cell));
+                if (count < bestCount) {
+                    bestCount = count;
+                    bestCell = cell;
+                }
+            }
+        }
+
+        if (bestCell < 0) {
+            if (solutionCount == 0) {
+                System.arraycopy(cells, 0, firstSolution, 0, cellCount);
+            }
+            solutionCount++;
+            return;
+        }
+
+        int[] nextCells = cellStack[depth + 1];
+        int[] nextUsed = usedStack[depth + 1];
+        for (int mask = candidates(used, bestCell); mask != 0 && solutionCount < solutionLimit; mask &= mask - 1) {
+            if (--branchesLeft < 0) {
+                return;  // Out of guesses; the caller treats the result as unknown
+            }
+            System.arraycopy(cells, 0, nextCells, 0, cellCount);
+            System.arraycopy(used, 0, nextUsed, 0, houseCount);
+            place(nextCells, nextUsed, bestCell, Integer.numberOfTrailingZeros(mask) + 1);
+            search(depth + 1);
+        }
+    }
+
+    /**
+     * Places naked and hidden singles until none are left.
+     *
+     * @return false if the board turned out to be contradictory
+     */
+    private boolean propagate(int[] cells, int[] used) {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+
+            // Naked singles: cells with exactly one candidate left
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (cells[cell] == 0) {
+                    int mask = candidates(used, cell);
+                    if (mask == 0) {
+                        return false;
+                    }
+                    if ((mask & (mask - 1)) == 0) {
+                        place(cells, used, cell, Integer.numberOfTrailingZeros(mask) + 1);
+                        progress = true;
+                    }
+                }
+            }
+
+            // Hidden singles: digits that fit in exactly one cell of a house
+            for (int house = 0; house < houseCount; house++) {
+                int once = 0;
+                int twice = 0;
+                for (int cell : shape.houses[house]) {
+                    if (cells[cell] == 0) {
+                        int mask = candidates(used, cell);
+                        twice |= once & mask;
+                        once |= mask;
+                    }
+                }
+                if ((once | used[house]) != allDigits) {
+                    return false;  // Some digit has no place left in this house
+                }
+                for (int singles = once & ~twice; singles != 0; singles &= singles - 1) {
+                    int bit = singles & -singles;
+                    for (int cell : shape.houses[house]) {
+                        if (cells[cell] == 0 && (candidates(used, cell) & bit) != 0) {
+                            place(cells, used, cell, Integer.numberOfTrailingZeros(bit) + 1);
+                            progress = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private int candidates(int[] used, int cell) {
+        int size = shape.getSize();
+        return ~(used[shape.rowOf[cell]] | used[size + shape.colOf[cell]] | used[2 * size + shape.boxOf[cell]]) & allDigits;
+    }
+
+    private boolean place(int[] cells, int[] used, int cell, int value) {
+        int bit = 1 << (value - 1);
+        if ((candidates(used, cell) & bit) == 0) {
+            return false;
+        }
+        int size = shape.getSize();
+        cells[cell] = value;
+        used[shape.rowOf[cell]] |= bit;
+        used[size + shape.colOf[cell]] |= bit;
+        used[2 * size + shape.boxOf[cell]] |= bit;
+        return true;
+    }
+}
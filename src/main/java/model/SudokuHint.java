@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * A hint for the next move: a cell, the value that belongs there and why.
+ * The model reuses one instance for all hints, so a hint is only valid until the next one is requested.
+ */
+public final class SudokuHint {
+
+    /**
+     * The reason a hint was given.
+     */
+    public enum Kind {
+        /** The cell holds a wrong value; the hint gives the correct one. */
+        WRONG_ENTRY,
+        /** The value follows logically from the board; {@link #getTechnique()} tells how. */
+        DEDUCED,
+        /** Nothing could be deduced, so the value of a cell is revealed from the solution. */
+        REVEALED
+    }
+
+    private Kind kind;
+    private int cell;
+    private int value;
+    private SudokuRater.Technique technique;
+
+    SudokuHint() {
+    }
+
+    void set(Kind kind, int cell, int value, SudokuRater.Technique technique) {
+        this.kind = kind;
+        this.cell = cell;
+        this.value = value;
+        this.technique = technique;
+    }
+
+    /**
+     * Returns why this hint was given.
+     *
+     * @return the kind of hint
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the row of the hinted cell.
+     *
+     * @return the row index (0-8)
+     */
+    public int getRow() {
+        return cell / 9;
+    }
+
+    /**
+     * Returns the column of the hinted cell.
+     *
+     * @return the column index (0-8)
+     */
+    public int getCol() {
+        return cell % 9;
+    }
+
+    /**
+     * Returns the value that belongs in the hinted cell.
+     *
+     * @return the value (1-9)
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the hardest technique needed to deduce the value.
+     *
+     * @return the technique, or null if the value was not deduced
+     */
+    public SudokuRater.Technique getTechnique() {
+        return technique;
+    }
+
+    @Override
+    public String toString() {
+        String where = "row " + (getRow() + 1) + ", column " + (getCol() + 1);
+        switch (kind) {
+            case WRONG_ENTRY:
+                return "The value in " + where + " is wrong, it should be " + value + ".";
+            case DEDUCED:
+                return "The cell at " + where + " must be " + value + " (" + describe(technique) + ").";
+            default:
+                return "The cell at " + where + " is " + value + ".";
+        }
+    }
+
+    private static String describe(SudokuRater.Technique technique) {
+        switch (technique) {
+            case NAKED_SINGLE:
+                return "it is the only value left for the cell";
+            case HIDDEN_SINGLE:
+                return "it is the only place left for the value in a row, column or box";
+            case POINTING:
+                return "found after removing candidates confined to one row or column of a box";
+            default:
+                return "found after removing candidates confined to one box of a row or column";
+        }
+    }
+}
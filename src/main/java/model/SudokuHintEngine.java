@@ -0,0 +1,172 @@
+package model;
+
+/**
+ * Finds the next move a player can make on a board by logic alone, using the candidates the
+ * board keeps up to date. Wrong entries are pointed out first, because nothing can be deduced
+ * soundly from them. Then naked and hidden singles are looked up directly in the cached
+ * candidates, which takes well under a microsecond. Only if there is none are candidates
+ * confined to an intersection of a box and a line (pointing and box/line reduction) removed
+ * on a scratch copy to expose a single. If that does not help either, the value of the most
+ * constrained empty cell is revealed. Finding a hint does not allocate.
+ * An engine belongs to one model and is not thread-safe.
+ */
+final class SudokuHintEngine {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+    private static final int ALL_DIGITS = SudokuSolver.ALL_DIGITS;
+
+    private final SudokuHint hint = new SudokuHint();
+    private final int[] work = new int[CELLS];  // Scratch candidates for eliminations
+
+    /**
+     * Finds a hint for a board.
+     *
+     * @param board the board to find a hint for
+     * @return the hint, reused by the next call, or null if the board is solved
+     */
+    SudokuHint find(SudokuBoard board) {
+        if (board.hasWrongEntries()) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                int userValue = board.getUserValue(cell);
+                if (userValue != 0 && userValue != board.getSolutionValue(cell)) {
+                    hint.set(SudokuHint.Kind.WRONG_ENTRY, cell, board.getSolutionValue(cell), null);
+                    return hint;
+                }
+            }
+        }
+        if (board.isFilled()) {
+            return null;
+        }
+
+        SudokuCandidates candidates = board.getCandidates();
+        for (int cell = 0; cell < CELLS; cell++) {
+            work[cell] = candidates.isFilled(cell) ? 0 : candidates.getCandidates(cell);
+        }
+        if (findSingle(candidates, null)) {
+            return hint;
+        }
+
+        // Remove locked candidates until a single appears or nothing changes
+        SudokuRater.Technique hardest = null;
+        while (true) {
+            SudokuRater.Technique used = eliminateLockedCandidates(candidates);
+            if (used == null) {
+                break;
+            }
+            if (hardest == null || used.compareTo(hardest) > 0) {
+                hardest = used;
+            }
+            if (findSingle(candidates, hardest)) {
+                return hint;
+            }
+        }
+
+        // Nothing can be deduced with these techniques, reveal the most constrained cell
+        int best = -1;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (!candidates.isFilled(cell) && (best < 0 || Integer.bitCount(work[cell]) < Integer.bitCount(work[best]))) {
+                best = cell;
+            }
+        }
+        hint.set(SudokuHint.Kind.REVEALED, best, board.getSolutionValue(best), null);
+        return hint;
+    }
+
+    // Looks for a naked or hidden single in the scratch candidates; the technique, if given, is reported instead
+    private boolean findSingle(SudokuCandidates candidates, SudokuRater.Technique needed) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int mask = work[cell];
+            if (mask != 0 && (mask & (mask - 1)) == 0) {
+                return deduced(cell, mask, needed != null ? needed : SudokuRater.Technique.NAKED_SINGLE);
+            }
+        }
+        for (int house = 0; house < 27; house++) {
+            int once = 0;
+            int twice = 0;
+            for (int cell : SudokuSolver.HOUSES[house]) {
+                twice |= once & work[cell];
+                once |= work[cell];
+            }
+            int single = once & ~twice & ~candidates.getHouseMask(house) & ALL_DIGITS;
+            if (single != 0) {
+                int bit = Integer.lowestOneBit(single);
+                for (int cell : SudokuSolver.HOUSES[house]) {
+                    if ((work[cell] & bit) != 0) {
+                        return deduced(cell, bit, needed != null ? needed : SudokuRater.Technique.HIDDEN_SINGLE);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean deduced(int cell, int bit, SudokuRater.Technique technique) {
+        hint.set(SudokuHint.Kind.DEDUCED, cell, Integer.numberOfTrailingZeros(bit) + 1, technique);
+        return true;
+    }
+
+    // Removes candidates confined to a box/line intersection; returns the technique used, or null if nothing changed
+    private SudokuRater.Technique eliminateLockedCandidates(SudokuCandidates candidates) {
+        SudokuRater.Technique used = null;
+        for (int box = 18; box < 27; box++) {
+            for (int bit = 1; bit <= ALL_DIGITS; bit <<= 1) {
+                int rows = 0;
+                int cols = 0;
+                for (int cell : SudokuSolver.HOUSES[box]) {
+                    if ((work[cell] & bit) != 0) {
+                        rows |= 1 << SudokuSolver.ROW_OF[cell];
+                        cols |= 1 << SudokuSolver.COL_OF[cell];
+                    }
+                }
+                // Pointing: the digit is confined to one row or column of the box
+                if (Integer.bitCount(rows) == 1 && removeOutside(Integer.numberOfTrailingZeros(rows), box, bit)) {
+                    used = SudokuRater.Technique.POINTING;
+                }
+                if (Integer.bitCount(cols) == 1 && removeOutside(9 + Integer.numberOfTrailingZeros(cols), box, bit)) {
+                    used = SudokuRater.Technique.POINTING;
+                }
+            }
+        }
+        if (used != null) {
+            return used;
+        }
+        for (int line = 0; line < 18; line++) {
+            for (int bit = 1; bit <= ALL_DIGITS; bit <<= 1) {
+                int boxes = 0;
+                for (int cell : SudokuSolver.HOUSES[line]) {
+                    if ((work[cell] & bit) != 0) {
+                        boxes |= 1 << SudokuSolver.BOX_OF[cell];
+                    }
+                }
+                // Box/line reduction: the digit is confined to one box of the row or column
+                if (Integer.bitCount(boxes) == 1
+                        && removeOutside(18 + Integer.numberOfTrailingZeros(boxes), line, bit)) {
+                    used = SudokuRater.Technique.BOX_LINE_REDUCTION;
+                }
+            }
+        }
+        return used;
+    }
+
+    // Removes a candidate from the cells of one house that are not in another; returns true if any was removed
+    private boolean removeOutside(int house, int keep, int bit) {
+        boolean removed = false;
+        for (int cell : SudokuSolver.HOUSES[house]) {
+            if ((work[cell] & bit) != 0 && !inHouse(cell, keep)) {
+                work[cell] &= ~bit;
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean inHouse(int cell, int house) {
+        if (house < 9) {
+            return SudokuSolver.ROW_OF[cell] == house;
+        }
+        if (house < 18) {
+            return SudokuSolver.COL_OF[cell] == house - 9;
+        }
+        return SudokuSolver.BOX_OF[cell] == house - 18;
+    }
+}
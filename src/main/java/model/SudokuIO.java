@@ -1,89 +1,351 @@
 package model;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
 
 /**
- * The SudokuIO class provides utility methods for serializing and deserializing SudokuModel objects to and from files.
- * It includes methods for saving the model data to a file and loading it back from a file.
+ * The SudokuIO class provides utility methods for saving SudokuModel objects to files and loading them back.
+ * Games are stored in a compact, fixed-layout binary format (all multi-byte values big-endian):
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "SDKU"
+ *      4     1  format version (1, or 2 if pencil marks are included)
+ *      5     1  difficulty level (ordinal of SudokuLevel)
+ *      6     1  flags, bit 0 set if the solution is included, bit 1 set if pencil marks are included
+ *      7     1  reserved, 0
+ *      8    41  initial values, two cells per byte, high nibble first, 0 for an empty cell
+ *     49    41  user values, packed the same way
+ *     90    41  solution values, packed the same way (only if flag bit 0 is set)
+ *      -    92  pencil marks, 9 bits per cell in cell order, most significant bit first (only if flag bit 1 is set)
+ *    end     4  CRC-32 of all preceding bytes
+ * </pre>
+ * A saved game with its solution takes 135 bytes, or 227 bytes with pencil marks. Files written by the original Java object
+ * serialization format can still be loaded.
  * This class cannot be instantiated.
  */
 public class SudokuIO {
 
+    static final int MAGIC = 0x53444B55; // "SDKU"
+    static final byte VERSION = 1;
+    static final byte VERSION_MARKS = 2;  // Adds the optional pencil marks
+    static final int FLAG_SOLUTION = 1;
+    static final int FLAG_MARKS = 2;
+
+    static final int HEADER_SIZE = 8;
+    static final int PACKED_BOARD_SIZE = (SudokuBoard.CELLS + 1) / 2;
+    static final int MAX_GAME_SIZE = HEADER_SIZE + 3 * PACKED_BOARD_SIZE + 4;
+    static final int PACKED_MARKS_SIZE = (SudokuBoard.CELLS * 9 + 7) / 8;
+    static final int MAX_GAME_SIZE_WITH_MARKS = MAX_GAME_SIZE + PACKED_MARKS_SIZE;
+
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+    private static final System.Logger LOGGER = System.getLogger(SudokuIO.class.getName());
+
+    /**
+     * Writes a game in the binary format at the buffer's position. The buffer must have at
+     * least {@link #MAX_GAME_SIZE} bytes remaining.
+     *
+     * @param buffer          the buffer to write to
+     * @param model           the game to write
+     * @param includeSolution whether to store the solution, so loading does not have to solve the puzzle
+     */
+    static void writeGame(ByteBuffer buffer, SudokuModel model, boolean includeSolution) {
+        writeGame(buffer, model, includeSolution, false);
+    }
+
+    /**
+     * Writes a game in the binary format at the buffer's position, optionally with the pencil marks.
+     * The buffer must have at least {@link #MAX_GAME_SIZE_WITH_MARKS} bytes remaining if the marks are included.
+     *
+     * @param buffer          the buffer to write to
+     * @param model           the game to write
+     * @param includeSolution whether to store the solution, so loading does not have to solve the puzzle
+     * @param includeMarks    whether to store the pencil marks
+     */
+    static void writeGame(ByteBuffer buffer, SudokuModel model, boolean includeSolution, boolean includeMarks) {
+        SudokuBoard board = model.getBoard();
+        int start = buffer.position();
+        buffer.putInt(MAGIC);
+        buffer.put(includeMarks ? VERSION_MARKS : VERSION);
+        buffer.put((byte) model.getLevel().ordinal());
+        buffer.put((byte) ((includeSolution ? FLAG_SOLUTION : 0) | (includeMarks ? FLAG_MARKS : 0)));
+        buffer.put((byte) 0);
+
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell += 2) {
+            buffer.put(pack(board.isVisible(cell) ? board.getInitialValue(cell) : 0,
+                    cell + 1 < SudokuBoard.CELLS && board.isVisible(cell + 1) ? board.getInitialValue(cell + 1) : 0));
+        }
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell += 2) {
+            buffer.put(pack(board.getUserValue(cell),
+                    cell + 1 < SudokuBoard.CELLS ? board.getUserValue(cell + 1) : 0));
+        }
+        if (includeSolution) {
+            for (int cell = 0; cell < SudokuBoard.CELLS; cell += 2) {
+                buffer.put(pack(board.getSolutionValue(cell),
+                        cell + 1 < SudokuBoard.CELLS ? board.getSolutionValue(cell + 1) : 0));
+            }
+        }
+        if (includeMarks) {
+            // 9 bits per cell do not align to bytes, so shift them through an accumulator
+            long bits = 0;
+            int bitCount = 0;
+            for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+                bits = bits << 9 | board.getPencilMarks(cell);
+                bitCount += 9;
+                while (bitCount >= 8) {
+                    bitCount -= 8;
+                    buffer.put((byte) (bits >>> bitCount));
+                }
+            }
+            if (bitCount > 0) {
+                buffer.put((byte) (bits << (8 - bitCount)));
+            }
+        }
+
+        buffer.putInt((int) crc(buffer, start, buffer.position()));
+    }
+
     /**
-     * Serializes a SudokuModel object to a file.
+     * Reads a game in the binary format from the buffer's position into a model.
+     * If the solution is not stored, it is computed by solving the initial values.
      *
-     * @param file the file where the SudokuModel object will be saved
-     * @param data the SudokuModel object to serialize
-     * @throws IOException if an I/O error occurs while writing to the file
+     * @param buffer the buffer to read from
+     * @param model  the model receiving the game
+     * @throws IOException if the data is not a valid saved game
      */
-    static void serializeToFile(File file, SudokuModel data) throws IOException {
-        ObjectOutputStream oos = null; // Create a reference for ObjectOutputStream
-        try {
-            oos = new ObjectOutputStream(new FileOutputStream(file));
-            oos.writeObject(data);  // Serialize the SudokuModel object
-        } finally {
-            if (oos != null) {
-                oos.close();  // Ensure the stream is closed to avoid resource leaks
+    static void readGame(ByteBuffer buffer, SudokuModel model) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE + 2 * PACKED_BOARD_SIZE + 4 || buffer.getInt() != MAGIC)
+            throw new IOException("not a saved Sudoku game");
+        int version = buffer.get();
+        if (version != VERSION && version != VERSION_MARKS)
+            throw new IOException("unsupported save format version " + version);
+        int level = buffer.get();
+        if (level < 0 || level >= SudokuUtilities.SudokuLevel.values().length)
+            throw new IOException("difficulty level " + level);
+        int flags = buffer.get();
+        boolean hasSolution = (flags & FLAG_SOLUTION) != 0;
+        boolean hasMarks = version == VERSION_MARKS && (flags & FLAG_MARKS) != 0;
+        buffer.get();
+
+        byte[] givens = new byte[SudokuBoard.CELLS];
+        byte[] userValues = new byte[SudokuBoard.CELLS];
+        byte[] solution = new byte[SudokuBoard.CELLS];
+        if (hasSolution && buffer.remaining() < 3 * PACKED_BOARD_SIZE + 4)
+            throw new IOException("truncated saved game");
+        unpack(buffer, givens);
+        unpack(buffer, userValues);
+        if (hasSolution) {
+            unpack(buffer, solution);
+        }
+        short[] pencilMarks = null;
+        if (hasMarks) {
+            if (buffer.remaining() < PACKED_MARKS_SIZE + 4) throw new IOException("truncated saved game");
+            pencilMarks = new short[SudokuBoard.CELLS];
+            long bits = 0;
+            int bitCount = 0;
+            for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+                while (bitCount < 9) {
+                    bits = bits << 8 | (buffer.get() & 0xFF);
+                    bitCount += 8;
+                }
+                bitCount -= 9;
+                pencilMarks[cell] = (short) ((bits >>> bitCount) & SudokuSolver.ALL_DIGITS);
             }
         }
+
+        long expected = crc(buffer, start, buffer.position());
+        if (buffer.getInt() != (int) expected) throw new IOException("saved game is corrupt (checksum mismatch)");
+
+        if (!hasSolution && !new SudokuSolver().solve(givens, solution))
+            throw new IOException("saved game has no solution");
+        model.restoreBoard(new SudokuPuzzle(SudokuUtilities.SudokuLevel.values()[level], givens, solution),
+                userValues, pencilMarks);
     }
 
     /**
-     * Deserializes a SudokuModel object from a file.
+     * Checks whether any cell of a game has pencil marks, which decides whether they are written.
      *
-     * @param file the file from which the SudokuModel object will be loaded
-     * @return the deserialized SudokuModel object
-     * @throws IOException if an I/O error occurs while reading from the file
-     * @throws ClassNotFoundException if the class of the serialized object cannot be found
+     * @param model the game
+     * @return true if at least one cell has a mark, false otherwise
      */
-    @SuppressWarnings("unchecked")
-    static SudokuModel deSerializeFromFile(File file) throws IOException, ClassNotFoundException {
-        ObjectInputStream ois = null; // Create a reference for ObjectInputStream
-        try {
-            ois = new ObjectInputStream(new FileInputStream(file));
-            return (SudokuModel) ois.readObject();  // Deserialize and return the SudokuModel object
-        } finally {
-            if (ois != null) {
-                ois.close();  // Ensure the stream is closed to avoid resource leaks
+    static boolean hasPencilMarks(SudokuModel model) {
+        SudokuBoard board = model.getBoard();
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+            if (board.getPencilMarks(cell) != 0) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
      * Saves the current state of the Sudoku game to a specified file.
      *
      * @param fileName the name of the file to save the game to
-     * @param model    the current Sudoku model to serialize
+     * @param model    the current Sudoku model to save
      * @throws IOException if an I/O error occurs during saving
      */
     public static void saveGameToFile(String fileName, SudokuModel model) throws IOException {
-        File file = new File(fileName);
-        serializeToFile(file, model);  // Serialize the model to the file
-        System.out.println("Game saved successfully to " + file.getAbsolutePath());
+        long startTime = System.nanoTime();
+        Path path = Path.of(fileName);
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_GAME_SIZE_WITH_MARKS);
+        writeGame(buffer, model, true, hasPencilMarks(model));  // Games without marks keep the version 1 layout
+        buffer.flip();
+        int size = buffer.remaining();
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        SudokuMetrics.shared().recordSave(size, System.nanoTime() - startTime);
+        LOGGER.log(System.Logger.Level.DEBUG, "Game saved to {0}", path.toAbsolutePath());  // Counted by SudokuMetrics
     }
 
     /**
      * Loads a previously saved game from a file.
+     * Both the binary format and the original Java object serialization format are accepted.
      *
      * @param filepath the path of the file to load the game from
-     * @throws IOException            if an I/O error occurs during loading
-     * @throws ClassNotFoundException if the class of a serialized object cannot be found
+     * @param model    the model receiving the loaded game
+     * @throws IOException            if an I/O error occurs during loading or the file is not a saved game
+     * @throws ClassNotFoundException if a file in the original format contains an unknown class
      */
     public static void loadGameFromFile(String filepath, SudokuModel model) throws IOException, ClassNotFoundException {
-        File file = new File(filepath);
-        if (file.exists()) {
-            try {
-                SudokuModel loadedModel = SudokuIO.deSerializeFromFile(file);  // Deserialize model
-                model.updateBoardFromFile(loadedModel);  // Update current model's state from loaded model
-            } catch (IOException | ClassNotFoundException ex) {
-                // Handle exception
+        loadGame(readGameFile(filepath), model);
+    }
+
+    /**
+     * Reads a saved game file into memory without changing any model, so that the file can be
+     * read on another thread than the one owning the model. The game is then loaded with
+     * {@link #loadGame(ByteBuffer, SudokuModel)}.
+     *
+     * @param filepath the path of the file to read
+     * @return the content of the file
+     * @throws IOException if an I/O error occurs or the file is too large to be a saved game
+     */
+    public static ByteBuffer readGameFile(String filepath) throws IOException {
+        Path path = Path.of(filepath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 2 || size > MAX_LEGACY_SIZE) throw new IOException("not a saved Sudoku game: " + filepath);
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
             }
-        } else {
+            buffer.flip();
+            return buffer;
+        } catch (NoSuchFileException ex) {
             // Handle case where no saved game is found
-            throw new IOException("No saved game found at " + filepath);
+            throw new IOException("No saved game found at " + filepath, ex);
         }
     }
 
+    /**
+     * Loads a game read by {@link #readGameFile(String)} into a model.
+     * Both the binary format and the original Java object serialization format are accepted.
+     *
+     * @param buffer the content of a saved game file, read from its position
+     * @param model  the model receiving the loaded game
+     * @throws IOException            if the content is not a saved game
+     * @throws ClassNotFoundException if a file in the original format contains an unknown class
+     */
+    public static void loadGame(ByteBuffer buffer, SudokuModel model) throws IOException, ClassNotFoundException {
+        long startTime = System.nanoTime();
+        int size = buffer.remaining();
+        if (size < 2) throw new IOException("not a saved Sudoku game");
+        if (buffer.getShort(buffer.position()) == SERIALIZATION_MAGIC) {
+            importSerializedGame(buffer, model);
+        } else {
+            readGame(buffer, model);
+        }
+        SudokuMetrics.shared().recordLoad(size, System.nanoTime() - startTime);
+    }
+
+    // Files in the original format are a serialized object graph of 162 cells and a few arrays
+    private static final int MAX_LEGACY_SIZE = 64 * 1024;
+
+    /**
+     * Imports a game saved with Java object serialization by the original version of this class.
+     * Only the classes of that format are accepted, so the stream cannot instantiate anything else.
+     */
+    private static void importSerializedGame(ByteBuffer buffer, SudokuModel target) throws IOException, ClassNotFoundException {
+        model.legacy.SudokuModel legacy;
+        try (ObjectInputStream ois = new LegacyObjectInputStream(
+                new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()))) {
+            legacy = (model.legacy.SudokuModel) ois.readObject();
+        } catch (ClassCastException ex) {
+            throw new IOException("not a saved Sudoku game", ex);
+        }
+
+        byte[] givens = new byte[SudokuBoard.CELLS];
+        byte[] solution = new byte[SudokuBoard.CELLS];
+        byte[] userValues = new byte[SudokuBoard.CELLS];
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+            model.legacy.SudokuCell legacyCell = legacy.getCell(cell / 9, cell % 9);
+            givens[cell] = (byte) (legacyCell.isVisible() ? legacyCell.getInitialValue() : 0);
+            solution[cell] = (byte) legacyCell.getSolutionValue();
+            userValues[cell] = (byte) legacyCell.getUserValue();
+        }
+        SudokuUtilities.SudokuLevel level = legacy.getLevel() != null ? legacy.getLevel() : SudokuUtilities.SudokuLevel.EASY;
+        target.restoreBoard(new SudokuPuzzle(level, givens, solution), userValues);
+    }
+
+    /**
+     * Reads the original object serialization format by mapping its model classes onto the
+     * classes in {@code model.legacy}, which have the same field layout.
+     */
+    private static final class LegacyObjectInputStream extends ObjectInputStream {
+
+        LegacyObjectInputStream(InputStream in) throws IOException {
+            super(in);
+            setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+                    "model.legacy.*;model.SudokuUtilities$SudokuLevel;java.lang.Enum;"
+                            + "maxdepth=8;maxarray=81;maxrefs=1024;!*"));
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName()
+                    .replace("model.SudokuModel", "model.legacy.SudokuModel")
+                    .replace("model.SudokuCell", "model.legacy.SudokuCell");
+            if (!name.equals(desc.getName())) {
+                return Class.forName(name, false, SudokuIO.class.getClassLoader());
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    private static byte pack(int high, int low) {
+        return (byte) (high << 4 | low);
+    }
+
+    private static void unpack(ByteBuffer buffer, byte[] values) throws IOException {
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell += 2) {
+            int packed = buffer.get() & 0xFF;
+            int high = packed >>> 4;
+            int low = packed & 0xF;
+            if (high > 9 || low > 9 || (cell + 1 == SudokuBoard.CELLS && low != 0))
+                throw new IOException("cell value out of range");
+            values[cell] = (byte) high;
+            if (cell + 1 < SudokuBoard.CELLS) {
+                values[cell + 1] = (byte) low;
+            }
+        }
+    }
+
+    private static long crc(ByteBuffer buffer, int from, int to) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(from, to - from));
+        return crc.getValue();
+    }
+
     /**
      * Private constructor to prevent instantiation of the SudokuIO class.
      * This class contains only static methods.
@@ -0,0 +1,537 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The move history of one game, used for undo and redo and, when opened on a file, as a
+ * continuous crash-safe autosave.
+ * <p>
+ * Moves are grouped into steps; undo and redo revert or repeat a whole step, such as clearing
+ * the board. A move either changes a cell's user value or adds or removes one pencil mark. A
+ * file-backed journal holds the game as it was when the history started, in the format of
+ * {@link SudokuIO} and with its pencil marks, followed by one 4-byte record per change:
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "SDKJ"
+ *      4     4  format version (2; files of version 1 have no mark records and are still read)
+ *      8     4  length n of the base game
+ *     12     n  base game in the SudokuIO format
+ *   12+n     -  records: type, cell, old value &lt;&lt; 4 | new value or the toggled digit, check byte
+ * </pre>
+ * Records are collected in memory and written and forced to the device in one batch shortly
+ * after the first of them, so a move costs no I/O on the caller's thread and a crash loses at
+ * most the last few milliseconds of play. Opening the file replays the records onto the base
+ * game; a torn last record or an unfinished step is dropped. Once the file holds many more
+ * records than the history needs, such as undone steps that were replaced, it is rewritten
+ * compactly and atomically replaces the old file.
+ * <p>
+ * The journal is thread-safe, but a model must only be changed by one thread at a time.
+ */
+public final class SudokuJournal implements Closeable {
+
+    private static final int MAGIC = 0x53444B4A; // "SDKJ"
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_MARKS = 1;
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final int RECORD_SIZE = 4;
+
+    private static final byte MOVE = 1;      // A cell's user value changed
+    private static final byte END_STEP = 2;  // The moves since the previous step form one step
+    private static final byte UNDO = 3;
+    private static final byte REDO = 4;
+    private static final byte MARK = 5;      // A pencil mark was added or removed
+
+    private static final int MARK_TOGGLE = 0x10;  // Set in the old and new value of a history entry that toggles a mark
+
+    private static final long COMMIT_DELAY_MILLIS = 50;
+    private static final int COMPACT_MIN_RECORDS = 4096;  // Records in the file before compaction is considered
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sudoku-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // History: 3 bytes per move (cell, old value, new value) and the move index ending every step;
+    // a mark toggle is stored as MARK_TOGGLE | digit in both values
+    private byte[] moves = new byte[3 * 64];
+    private int moveCount;
+    private int[] stepEnds = new int[64];
+    private int stepCount;     // Steps in the history, including undone ones
+    private int appliedSteps;  // Steps currently applied to the board
+    private boolean stepOpen;  // Moves have been recorded since the last step ended
+
+    // File state, all null or unused for a journal without a file, which most journals in a server are
+    private final Path path;
+    private final Object fileLock = new Object();  // Held while writing the file, taken before this
+    private FileChannel channel;
+    private byte[] baseGame;     // Set by startGame or replay before the first write
+    private ByteBuffer pending;  // Records not yet written
+    private boolean rewriteNeeded;  // The file must be rewritten, e.g. because a new game started
+    private boolean flushScheduled;
+    private long recordsInFile;
+    private IOException failure;    // First error of a background write, reported by flush and close
+
+    /**
+     * Creates a journal that keeps the history in memory only.
+     */
+    public SudokuJournal() {
+        this(null, null);
+    }
+
+    private SudokuJournal(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        if (path != null) {
+            pending = ByteBuffer.allocate(1024);
+        }
+    }
+
+    /**
+     * Opens a journal file and attaches it to a model. If the file holds a journal, its game
+     * and history are restored into the model; otherwise the model's current game becomes the
+     * start of a new journal in that file.
+     *
+     * @param path  the journal file
+     * @param model the model to restore into and record from
+     * @return the opened journal, already attached to the model
+     * @throws IOException if the file cannot be read or written
+     */
+    public static SudokuJournal open(Path path, SudokuModel model) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SudokuJournal journal = new SudokuJournal(path, channel);
+        try {
+            long size = channel.size();
+            ByteBuffer file = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE - 8));
+            while (file.hasRemaining() && channel.read(file, file.position()) >= 0) {
+                // Keep reading until the whole file is in the buffer
+            }
+            file.flip();
+            if (!journal.replay(file, model)) {
+                journal.startGame(model);  // Not a journal, or its base game is damaged
+            }
+            channel.truncate(file.limit());  // Drop a torn or unfinished tail before appending
+            channel.position(file.limit());
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        model.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Starts a new history with the model's current game as its base.
+     *
+     * @param model the model holding the new game
+     */
+    synchronized void startGame(SudokuModel model) {
+        moveCount = 0;
+        stepCount = 0;
+        appliedSteps = 0;
+        stepOpen = false;
+        if (path != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(SudokuIO.MAX_GAME_SIZE_WITH_MARKS);
+            SudokuIO.writeGame(buffer, model, true, SudokuIO.hasPencilMarks(model));
+            baseGame = Arrays.copyOf(buffer.array(), buffer.position());
+            pending.clear();
+            rewriteNeeded = true;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Records a change of a cell's user value as part of the current step.
+     *
+     * @param cell     the cell index in row-major order (0-80)
+     * @param oldValue the user value before the change
+     * @param newValue the user value after the change
+     */
+    synchronized void recordMove(int cell, int oldValue, int newValue) {
+        addMove(cell, oldValue, newValue);
+        log(MOVE, cell, oldValue << 4 | newValue);
+    }
+
+    /**
+     * Records adding or removing a pencil mark as part of the current step.
+     *
+     * @param cell  the cell index in row-major order (0-80)
+     * @param digit the digit whose mark was toggled (1-9)
+     */
+    synchronized void recordMarkToggle(int cell, int digit) {
+        addMove(cell, MARK_TOGGLE | digit, MARK_TOGGLE | digit);
+        log(MARK, cell, digit);
+    }
+
+    /**
+     * Ends the current step, so that the moves recorded since the previous step are undone together.
+     */
+    synchronized void endStep() {
+        if (finishStep()) {
+            log(END_STEP, 0, 0);
+        }
+    }
+
+    /**
+     * Reverts the last applied step on a board.
+     *
+     * @param board the board to change
+     * @return true if a step was undone, false if there was nothing to undo
+     */
+    synchronized boolean undo(SudokuBoard board) {
+        endStep();
+        if (appliedSteps == 0) {
+            return false;
+        }
+        appliedSteps--;
+        for (int move = stepEnds[appliedSteps] - 1; move >= stepStart(appliedSteps); move--) {
+            applyMove(board, move, moves[3 * move + 1]);
+        }
+        log(UNDO, 0, 0);
+        return true;
+    }
+
+    /**
+     * Repeats the first undone step on a board.
+     *
+     * @param board the board to change
+     * @return true if a step was redone, false if there was nothing to redo
+     */
+    synchronized boolean redo(SudokuBoard board) {
+        endStep();
+        if (appliedSteps == stepCount) {
+            return false;
+        }
+        applyStep(board, appliedSteps);
+        appliedSteps++;
+        log(REDO, 0, 0);
+        return true;
+    }
+
+    /**
+     * Checks whether there is a step to undo.
+     *
+     * @return true if undo would change the board, false otherwise
+     */
+    public synchronized boolean canUndo() {
+        return appliedSteps > 0 || stepOpen;
+    }
+
+    /**
+     * Checks whether there is an undone step to redo.
+     *
+     * @return true if redo would change the board, false otherwise
+     */
+    public synchronized boolean canRedo() {
+        return !stepOpen && appliedSteps < stepCount;
+    }
+
+    /**
+     * Returns roughly how many bytes of the heap the history and its buffers take.
+     *
+     * @return the approximate size in bytes
+     */
+    synchronized long approximateSize() {
+        long size = moves.length + 4L * stepEnds.length;
+        if (path != null) {
+            size += (baseGame != null ? baseGame.length : 0) + pending.capacity();
+        }
+        return size;
+    }
+
+    /**
+     * Writes all recorded changes to the file and forces them to the storage device.
+     * Does nothing for a journal without a file.
+     *
+     * @throws IOException if writing fails, now or in an earlier background write
+     */
+    public void flush() throws IOException {
+        synchronized (fileLock) {
+            write();
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Writes all recorded changes and closes the file. The history stays usable in memory.
+     *
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (fileLock) {
+            try {
+                flush();
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    // Reads a journal file into this journal and the model; returns false if the file holds no valid journal
+    private boolean replay(ByteBuffer file, SudokuModel model) {
+        if (file.remaining() < FILE_HEADER_SIZE || file.getInt() != MAGIC) {
+            return false;
+        }
+        int version = file.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_MARKS) {
+            return false;
+        }
+        int baseLength = file.getInt();
+        if (baseLength < 0 || baseLength > SudokuIO.MAX_GAME_SIZE_WITH_MARKS || baseLength > file.remaining()) {
+            return false;
+        }
+        byte[] base = new byte[baseLength];
+        file.get(base);
+        model.setJournal(null);  // Restoring the base game must not start a history in the model's old journal
+        try {
+            SudokuIO.readGame(ByteBuffer.wrap(base), model);
+        } catch (IOException ex) {
+            return false;
+        }
+        baseGame = base;
+
+        int recordsStart = file.position();
+        int stepEndInFile = recordsStart;  // File position after the last complete step, undo or redo
+        while (file.remaining() >= RECORD_SIZE) {
+            byte type = file.get();
+            byte cell = file.get();
+            byte values = file.get();
+            if (file.get() != check(type, cell, values) || !replayRecord(type, cell, values)) {
+                break;  // Torn or damaged record: the journal ends before it
+            }
+            if (type == END_STEP || type == UNDO || type == REDO) {
+                stepEndInFile = file.position();  // Moves and marks belong to the step they end
+            }
+        }
+        if (stepOpen) {
+            // The last step was not finished before the crash, drop its moves
+            moveCount = stepStart(stepCount);
+            stepOpen = false;
+        }
+        recordsInFile = (stepEndInFile - recordsStart) / RECORD_SIZE;
+        file.limit(stepEndInFile);  // Appending continues after the last complete step
+        for (int step = 0; step < appliedSteps; step++) {
+            applyStep(model.getBoard(), step);
+        }
+        return true;
+    }
+
+    private boolean replayRecord(byte type, int cell, int values) {
+        switch (type) {
+            case MOVE:
+                int oldValue = (values >> 4) & 0xF;
+                int newValue = values & 0xF;
+                if (cell < 0 || cell >= SudokuBoard.CELLS || oldValue > 9 || newValue > 9) {
+                    return false;
+                }
+                addMove(cell, oldValue, newValue);
+                return true;
+            case MARK:
+                if (cell < 0 || cell >= SudokuBoard.CELLS || values < 1 || values > 9) {
+                    return false;
+                }
+                addMove(cell, MARK_TOGGLE | values, MARK_TOGGLE | values);
+                return true;
+            case END_STEP:
+                finishStep();
+                return true;
+            case UNDO:
+                if (stepOpen || appliedSteps == 0) {
+                    return false;
+                }
+                appliedSteps--;
+                return true;
+            case REDO:
+                if (stepOpen || appliedSteps == stepCount) {
+                    return false;
+                }
+                appliedSteps++;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void addMove(int cell, int oldValue, int newValue) {
+        if (!stepOpen) {
+            // A new step replaces the steps that were undone
+            stepCount = appliedSteps;
+            moveCount = stepStart(appliedSteps);
+            stepOpen = true;
+        }
+        if (3 * moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+        moves[3 * moveCount] = (byte) cell;
+        moves[3 * moveCount + 1] = (byte) oldValue;
+        moves[3 * moveCount + 2] = (byte) newValue;
+        moveCount++;
+    }
+
+    // Closes the open step; returns false if no moves were recorded since the last step
+    private boolean finishStep() {
+        if (!stepOpen) {
+            return false;
+        }
+        if (stepCount == stepEnds.length) {
+            stepEnds = Arrays.copyOf(stepEnds, 2 * stepEnds.length);
+        }
+        stepEnds[stepCount++] = moveCount;
+        appliedSteps = stepCount;
+        stepOpen = false;
+        return true;
+    }
+
+    private void applyStep(SudokuBoard board, int step) {
+        for (int move = stepStart(step); move < stepEnds[step]; move++) {
+            applyMove(board, move, moves[3 * move + 2]);
+        }
+    }
+
+    // Sets a cell to the old or new value of a move; toggling a mark is its own inverse
+    private void applyMove(SudokuBoard board, int move, int value) {
+        int cell = moves[3 * move];
+        if ((value & MARK_TOGGLE) != 0) {
+            board.setPencilMarks(cell, board.getPencilMarks(cell) ^ (1 << ((value & 0xF) - 1)));
+        } else {
+            board.setUserValue(cell, value);
+        }
+    }
+
+    private int stepStart(int step) {
+        return step == 0 ? 0 : stepEnds[step - 1];
+    }
+
+    // Queues a record for the next batched write
+    private void log(byte type, int cell, int values) {
+        if (path == null) {
+            return;
+        }
+        if (pending.remaining() < RECORD_SIZE) {
+            pending = ByteBuffer.allocate(2 * pending.capacity()).put(pending.flip());
+        }
+        pending.put(type).put((byte) cell).put((byte) values).put(check(type, (byte) cell, (byte) values));
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::backgroundFlush, COMMIT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void backgroundFlush() {
+        synchronized (fileLock) {
+            write();
+        }
+    }
+
+    // Writes the pending records, or the whole file if it must be rewritten; called with fileLock held
+    private void write() {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer records;
+        byte[] snapshot = null;
+        synchronized (this) {
+            flushScheduled = false;
+            long liveRecords = moveCount + stepCount + (stepCount - appliedSteps);
+            if (!rewriteNeeded && recordsInFile >= COMPACT_MIN_RECORDS && recordsInFile > 2 * liveRecords) {
+                rewriteNeeded = true;  // Most of the file is history that is no longer needed
+            }
+            if (rewriteNeeded) {
+                snapshot = snapshot();
+                recordsInFile = (snapshot.length - FILE_HEADER_SIZE - baseGame.length) / RECORD_SIZE;
+                rewriteNeeded = false;
+                records = null;
+            } else {
+                records = ByteBuffer.wrap(Arrays.copyOf(pending.array(), pending.position()));
+                recordsInFile += records.remaining() / RECORD_SIZE;
+            }
+            pending.clear();
+        }
+        try {
+            if (snapshot != null) {
+                replaceFile(snapshot);
+            } else if (records.hasRemaining()) {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+        }
+    }
+
+    // The complete file for the current history: base game, every step, the moves of the open step,
+    // then one undo per undone step
+    private byte[] snapshot() {
+        int records = moveCount + stepCount + (stepCount - appliedSteps);
+        ByteBuffer file = ByteBuffer.allocate(FILE_HEADER_SIZE + baseGame.length + records * RECORD_SIZE);
+        file.putInt(MAGIC).putInt(VERSION).putInt(baseGame.length).put(baseGame);
+        int move = 0;
+        for (int step = 0; step <= stepCount; step++) {
+            int end = step < stepCount ? stepEnds[step] : moveCount;
+            for (; move < end; move++) {
+                byte cell = moves[3 * move];
+                byte type = (moves[3 * move + 1] & MARK_TOGGLE) != 0 ? MARK : MOVE;
+                byte values = type == MARK
+                        ? (byte) (moves[3 * move + 1] & 0xF)
+                        : (byte) (moves[3 * move + 1] << 4 | moves[3 * move + 2]);
+                file.put(type).put(cell).put(values).put(check(type, cell, values));
+            }
+            if (step < stepCount) {
+                file.put(END_STEP).put((byte) 0).put((byte) 0).put(check(END_STEP, (byte) 0, (byte) 0));
+            }
+        }
+        for (int step = appliedSteps; step < stepCount; step++) {
+            file.put(UNDO).put((byte) 0).put((byte) 0).put(check(UNDO, (byte) 0, (byte) 0));
+        }
+        return file.array();
+    }
+
+    // Writes the new file beside the old one and moves it into place, so a crash leaves one of them intact
+    private void replaceFile(byte[] content) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    // Detects records that were only partly written before a crash
+    private static byte check(byte type, byte cell, byte values) {
+        return (byte) ((type * 0x9D + cell * 0x3B + values * 0x17) ^ 0xA5);
+    }
+}
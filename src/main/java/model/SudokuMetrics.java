@@ -0,0 +1,400 @@
+package model;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers for the hot paths of the game engine: puzzle generation per level, moves,
+ * hints, checks of the board, and saving and loading games. Counters are {@link LongAdder}s
+ * and timers add a {@link LatencyHistogram}, so recording is lock-free and cheap enough for
+ * every move; reading a value sums the cells and is meant for monitoring, not for game logic.
+ * <p>
+ * The {@link #shared() shared} instance is registered with the platform MBean server as
+ * {@value #OBJECT_NAME}, see {@link SudokuMetricsMXBean}, and
+ * {@link #startReporting(long, TimeUnit)} writes a summary to the {@link System.Logger}
+ * of this class at a fixed rate.
+ */
+public final class SudokuMetrics implements SudokuMetricsMXBean {
+
+    public static final String OBJECT_NAME = "model:type=SudokuMetrics";
+
+    private static final System.Logger LOGGER = System.getLogger(SudokuMetrics.class.getName());
+    private static volatile SudokuMetrics shared;
+
+    private final Map<SudokuUtilities.SudokuLevel, Timer> generation = new EnumMap<>(SudokuUtilities.SudokuLevel.class);
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder hints = new LongAdder();
+    private final LongAdder solvedChecks = new LongAdder();
+    private final LongAdder incorrectChecks = new LongAdder();
+    private final Timer validation = new Timer();
+    private final Timer saves = new Timer();
+    private final Timer loads = new Timer();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder loadedBytes = new LongAdder();
+    private final long start = System.nanoTime();
+    private ScheduledExecutorService reporter;  // Guarded by this
+
+    // Move rate over the last reporting period, sampled by the reporter
+    private long sampledMoves;
+    private long sampledAt = start;
+    private volatile double movesPerSecond = Double.NaN;
+
+    /**
+     * Creates an empty set of metrics that is not registered anywhere, for tests and tools that
+     * want to measure in isolation. The game records into {@link #shared()}.
+     */
+    public SudokuMetrics() {
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            generation.put(level, new Timer());
+        }
+    }
+
+    /**
+     * Returns the metrics the game records into, creating them and registering them with the
+     * platform MBean server on first use.
+     *
+     * @return the shared metrics
+     */
+    public static SudokuMetrics shared() {
+        SudokuMetrics metrics = shared;
+        if (metrics == null) {
+            synchronized (SudokuMetrics.class) {
+                metrics = shared;
+                if (metrics == null) {
+                    metrics = new SudokuMetrics();
+                    metrics.register();
+                    shared = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    // Monitoring must never keep the game from running, so a failed registration is only logged
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not register " + OBJECT_NAME, ex);
+        }
+    }
+
+    /**
+     * Starts logging a summary of all metrics at a fixed rate on a daemon thread. Does nothing
+     * if reporting was already started.
+     *
+     * @param period the time between two summaries
+     * @param unit   the unit of the period
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public synchronized void startReporting(long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("period " + period);
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * Stops the summaries started by {@link #startReporting(long, TimeUnit)}.
+     */
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        long total = moves.sum();
+        movesPerSecond = (total - sampledMoves) * 1e9 / Math.max(now - sampledAt, 1);
+        sampledMoves = total;
+        sampledAt = now;
+        LOGGER.log(System.Logger.Level.INFO, this);
+    }
+
+    /**
+     * Records the time taken to generate one puzzle.
+     *
+     * @param level the difficulty level of the puzzle
+     * @param nanos the time taken in nanoseconds
+     */
+    public void recordGeneration(SudokuUtilities.SudokuLevel level, long nanos) {
+        generation.get(level).record(nanos);
+    }
+
+    /**
+     * Records one value entered or cleared by the player.
+     */
+    public void recordMove() {
+        moves.increment();
+    }
+
+    /**
+     * Records one hint given to the player.
+     */
+    public void recordHint() {
+        hints.increment();
+    }
+
+    /**
+     * Records one check of the board against the solution.
+     *
+     * @param nanos the time taken in nanoseconds
+     */
+    public void recordValidation(long nanos) {
+        validation.record(nanos);
+    }
+
+    /**
+     * Records whether a check of the finished board found it solved.
+     *
+     * @param solved true if the board was solved, false if it was incorrect
+     */
+    public void recordCompletionCheck(boolean solved) {
+        (solved ? solvedChecks : incorrectChecks).increment();
+    }
+
+    /**
+     * Records one saved game.
+     *
+     * @param bytes the size of the saved game
+     * @param nanos the time taken in nanoseconds
+     */
+    public void recordSave(long bytes, long nanos) {
+        saves.record(nanos);
+        savedBytes.add(bytes);
+    }
+
+    /**
+     * Records one loaded game.
+     *
+     * @param bytes the size of the loaded file
+     * @param nanos the time taken in nanoseconds
+     */
+    public void recordLoad(long bytes, long nanos) {
+        loads.record(nanos);
+        loadedBytes.add(bytes);
+    }
+
+    /**
+     * Returns the timer of puzzle generation for one level.
+     *
+     * @param level the difficulty level
+     * @return the timer
+     */
+    public Timer getGenerationTimer(SudokuUtilities.SudokuLevel level) {
+        return generation.get(level);
+    }
+
+    /**
+     * Returns the timer of checks of the board against the solution.
+     *
+     * @return the timer
+     */
+    public Timer getValidationTimer() {
+        return validation;
+    }
+
+    /**
+     * Returns the timer of saved games.
+     *
+     * @return the timer
+     */
+    public Timer getSaveTimer() {
+        return saves;
+    }
+
+    /**
+     * Returns the timer of loaded games.
+     *
+     * @return the timer
+     */
+    public Timer getLoadTimer() {
+        return loads;
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public double getMovesPerSecond() {
+        double rate = movesPerSecond;
+        if (Double.isNaN(rate)) {
+            return moves.sum() * 1e9 / Math.max(System.nanoTime() - start, 1);  // Not reporting: average since start
+        }
+        return rate;
+    }
+
+    @Override
+    public long getHints() {
+        return hints.sum();
+    }
+
+    @Override
+    public long getSolvedChecks() {
+        return solvedChecks.sum();
+    }
+
+    @Override
+    public long getIncorrectChecks() {
+        return incorrectChecks.sum();
+    }
+
+    @Override
+    public long getValidations() {
+        return validation.getCount();
+    }
+
+    @Override
+    public long getValidationP99Micros() {
+        return validation.percentile(99) / 1000;
+    }
+
+    @Override
+    public long getSaves() {
+        return saves.getCount();
+    }
+
+    @Override
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public long getSaveP99Micros() {
+        return saves.percentile(99) / 1000;
+    }
+
+    @Override
+    public long getLoads() {
+        return loads.getCount();
+    }
+
+    @Override
+    public long getLoadedBytes() {
+        return loadedBytes.sum();
+    }
+
+    @Override
+    public long getLoadP99Micros() {
+        return loads.percentile(99) / 1000;
+    }
+
+    @Override
+    public Map<String, Long> getGenerations() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        generation.forEach((level, timer) -> counts.put(level.name(), timer.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getGenerationP50Micros() {
+        return generationPercentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getGenerationP99Micros() {
+        return generationPercentiles(99);
+    }
+
+    private Map<String, Long> generationPercentiles(double percentile) {
+        Map<String, Long> micros = new LinkedHashMap<>();
+        generation.forEach((level, timer) -> micros.put(level.name(), timer.percentile(percentile) / 1000));
+        return micros;
+    }
+
+    /**
+     * Returns a one-line summary of all metrics, as written by the periodic report.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("moves %d (%.2f/s), hints %d, checks %d solved/%d incorrect, validation %s",
+                getMoves(), getMovesPerSecond(), getHints(), getSolvedChecks(), getIncorrectChecks(), validation));
+        text.append(", generation");
+        generation.forEach((level, timer) -> {
+            if (timer.getCount() > 0) {
+                text.append(' ').append(level).append(' ').append(timer);
+            }
+        });
+        text.append(String.format(", save %s %d B, load %s %d B", saves, getSavedBytes(), loads, getLoadedBytes()));
+        return text.toString();
+    }
+
+    /**
+     * Counts events and keeps a histogram of their durations. Recording is lock-free and safe from any thread.
+     */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        /**
+         * Records one event.
+         *
+         * @param nanos its duration in nanoseconds
+         */
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            histogram.record(nanos);
+        }
+
+        /**
+         * Returns the number of recorded events.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of all recorded durations.
+         *
+         * @return the total in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Returns an upper bound for a percentile of the recorded durations, see {@link LatencyHistogram#percentile(double)}.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the duration in nanoseconds, or 0 if nothing was recorded
+         */
+        public long percentile(double percentile) {
+            return histogram.percentile(percentile);
+        }
+
+        @Override
+        public String toString() {
+            long events = getCount();
+            if (events == 0) {
+                return "0x";
+            }
+            return String.format("%dx mean %.1f us p50 %.1f us p99 %.1f us", events,
+                    getTotalNanos() / 1000.0 / events, percentile(50) / 1000.0, percentile(99) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SudokuMetrics}, as shown by JConsole and other JMX clients
+ * under {@value SudokuMetrics#OBJECT_NAME}. Counts are totals since the metrics were created;
+ * durations are upper bounds in microseconds with the error of {@link LatencyHistogram}.
+ */
+public interface SudokuMetricsMXBean {
+
+    /**
+     * Returns the number of values entered or cleared by the player.
+     *
+     * @return the number of moves
+     */
+    long getMoves();
+
+    /**
+     * Returns the move rate over the last reporting period, or since the start if no report was made yet.
+     *
+     * @return moves per second
+     */
+    double getMovesPerSecond();
+
+    /**
+     * Returns the number of hints given.
+     *
+     * @return the number of hints
+     */
+    long getHints();
+
+    /**
+     * Returns the number of completion checks that found the board solved.
+     *
+     * @return the number of checks
+     */
+    long getSolvedChecks();
+
+    /**
+     * Returns the number of completion checks that found the board incorrect.
+     *
+     * @return the number of checks
+     */
+    long getIncorrectChecks();
+
+    /**
+     * Returns the number of checks of the board against the solution.
+     *
+     * @return the number of checks
+     */
+    long getValidations();
+
+    /**
+     * Returns the 99th percentile of the time taken by a check of the board.
+     *
+     * @return the duration in microseconds
+     */
+    long getValidationP99Micros();
+
+    /**
+     * Returns the number of saved games.
+     *
+     * @return the number of saves
+     */
+    long getSaves();
+
+    /**
+     * Returns the number of bytes written by all saves.
+     *
+     * @return the number of bytes
+     */
+    long getSavedBytes();
+
+    /**
+     * Returns the 99th percentile of the time taken to save a game.
+     *
+     * @return the duration in microseconds
+     */
+    long getSaveP99Micros();
+
+    /**
+     * Returns the number of loaded games.
+     *
+     * @return the number of loads
+     */
+    long getLoads();
+
+    /**
+     * Returns the number of bytes read by all loads.
+     *
+     * @return the number of bytes
+     */
+    long getLoadedBytes();
+
+    /**
+     * Returns the 99th percentile of the time taken to load a game.
+     *
+     * @return the duration in microseconds
+     */
+    long getLoadP99Micros();
+
+    /**
+     * Returns the number of generated puzzles per difficulty level.
+     *
+     * @return the counts keyed by level name
+     */
+    Map<String, Long> getGenerations();
+
+    /**
+     * Returns the median time taken to generate a puzzle per difficulty level.
+     *
+     * @return the durations in microseconds keyed by level name
+     */
+    Map<String, Long> getGenerationP50Micros();
+
+    /**
+     * Returns the 99th percentile of the time taken to generate a puzzle per difficulty level.
+     *
+     * @return the durations in microseconds keyed by level name
+     */
+    Map<String, Long> getGenerationP99Micros();
+}
@@ -1,82 +1,247 @@
 package model;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 /**
  * The SudokuModel class represents the logic for a Sudoku game, managing the board state,
  * handling game initialization, difficulty levels, and providing hints and validation.
  * This class is responsible for saving, loading, and updating the game state, as well as providing game rules.
+ * Registered {@link SudokuChangeListener}s are told which cells changed after every update.
+ * Every move is recorded in a {@link SudokuJournal}, which provides undo and redo and, when
+ * opened on a file, a continuous autosave.
+ * A model is not thread-safe; {@link SudokuSessionStore} serializes access when many games are played at once.
  */
 public class SudokuModel implements Serializable {
 
-    private SudokuCell[][] board;  // 9x9 grid of SudokuCells
-    public SudokuCell[][] copiedBoard;
-    private boolean[][] initialEmptyCells;  // Tracks which cells were empty at the start of the game
-    public SudokuUtilities.SudokuLevel currentLevel;  // Current difficulty level
-    private int[][][] matrix;  // Internal matrix representation of the board
+    private static final int GRID_SIZE = SudokuUtilities.GRID_SIZE;  // The model plays the classic grid; see SudokuGrid for other sizes
+    private static final long BASE_SIZE = 1920;        // Measured heap footprint of a model without its journal
+    private static final long HINT_ENGINE_SIZE = 400;  // Measured heap footprint of a hint engine
+
+    private final SudokuBoard board;  // Initial, solution and user values of all 81 cells
+    private SudokuUtilities.SudokuLevel currentLevel;  // Current difficulty level
+    private transient SudokuPuzzlePool puzzlePool;  // Source of new games, not part of the saved state
+    private transient List<SudokuChangeListener> listeners;  // Created when the first listener is added
+    private transient int[] changedCells;                    // Reused buffer for change notifications
+    private transient SudokuJournal journal;                 // Move history, null while none is attached
+    private transient SudokuHintEngine hintEngine;           // Created with the first hint
 
     /**
      * Default constructor initializes the Sudoku board and sets the difficulty level to EASY.
+     * New games are taken from the shared puzzle pool.
      */
     public SudokuModel() {
-        board = new SudokuCell[9][9];
-        copiedBoard = new SudokuCell[9][9];
-        initialEmptyCells = new boolean[9][9]; // True if the cell was empty at the start
-        currentLevel = SudokuUtilities.SudokuLevel.EASY; // Default difficulty level
-        matrix = null;
+        this(SudokuPuzzlePool.shared());
+    }
+
+    /**
+     * Constructs a model that takes its games from the given puzzle pool,
+     * initializes the Sudoku board and sets the difficulty level to EASY.
+     *
+     * @param puzzlePool the pool of pre-generated puzzles to take new games from
+     */
+    public SudokuModel(SudokuPuzzlePool puzzlePool) {
+        this(puzzlePool, SudokuUtilities.SudokuLevel.EASY); // Default difficulty level
+    }
+
+    /**
+     * Constructs a model that takes its games from the given puzzle pool
+     * and initializes the board with a game of the given level.
+     *
+     * @param puzzlePool the pool of pre-generated puzzles to take new games from
+     * @param level      the difficulty level of the first game
+     */
+    public SudokuModel(SudokuPuzzlePool puzzlePool, SudokuUtilities.SudokuLevel level) {
+        this.puzzlePool = puzzlePool;
+        journal = new SudokuJournal();  // Undo and redo in memory until a journal file is attached
+        board = new SudokuBoard();
+        currentLevel = level;
         initializeBoard(currentLevel);
     }
 
+    /**
+     * Constructs a model holding a game in the binary format of {@link SudokuIO}, without
+     * taking a puzzle from the pool. Used to bring back games that were moved out of memory.
+     *
+     * @param puzzlePool the pool of pre-generated puzzles to take new games from
+     * @param savedGame  the saved game, read from its position
+     * @throws IOException if the data is not a valid saved game
+     */
+    SudokuModel(SudokuPuzzlePool puzzlePool, ByteBuffer savedGame) throws IOException {
+        this.puzzlePool = puzzlePool;
+        journal = new SudokuJournal();
+        board = new SudokuBoard();
+        SudokuIO.readGame(savedGame, this);
+    }
+
     /**
      * Initializes the Sudoku board based on the provided difficulty level.
+     * The puzzle is taken from the pre-generated pool, so this does not wait for generation.
      *
-     * @param level the difficulty level for the game (EASY, MEDIUM, or HARD)
+     * @param level the difficulty level for the game (EASY, MEDIUM, HARD, EXPERT or EXTREME)
      */
     public void initializeBoard(SudokuUtilities.SudokuLevel level) {
-        switch (level) {
-            case EASY:
-                matrix = SudokuUtilities.generateSudokuMatrix(SudokuUtilities.SudokuLevel.EASY);
-                currentLevel = SudokuUtilities.SudokuLevel.EASY;
-                break;
-            case MEDIUM:
-                matrix = SudokuUtilities.generateSudokuMatrix(SudokuUtilities.SudokuLevel.MEDIUM);
-                currentLevel = SudokuUtilities.SudokuLevel.MEDIUM;
-                break;
-            case HARD:
-                matrix = SudokuUtilities.generateSudokuMatrix(SudokuUtilities.SudokuLevel.HARD);
-                currentLevel = SudokuUtilities.SudokuLevel.HARD;
-                break;
-        }
-
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                int initialValue = matrix[row][col][0];
-                int solutionValue = matrix[row][col][1];
-                boolean isVisible = initialValue != 0;  // If the initial value is zero, the cell is hidden
-
-                board[row][col] = new SudokuCell(initialValue, solutionValue, isVisible);
-                copiedBoard[row][col] = new SudokuCell(initialValue, solutionValue, isVisible);
-
-                // Track which cells were empty at the start (where initialValue is 0)
-                initialEmptyCells[row][col] = (initialValue == 0);
-            }
+        initializeBoard(takePuzzle(level));
+    }
+
+    /**
+     * Takes a new puzzle from the pre-generated pool without changing the game.
+     * Unlike the other methods this may be called from any thread, so that the thread owning the
+     * model does not wait if the pool has run dry; the puzzle is then shown with
+     * {@link #initializeBoard(SudokuPuzzle)}.
+     *
+     * @param level the difficulty level for the game (EASY, MEDIUM, HARD, EXPERT or EXTREME)
+     * @return a puzzle rated at the level
+     */
+    public SudokuPuzzle takePuzzle(SudokuUtilities.SudokuLevel level) {
+        // Deserialized models have no pool
+        return (puzzlePool != null ? puzzlePool : SudokuPuzzlePool.shared()).take(level);
+    }
+
+    /**
+     * Initializes the Sudoku board with a puzzle taken by {@link #takePuzzle}.
+     *
+     * @param puzzle the puzzle for the new game
+     */
+    public void initializeBoard(SudokuPuzzle puzzle) {
+        board.load(puzzle);
+        currentLevel = puzzle.getLevel();  // The level the puzzle was rated at
+        startJournal();
+        fireCellsChanged();
+    }
+
+    /**
+     * Returns the difficulty level of the current game.
+     *
+     * @return the difficulty level
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return currentLevel;
+    }
+
+    /**
+     * Registers a listener that is notified whenever cells of the board change.
+     *
+     * @param listener the listener to add
+     */
+    public void addChangeListener(SudokuChangeListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
         }
+        listeners.add(listener);
     }
 
-    private void copyBoard() {
+    /**
+     * Removes a listener added with {@link #addChangeListener}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(SudokuChangeListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
 
-        // Iterera genom varje rad och kolumn i den befintliga board
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                // Skapa en ny SudokuCell baserat på den befintliga
-                copiedBoard[row][col] = new SudokuCell(board[row][col].getInitialValue(),board[row][col].getSolutionValue(),board[row][col].isVisible());
-            }
+    /**
+     * Attaches the journal that records the moves of this model, replacing the current one.
+     * A journal file is attached with {@link SudokuJournal#open}, which also restores the game it holds.
+     *
+     * @param journal the journal to record moves in, or null to stop recording
+     */
+    public void setJournal(SudokuJournal journal) {
+        this.journal = journal;
+        fireCellsChanged();
+    }
+
+    /**
+     * Reverts the last move, or all cells changed by the last clear.
+     *
+     * @return true if something was undone, false if there is nothing to undo
+     */
+    public boolean undo() {
+        if (journal == null || !journal.undo(board)) {
+            return false;
         }
+        fireCellsChanged();
+        return true;
     }
 
+    /**
+     * Repeats the last undone move.
+     *
+     * @return true if something was redone, false if there is nothing to redo
+     */
+    public boolean redo() {
+        if (journal == null || !journal.redo(board)) {
+            return false;
+        }
+        fireCellsChanged();
+        return true;
+    }
+
+    /**
+     * Returns a view of a single cell. The view reads and writes the model's board directly.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return a SudokuCell backed by this model's board
+     */
+    public SudokuCell getCell(int row, int col) {
+        return new SudokuCell(board, row * GRID_SIZE + col);
+    }
+
+    /**
+     * Returns the board holding the state of the current game.
+     *
+     * @return this model's board
+     */
+    SudokuBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns roughly how many bytes of the heap this model takes, including its move history.
+     *
+     * @return the approximate size in bytes
+     */
+    long approximateSize() {
+        long size = hintEngine != null ? BASE_SIZE + HINT_ENGINE_SIZE : BASE_SIZE;
+        return journal != null ? size + journal.approximateSize() : size;
+    }
+
+    /**
+     * Replaces the current game with a saved one.
+     *
+     * @param puzzle     the saved puzzle, including its level
+     * @param userValues the 81 saved user values, 0 for an empty cell
+     */
+    void restoreBoard(SudokuPuzzle puzzle, byte[] userValues) {
+        restoreBoard(puzzle, userValues, null);
+    }
+
+    /**
+     * Replaces the current game with a saved one, including the user's pencil marks.
+     *
+     * @param puzzle      the saved puzzle, including its level
+     * @param userValues  the 81 saved user values, 0 for an empty cell
+     * @param pencilMarks the 81 saved pencil mark masks, or null if none were saved
+     */
+    void restoreBoard(SudokuPuzzle puzzle, byte[] userValues, short[] pencilMarks) {
+        board.load(puzzle);
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+            if (userValues[cell] != 0) {
+                board.setUserValue(cell, userValues[cell]);
+            }
+            if (pencilMarks != null) {
+                board.setPencilMarks(cell, pencilMarks[cell]);
+            }
+        }
+        currentLevel = puzzle.getLevel();
+        startJournal();
+        fireCellsChanged();
+    }
 
     /**
      * Checks if a cell can be edited by the user (if it was empty at the start of the game).
@@ -86,7 +251,102 @@ public class SudokuModel implements Serializable {
      * @return true if the cell was empty at the start, false otherwise
      */
     public boolean isCellEditable(int row, int col) {
-        return initialEmptyCells[row][col];
+        return board.getInitialValue(row * GRID_SIZE + col) == 0;
+    }
+
+    /**
+     * Returns the value displayed in a cell: its initial value if that is shown, otherwise the user's value.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the displayed value, 0 for an empty cell
+     */
+    public int getDisplayValue(int row, int col) {
+        return board.getDisplayValue(row * GRID_SIZE + col);
+    }
+
+    /**
+     * Returns the candidates of a cell: the digits not displayed anywhere in its row, column or box.
+     * The candidates are kept up to date with every move, so this does not scan the board.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the mask of candidates, bit d-1 for digit d, 0 if the cell displays a value
+     */
+    public int getCandidates(int row, int col) {
+        return board.getCandidateMask(row * GRID_SIZE + col);
+    }
+
+    /**
+     * Returns the digits displayed in a row, column or box.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @return the mask of digits displayed in the house, bit d-1 for digit d
+     */
+    public int getHouseDigits(int house) {
+        return board.getHouseDigits(house);
+    }
+
+    /**
+     * Returns the digits the user has noted as possible in a cell.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the mask of noted digits, bit d-1 for digit d
+     */
+    public int getPencilMarks(int row, int col) {
+        return board.getPencilMarks(row * GRID_SIZE + col);
+    }
+
+    /**
+     * Adds a digit to the pencil marks of a cell, or removes it if it is already noted.
+     * Cells given at the start of the game cannot be marked. The change is a step of its own for undo.
+     *
+     * @param row   the row index of the cell
+     * @param col   the column index of the cell
+     * @param digit the digit to toggle (1-9)
+     */
+    public void togglePencilMark(int row, int col, int digit) {
+        if (digit < 1 || digit > GRID_SIZE || !isCellEditable(row, col)) {
+            return;  // Do nothing if the digit is out of range or the cell is given
+        }
+        int cell = row * GRID_SIZE + col;
+        setPencilMarks(cell, board.getPencilMarks(cell) ^ (1 << (digit - 1)));
+        endJournalStep();
+        fireCellsChanged();
+    }
+
+    /**
+     * Checks if placing a value in a cell would repeat it in the cell's row, column or box.
+     * The check uses per-house digit counts, so it takes constant time and needs no solution.
+     *
+     * @param row   the row index of the cell
+     * @param col   the column index of the cell
+     * @param value the value to test (1-9)
+     * @return true if the value is already displayed in another cell of the row, column or box
+     */
+    public boolean wouldConflict(int row, int col, int value) {
+        return board.wouldConflict(row * GRID_SIZE + col, value);
+    }
+
+    /**
+     * Checks if the value displayed in a cell is repeated in its row, column or box.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return true if the cell takes part in a conflict, false otherwise
+     */
+    public boolean isConflicting(int row, int col) {
+        return board.isConflicting(row * GRID_SIZE + col);
+    }
+
+    /**
+     * Checks if any value is repeated in a row, column or box, without consulting the solution.
+     *
+     * @return true if the board breaks the rules, false otherwise
+     */
+    public boolean hasConflicts() {
+        return board.hasConflicts();
     }
 
     /**
@@ -95,16 +355,10 @@ public class SudokuModel implements Serializable {
      * @return true if all filled numbers are correct, false otherwise
      */
     public boolean checkFilledNumbers() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                if (board[row][col].getUserValue() != 0) {
-                    if (!board[row][col].isCorrect()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true; // All filled numbers are correct
+        long start = System.nanoTime();
+        boolean correct = !board.hasWrongEntries(); // All filled numbers are correct unless one is counted as wrong
+        SudokuMetrics.shared().recordValidation(System.nanoTime() - start);
+        return correct;
     }
 
     /**
@@ -113,28 +367,25 @@ public class SudokuModel implements Serializable {
      * @param otherModel the SudokuModel to update from
      */
     public void updateBoardFromFile(SudokuModel otherModel) {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                this.board[row][col].setInitialValue(otherModel.board[row][col].getInitialValue());
-                this.board[row][col].setSolutionValue(otherModel.board[row][col].getSolutionValue());
-                this.board[row][col].setVisible(otherModel.board[row][col].isVisible());
-                this.board[row][col].setUserValue(otherModel.board[row][col].getUserValue());  // Copy user value
-            }
-        }
+        this.board.copyFrom(otherModel.board);  // Copy initial, solution and user values
         this.currentLevel = otherModel.currentLevel;  // Update the difficulty level
+        startJournal();
+        fireCellsChanged();
     }
 
     /**
-     * Clears all cells that were empty at the start of the game by setting their values to zero.
+     * Clears all cells that were empty at the start of the game by setting their values to zero
+     * and removing their pencil marks.
      */
     public void clearAllEmptyCells() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                if (initialEmptyCells[row][col]) {
-                    board[row][col].setUserValue(0);  // Set the cell's value to zero
-                }
+        for (int cell = 0; cell < SudokuBoard.CELLS; cell++) {
+            if (board.getInitialValue(cell) == 0) {
+                setUserValue(cell, 0);  // Set the cell's value to zero
+                setPencilMarks(cell, 0);
             }
         }
+        endJournalStep();  // Undo restores all cleared cells at once
+        fireCellsChanged();
     }
 
     /**
@@ -143,10 +394,10 @@ public class SudokuModel implements Serializable {
      * @return a 2D array representing the current display values of the board
      */
     public int[][] getBoardState() {
-        int[][] state = new int[9][9];
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                state[row][col] = board[row][col].getDisplayValue();
+        int[][] state = new int[GRID_SIZE][GRID_SIZE];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                state[row][col] = board.getDisplayValue(row * GRID_SIZE + col);
             }
         }
         return state;
@@ -160,15 +411,19 @@ public class SudokuModel implements Serializable {
      * @param value the value to set in the cell (should be between 1 and 9)
      */
     public void updateCell(int row, int col, int value) {
-        if (value == 0) {
-            board[row][col].setUserValue(0);
+        if (value >= 0 && value <= GRID_SIZE) {
+            SudokuMetrics.shared().recordMove();
         }
-        if (value < 1 || value > 9) {
-            return;  // Do nothing if the value is out of range
-        }
-        board[row][col].setUserValue(value);  // Set the user's value
+        changeCell(row, col, value);
+    }
 
-        copyBoard();
+    // Shared by moves and hints, which are counted separately
+    private void changeCell(int row, int col, int value) {
+        if (value >= 0 && value <= GRID_SIZE) {
+            setUserValue(row * GRID_SIZE + col, value);  // Set the user's value, 0 clears it; out-of-range values are ignored
+        }
+        endJournalStep();
+        fireCellsChanged();
     }
 
     /**
@@ -187,33 +442,36 @@ public class SudokuModel implements Serializable {
      * @return a string explaining the rules of Sudoku
      */
     public String getGameRules() {
-        return "The goal is to fill the 9x9 grid so that every row, column, and 3x3 box contains the numbers 1-9 without repetition.";
+        return "The goal is to fill the 9x9 grid so that every row, column, and 3x3 box contains the numbers 1-9 without repetition. "
+                + "On the 4x4, 16x16 and 25x25 boards every row, column and box holds each digit once, with the letters A-P standing for 10-25.";
     }
 
     /**
-     * Provides a hint by filling in a random empty cell with its solution value.
+     * Finds the next move without making it: a wrong entry to correct, a value that can be
+     * deduced logically together with the technique that proves it, or, if nothing can be
+     * deduced, the value of a cell revealed from the solution.
+     *
+     * @return the hint, valid until the next hint is requested, or null if the board is solved
      */
-    public void provideHint() {
-        Random random = new Random();
-        List<int[]> emptyCells = new ArrayList<>();
-
-        // Collect all empty cells
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                if (board[row][col].getDisplayValue() == 0) {
-                    emptyCells.add(new int[]{row, col});
-                }
-            }
+    public SudokuHint getHint() {
+        if (hintEngine == null) {
+            hintEngine = new SudokuHintEngine();
         }
+        return hintEngine.find(board);
+    }
 
-        if (!emptyCells.isEmpty()) {
-            // Select a random empty cell and fill it with the solution value
-            int[] cell = emptyCells.get(random.nextInt(emptyCells.size()));
-            int row = cell[0];
-            int col = cell[1];
-            int solutionValue = board[row][col].getSolutionValue();
-            updateCell(row, col, solutionValue);  // Fill the cell with the solution value
+    /**
+     * Provides a hint by making the next move found by {@link #getHint()}.
+     *
+     * @return the hint that was applied, valid until the next hint is requested, or null if the board is solved
+     */
+    public SudokuHint provideHint() {
+        SudokuHint hint = getHint();
+        if (hint != null) {
+            SudokuMetrics.shared().recordHint();
+            changeCell(hint.getRow(), hint.getCol(), hint.getValue());  // Fill the cell with the hinted value
         }
+        return hint;
     }
 
     /**
@@ -222,14 +480,17 @@ public class SudokuModel implements Serializable {
      * @return true if the board is completely filled, false otherwise
      */
     public boolean isBoardFilled() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                if (board[row][col].getDisplayValue() == 0) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.isFilled();
+    }
+
+    /**
+     * Returns the number of filled cells in a row, column or box.
+     *
+     * @param house the house index: rows 0-8, columns 9-17 and boxes 18-26
+     * @return the number of cells in the house that display a value
+     */
+    public int getFilledCount(int house) {
+        return board.getFilledCount(house);
     }
 
     /**
@@ -238,15 +499,65 @@ public class SudokuModel implements Serializable {
      * @return true if the board is fully solved, false otherwise
      */
     public boolean isDone() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                if (!board[row][col].isCorrect()) {
-                    System.out.println("Incorrect");
-                    return false;
-                }
+        SudokuMetrics metrics = SudokuMetrics.shared();
+        long start = System.nanoTime();
+        boolean solved = board.isSolved();
+        metrics.recordValidation(System.nanoTime() - start);
+        metrics.recordCompletionCheck(solved);
+        return solved;
+    }
+
+    // Changes a user value and records the change in the journal
+    private void setUserValue(int cell, int value) {
+        int oldValue = board.getUserValue(cell);
+        if (oldValue == value) {
+            return;
+        }
+        board.setUserValue(cell, value);
+        if (journal != null) {
+            journal.recordMove(cell, oldValue, value);
+        }
+    }
+
+    // Changes the pencil marks of a cell and records every added or removed digit in the journal
+    private void setPencilMarks(int cell, int marks) {
+        int toggled = board.getPencilMarks(cell) ^ marks;
+        if (toggled == 0) {
+            return;
+        }
+        board.setPencilMarks(cell, marks);
+        if (journal != null) {
+            for (int bits = toggled; bits != 0; bits &= bits - 1) {
+                journal.recordMarkToggle(cell, Integer.numberOfTrailingZeros(bits) + 1);
+            }
+        }
+    }
+
+    private void endJournalStep() {
+        if (journal != null) {
+            journal.endStep();
+        }
+    }
+
+    private void startJournal() {
+        if (journal != null) {
+            journal.startGame(this);
+        }
+    }
+
+    // Tells the listeners about the cells changed since the last notification
+    private void fireCellsChanged() {
+        if (!board.hasChanges()) {
+            return;
+        }
+        if (changedCells == null) {
+            changedCells = new int[SudokuBoard.CELLS];
+        }
+        int count = board.drainChanges(changedCells);
+        if (listeners != null) {
+            for (SudokuChangeListener listener : listeners) {
+                listener.cellsChanged(changedCells, count);
             }
         }
-        System.out.println("Solved");
-        return true;
     }
 }
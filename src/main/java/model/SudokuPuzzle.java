@@ -0,0 +1,86 @@
+package model;
+
+/**
+ * A generated Sudoku puzzle together with its solution and difficulty level.
+ * The initial values and the solution are flat arrays of 81 values in row-major order,
+ * where 0 marks an empty cell in the initial values.
+ */
+public final class SudokuPuzzle {
+
+    private final SudokuUtilities.SudokuLevel level;
+    private final byte[] givens;
+    private final byte[] solution;
+
+    /**
+     * Constructs a puzzle from its initial values and solution. The arrays are not copied.
+     *
+     * @param level    the difficulty level of the puzzle
+     * @param givens   the 81 initial values, 0 for an empty cell
+     * @param solution the 81 solution values
+     */
+    public SudokuPuzzle(SudokuUtilities.SudokuLevel level, byte[] givens, byte[] solution) {
+        this.level = level;
+        this.givens = givens;
+        this.solution = solution;
+    }
+
+    /**
+     * Generates a new puzzle for the given level. The puzzle carries the level it was rated at,
+     * which is often not the requested one, see {@link SudokuGenerator}.
+     *
+     * @param generator the generator to use
+     * @param level     the difficulty level
+     * @return the generated puzzle
+     */
+    public static SudokuPuzzle generate(SudokuGenerator generator, SudokuUtilities.SudokuLevel level) {
+        byte[] givens = new byte[SudokuSolver.CELLS];
+        byte[] solution = new byte[SudokuSolver.CELLS];
+        long start = System.nanoTime();
+        SudokuUtilities.SudokuLevel rated = generator.generate(level, givens, solution);
+        SudokuMetrics.shared().recordGeneration(level, System.nanoTime() - start);
+        return new SudokuPuzzle(rated, givens, solution);
+    }
+
+    /**
+     * Retrieves the difficulty level of the puzzle.
+     *
+     * @return the difficulty level
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Retrieves the initial value of a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the initial value, or 0 if the cell starts empty
+     */
+    public int getGiven(int cell) {
+        return givens[cell];
+    }
+
+    /**
+     * Retrieves the solution value of a cell.
+     *
+     * @param cell the cell index in row-major order (0-80)
+     * @return the solution value
+     */
+    public int getSolution(int cell) {
+        return solution[cell];
+    }
+
+    /**
+     * Converts the puzzle into the matrix format used by {@link SudokuUtilities}.
+     *
+     * @return a [row][col][2] matrix holding the initial values and the solution
+     */
+    public int[][][] toMatrix() {
+        int[][][] matrix = new int[SudokuUtilities.GRID_SIZE][SudokuUtilities.GRID_SIZE][2];
+        for (int cell = 0; cell < SudokuSolver.CELLS; cell++) {
+            matrix[cell / 9][cell % 9][0] = givens[cell];
+            matrix[cell / 9][cell % 9][1] = solution[cell];
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,154 @@
+package model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pool of pre-generated puzzles for every difficulty level, kept filled by background threads.
+ * Whenever the number of ready puzzles of a level drops below the low watermark, a worker
+ * generates new puzzles until the high watermark is reached again, so taking a puzzle is a
+ * constant-time queue operation. If a pool runs dry anyway, the puzzle is generated on the
+ * calling thread instead of waiting for a worker. Every generated puzzle is kept under the level
+ * it was rated at, so generating for one level also fills the others; see {@link SudokuGenerator}
+ * for how often each level comes up.
+ */
+public final class SudokuPuzzlePool {
+
+    public static final int DEFAULT_LOW_WATERMARK = 4;
+    public static final int DEFAULT_HIGH_WATERMARK = 16;
+
+    private static volatile SudokuPuzzlePool shared;
+
+    private final int lowWatermark;
+    private final Map<SudokuUtilities.SudokuLevel, BlockingQueue<SudokuPuzzle>> pools =
+            new EnumMap<>(SudokuUtilities.SudokuLevel.class);
+    private final Map<SudokuUtilities.SudokuLevel, AtomicBoolean> refilling =
+            new EnumMap<>(SudokuUtilities.SudokuLevel.class);
+    private final ThreadLocal<SudokuGenerator> generators = ThreadLocal.withInitial(SudokuGenerator::new);
+    private final ExecutorService workers;
+
+    /**
+     * Constructs a pool and starts filling it in the background.
+     *
+     * @param lowWatermark  the number of ready puzzles per level below which refilling starts
+     * @param highWatermark the number of ready puzzles per level that refilling stops at
+     * @param workerCount   the number of background threads generating puzzles
+     * @throws IllegalArgumentException if the watermarks or the worker count are out of range
+     */
+    public SudokuPuzzlePool(int lowWatermark, int highWatermark, int workerCount) {
+        if (lowWatermark < 0 || highWatermark < 1 || lowWatermark >= highWatermark)
+            throw new IllegalArgumentException("watermarks " + lowWatermark + "/" + highWatermark);
+        if (workerCount < 1) throw new IllegalArgumentException("worker count " + workerCount);
+
+        this.lowWatermark = lowWatermark;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-puzzle-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            pools.put(level, new ArrayBlockingQueue<>(highWatermark));
+            refilling.put(level, new AtomicBoolean());
+        }
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            scheduleRefill(level);
+        }
+    }
+
+    /**
+     * Returns the pool shared by all models that were not given a pool of their own,
+     * creating it with the default watermarks and one worker on first use.
+     *
+     * @return the shared pool
+     */
+    public static SudokuPuzzlePool shared() {
+        SudokuPuzzlePool pool = shared;
+        if (pool == null) {
+            synchronized (SudokuPuzzlePool.class) {
+                pool = shared;
+                if (pool == null) {
+                    pool = new SudokuPuzzlePool(DEFAULT_LOW_WATERMARK, DEFAULT_HIGH_WATERMARK, 1);
+                    shared = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Takes a ready puzzle of the given level from the pool.
+     *
+     * @param level the difficulty level
+     * @return a puzzle rated at the level that no other caller has received
+     */
+    public SudokuPuzzle take(SudokuUtilities.SudokuLevel level) {
+        BlockingQueue<SudokuPuzzle> pool = pools.get(level);
+        SudokuPuzzle puzzle = pool.poll();
+        if (pool.size() < lowWatermark) {
+            scheduleRefill(level);
+        }
+        // The pool ran dry, don't wait for a worker
+        SudokuGenerator generator = generators.get();
+        while (puzzle == null) {
+            puzzle = SudokuPuzzle.generate(generator, level);
+            if (puzzle.getLevel() != level) {
+                offer(puzzle);
+                puzzle = pool.poll();  // A worker may have filled the level meanwhile
+            }
+        }
+        return puzzle;
+    }
+
+    /**
+     * Returns the number of ready puzzles of the given level.
+     *
+     * @param level the difficulty level
+     * @return the number of puzzles that can be taken without generating
+     */
+    public int available(SudokuUtilities.SudokuLevel level) {
+        return pools.get(level).size();
+    }
+
+    /**
+     * Stops the background workers. Puzzles that are already in the pool can still be taken.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Keeps a puzzle under the level it was rated at, or drops it if that level is full
+    private void offer(SudokuPuzzle puzzle) {
+        pools.get(puzzle.getLevel()).offer(puzzle);
+    }
+
+    private void scheduleRefill(SudokuUtilities.SudokuLevel level) {
+        AtomicBoolean flag = refilling.get(level);
+        if (workers.isShutdown() || !flag.compareAndSet(false, true)) {
+            return; // A refill of this level is already under way
+        }
+        try {
+            workers.execute(() -> refill(level, flag));
+        } catch (RejectedExecutionException ex) {
+            flag.set(false); // The pool was shut down in the meantime
+        }
+    }
+
+    private void refill(SudokuUtilities.SudokuLevel level, AtomicBoolean flag) {
+        try {
+            BlockingQueue<SudokuPuzzle> pool = pools.get(level);
+            SudokuGenerator generator = generators.get();
+            while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                offer(SudokuPuzzle.generate(generator, level));
+            }
+        } finally {
+            flag.set(false);
+        }
+    }
+}
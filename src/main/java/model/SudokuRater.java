@@ -0,0 +1,368 @@
+package model;
+
+/**
+ * Rates the difficulty of a puzzle by solving it the way a person would.
+ * The rater keeps a candidate bitmask for every cell and repeatedly applies the cheapest
+ * technique that makes progress, restarting from the cheapest one after every step. The
+ * rating is the hardest technique that was needed, together with how often each technique
+ * was used. Puzzles these techniques cannot finish are rated {@link SudokuUtilities.SudokuLevel#EXTREME}.
+ * <p>
+ * All state is preallocated. Instances are not thread-safe; use one rater per thread.
+ */
+public final class SudokuRater {
+
+    /**
+     * Solving techniques in increasing order of cost, each with the level it makes a puzzle.
+     */
+    public enum Technique {
+        NAKED_SINGLE(SudokuUtilities.SudokuLevel.EASY),
+        HIDDEN_SINGLE(SudokuUtilities.SudokuLevel.EASY),
+        POINTING(SudokuUtilities.SudokuLevel.MEDIUM),
+        BOX_LINE_REDUCTION(SudokuUtilities.SudokuLevel.MEDIUM),
+        NAKED_PAIR(SudokuUtilities.SudokuLevel.HARD),
+        HIDDEN_PAIR(SudokuUtilities.SudokuLevel.HARD),
+        NAKED_TRIPLE(SudokuUtilities.SudokuLevel.HARD),
+        HIDDEN_TRIPLE(SudokuUtilities.SudokuLevel.HARD),
+        X_WING(SudokuUtilities.SudokuLevel.EXPERT),
+        SWORDFISH(SudokuUtilities.SudokuLevel.EXPERT);
+
+        private final SudokuUtilities.SudokuLevel level;
+
+        Technique(SudokuUtilities.SudokuLevel level) {
+            this.level = level;
+        }
+
+        /**
+         * Returns the difficulty level of a puzzle whose hardest required technique is this one.
+         *
+         * @return the difficulty level
+         */
+        public SudokuUtilities.SudokuLevel getLevel() {
+            return level;
+        }
+    }
+
+    private static final int CELLS = SudokuSolver.CELLS;
+    private static final int ALL_DIGITS = SudokuSolver.ALL_DIGITS;
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final int[] values = new int[CELLS];
+    private final int[] candidates = new int[CELLS];  // Bit d-1 set if digit d is still possible
+    private final int[] steps = new int[TECHNIQUES.length];
+    private final int[] positions = new int[9];       // Scratch: per digit, the house positions it can take
+    private int emptyCells;
+    private boolean contradiction;
+
+    /**
+     * Rates a puzzle.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @return the rating of the puzzle
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public SudokuRating rate(byte[] puzzle) {
+        if (puzzle.length != CELLS) throw new IllegalArgumentException("puzzle length " + puzzle.length);
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            values[cell] = 0;
+            candidates[cell] = ALL_DIGITS;
+        }
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = 0;
+        }
+        emptyCells = CELLS;
+        contradiction = false;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int value = puzzle[cell];
+            if (value < 0 || value > 9) throw new IllegalArgumentException("value " + value);
+            if (value != 0) {
+                place(cell, value);
+            }
+        }
+
+        Technique hardest = null;
+        while (emptyCells > 0 && !contradiction) {
+            Technique used = step();
+            if (used == null) {
+                break; // Stuck: the puzzle needs something beyond the known techniques
+            }
+            steps[used.ordinal()]++;
+            if (hardest == null || used.compareTo(hardest) > 0) {
+                hardest = used;
+            }
+        }
+        boolean solved = emptyCells == 0 && !contradiction;
+        return new SudokuRating(solved, hardest, steps.clone());
+    }
+
+    /**
+     * Applies the cheapest technique that makes progress once.
+     *
+     * @return the technique that was applied, or null if none applies
+     */
+    private Technique step() {
+        if (nakedSingle()) return Technique.NAKED_SINGLE;
+        if (hiddenSingle()) return Technique.HIDDEN_SINGLE;
+        if (pointing()) return Technique.POINTING;
+        if (boxLineReduction()) return Technique.BOX_LINE_REDUCTION;
+        if (nakedSubset(2)) return Technique.NAKED_PAIR;
+        if (hiddenSubset(2)) return Technique.HIDDEN_PAIR;
+        if (nakedSubset(3)) return Technique.NAKED_TRIPLE;
+        if (hiddenSubset(3)) return Technique.HIDDEN_TRIPLE;
+        if (fish(2)) return Technique.X_WING;
+        if (fish(3)) return Technique.SWORDFISH;
+        return null;
+    }
+
+    private boolean nakedSingle() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int mask = candidates[cell];
+            if (values[cell] == 0 && mask != 0 && (mask & (mask - 1)) == 0) {
+                place(cell, Integer.numberOfTrailingZeros(mask) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSingle() {
+        for (int[] house : SudokuSolver.HOUSES) {
+            int once = 0;
+            int twice = 0;
+            for (int cell : house) {
+                twice |= once & candidates[cell];
+                once |= candidates[cell];
+            }
+            int singles = once & ~twice;
+            if (singles != 0) {
+                int bit = singles & -singles;
+                for (int cell : house) {
+                    if ((candidates[cell] & bit) != 0) {
+                        place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one row or column inside a box can be removed from the rest of that line
+    private boolean pointing() {
+        for (int box = 0; box < 9; box++) {
+            int[] boxCells = SudokuSolver.HOUSES[18 + box];
+            for (int bit = 1; bit < ALL_DIGITS; bit <<= 1) {
+                int rows = 0;
+                int cols = 0;
+                for (int cell : boxCells) {
+                    if ((candidates[cell] & bit) != 0) {
+                        rows |= 1 << SudokuSolver.ROW_OF[cell];
+                        cols |= 1 << SudokuSolver.COL_OF[cell];
+                    }
+                }
+                if (Integer.bitCount(rows) == 1
+                        && eliminateOutsideBox(SudokuSolver.HOUSES[Integer.numberOfTrailingZeros(rows)], box, bit)) {
+                    return true;
+                }
+                if (Integer.bitCount(cols) == 1
+                        && eliminateOutsideBox(SudokuSolver.HOUSES[9 + Integer.numberOfTrailingZeros(cols)], box, bit)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one box inside a row or column can be removed from the rest of that box
+    private boolean boxLineReduction() {
+        for (int line = 0; line < 18; line++) {
+            int[] lineCells = SudokuSolver.HOUSES[line];
+            for (int bit = 1; bit < ALL_DIGITS; bit <<= 1) {
+                int boxes = 0;
+                for (int cell : lineCells) {
+                    if ((candidates[cell] & bit) != 0) {
+                        boxes |= 1 << SudokuSolver.BOX_OF[cell];
+                    }
+                }
+                if (Integer.bitCount(boxes) == 1) {
+                    boolean progress = false;
+                    for (int cell : SudokuSolver.HOUSES[18 + Integer.numberOfTrailingZeros(boxes)]) {
+                        boolean onLine = line < 9 ? SudokuSolver.ROW_OF[cell] == line : SudokuSolver.COL_OF[cell] == line - 9;
+                        if (!onLine) {
+                            progress |= eliminate(cell, bit);
+                        }
+                    }
+                    if (progress) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // n cells of a house whose candidates together are n digits: those digits leave the other cells
+    private boolean nakedSubset(int size) {
+        for (int[] house : SudokuSolver.HOUSES) {
+            if (nakedSubset(house, size, 0, 0, 0, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nakedSubset(int[] house, int size, int start, int chosen, int cellSet, int union) {
+        if (chosen == size) {
+            if (Integer.bitCount(union) != size) {
+                return false;
+            }
+            boolean progress = false;
+            for (int i = 0; i < 9; i++) {
+                if ((cellSet & (1 << i)) == 0) {
+                    progress |= eliminate(house[i], union);
+                }
+            }
+            return progress;
+        }
+        for (int i = start; i < 9; i++) {
+            int mask = candidates[house[i]];
+            int count = Integer.bitCount(mask);
+            if (values[house[i]] == 0 && count >= 2 && count <= size
+                    && Integer.bitCount(union | mask) <= size
+                    && nakedSubset(house, size, i + 1, chosen + 1, cellSet | 1 << i, union | mask)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // n digits that fit in only n cells of a house: those cells lose every other candidate
+    private boolean hiddenSubset(int size) {
+        for (int[] house : SudokuSolver.HOUSES) {
+            for (int digit = 0; digit < 9; digit++) {
+                int bit = 1 << digit;
+                int where = 0;
+                for (int i = 0; i < 9; i++) {
+                    if ((candidates[house[i]] & bit) != 0) {
+                        where |= 1 << i;
+                    }
+                }
+                positions[digit] = where;
+            }
+            if (hiddenSubset(house, size, 0, 0, 0, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSubset(int[] house, int size, int start, int chosen, int digitSet, int union) {
+        if (chosen == size) {
+            if (Integer.bitCount(union) != size) {
+                return false;
+            }
+            boolean progress = false;
+            for (int i = 0; i < 9; i++) {
+                if ((union & (1 << i)) != 0) {
+                    progress |= eliminate(house[i], ALL_DIGITS & ~digitSet);
+                }
+            }
+            return progress;
+        }
+        for (int digit = start; digit < 9; digit++) {
+            int count = Integer.bitCount(positions[digit]);
+            if (count >= 2 && count <= size
+                    && Integer.bitCount(union | positions[digit]) <= size
+                    && hiddenSubset(house, size, digit + 1, chosen + 1, digitSet | 1 << digit, union | positions[digit])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // n rows (or columns) where a digit fits in the same n columns (or rows): the digit leaves those lines elsewhere
+    private boolean fish(int size) {
+        for (int bit = 1; bit < ALL_DIGITS; bit <<= 1) {
+            for (int base = 0; base < 18; base += 9) {
+                int cover = 9 - base; // Rows are covered by columns and columns by rows
+                for (int line = 0; line < 9; line++) {
+                    int where = 0;
+                    for (int i = 0; i < 9; i++) {
+                        if ((candidates[SudokuSolver.HOUSES[base + line][i]] & bit) != 0) {
+                            where |= 1 << i;
+                        }
+                    }
+                    positions[line] = where;
+                }
+                if (fish(bit, base, cover, size, 0, 0, 0, 0)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean fish(int bit, int base, int cover, int size, int start, int chosen, int lineSet, int union) {
+        if (chosen == size) {
+            if (Integer.bitCount(union) != size) {
+                return false;
+            }
+            boolean progress = false;
+            for (int c = 0; c < 9; c++) {
+                if ((union & (1 << c)) != 0) {
+                    int[] coverCells = SudokuSolver.HOUSES[cover + c];
+                    for (int line = 0; line < 9; line++) {
+                        if ((lineSet & (1 << line)) == 0) {
+                            progress |= eliminate(coverCells[line], bit);
+                        }
+                    }
+                }
+            }
+            return progress;
+        }
+        for (int line = start; line < 9; line++) {
+            int count = Integer.bitCount(positions[line]);
+            if (count >= 2 && count <= size
+                    && Integer.bitCount(union | positions[line]) <= size
+                    && fish(bit, base, cover, size, line + 1, chosen + 1, lineSet | 1 << line, union | positions[line])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean eliminateOutsideBox(int[] line, int box, int bit) {
+        boolean progress = false;
+        for (int cell : line) {
+            if (SudokuSolver.BOX_OF[cell] != box) {
+                progress |= eliminate(cell, bit);
+            }
+        }
+        return progress;
+    }
+
+    private boolean eliminate(int cell, int mask) {
+        if ((candidates[cell] & mask) == 0) {
+            return false;
+        }
+        candidates[cell] &= ~mask;
+        if (candidates[cell] == 0 && values[cell] == 0) {
+            contradiction = true;
+        }
+        return true;
+    }
+
+    private void place(int cell, int value) {
+        int bit = 1 << (value - 1);
+        if ((candidates[cell] & bit) == 0 || values[cell] != 0) {
+            contradiction = true;
+            return;
+        }
+        values[cell] = value;
+        candidates[cell] = 0;
+        emptyCells--;
+        for (int peer : SudokuSolver.PEERS[cell]) {
+            eliminate(peer, bit);
+        }
+    }
+}
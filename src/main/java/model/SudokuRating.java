@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * The result of rating a puzzle with {@link SudokuRater}: whether human techniques could solve it,
+ * the hardest technique that was needed and how many steps each technique contributed.
+ */
+public final class SudokuRating {
+
+    private final boolean solved;
+    private final SudokuRater.Technique hardest;
+    private final int[] steps;
+
+    SudokuRating(boolean solved, SudokuRater.Technique hardest, int[] steps) {
+        this.solved = solved;
+        this.hardest = hardest;
+        this.steps = steps;
+    }
+
+    /**
+     * Checks whether the rated techniques were enough to solve the puzzle.
+     *
+     * @return true if the puzzle was solved without guessing, false otherwise
+     */
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * Retrieves the hardest technique that was applied.
+     *
+     * @return the hardest technique, or null if the puzzle was already complete
+     */
+    public SudokuRater.Technique getHardestTechnique() {
+        return hardest;
+    }
+
+    /**
+     * Retrieves how many times a technique was applied.
+     *
+     * @param technique the technique
+     * @return the number of steps that used the technique
+     */
+    public int getSteps(SudokuRater.Technique technique) {
+        return steps[technique.ordinal()];
+    }
+
+    /**
+     * Returns the difficulty level the puzzle belongs to.
+     *
+     * @return the level of the hardest technique, or EXTREME if the techniques could not solve the puzzle
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        if (!solved) {
+            return SudokuUtilities.SudokuLevel.EXTREME;
+        }
+        return hardest == null ? SudokuUtilities.SudokuLevel.EASY : hardest.getLevel();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(getLevel().toString());
+        for (SudokuRater.Technique technique : SudokuRater.Technique.values()) {
+            if (steps[technique.ordinal()] != 0) {
+                builder.append(' ').append(technique).append('=').append(steps[technique.ordinal()]);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,619 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live games of many players, keyed by a random session id. A {@link SudokuModel} is not
+ * thread-safe, so every access to a game goes through {@link #withSession} and holds one of a
+ * fixed array of locks, chosen by the session id. Locks are striped rather than one per game,
+ * which keeps hundreds of thousands of sessions at a few bytes of locking each: two games only
+ * wait for each other when they share a stripe and are used at the very same moment, and with
+ * the default of 64 stripes per processor that is rare. The locks are {@link ReentrantLock}s,
+ * so a virtual thread that saves a game while holding one does not pin its carrier thread.
+ * <p>
+ * Sessions live in a {@link ConcurrentHashMap}, so looking one up takes no lock at all. Bulk
+ * operations such as {@link #expireIdle(long, TimeUnit)} walk the map concurrently with all
+ * other calls and hold one stripe at a time, so they never stop the world.
+ * <p>
+ * A store created with a spill file keeps at most a given number of games, and about a given
+ * number of bytes of games, in memory. When either limit is passed, a background thread
+ * writes the least recently used games to the file, until the store is one sixteenth below
+ * both limits; {@link #spillIdle(long, TimeUnit)} also moves games out that were not played
+ * for a while. A game that is used again is read back by {@link #withSession}, which only the
+ * caller that finds it on disk notices, as a slower call. A spilled game keeps its values,
+ * solution and pencil marks, but not its undo history, and its session keeps about a hundred
+ * bytes of the heap. {@link #getHits()}, {@link #getMisses()} and {@link #getEvictions()} tell
+ * how well the limits fit the players.
+ */
+public final class SudokuSessionStore implements Closeable {
+
+    private static final System.Logger LOGGER = System.getLogger(SudokuSessionStore.class.getName());
+    private static final int MIN_STRIPES = 1024;
+    private static final int STRIPES_PER_PROCESSOR = 64;
+    private static final int EVICTION_MARGIN = 16;  // Eviction goes 1/16 below the limits, so it runs in batches
+    private static final int NOT_SPILLED = -1;
+
+    private final Map<String, Session> sessions;
+    private final ReentrantLock[] stripes;
+    private final SudokuPuzzlePool puzzlePool;
+    private final SecureRandom random = new SecureRandom();
+    private final SudokuSpillFile spillFile;  // Null if all games stay in memory
+    private final int maxResident;
+    private final long maxResidentBytes;
+    private final AtomicInteger resident = new AtomicInteger();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ScheduledExecutorService maintenance;  // Starts its thread with the first task
+    private ScheduledFuture<?> expiry;             // Guarded by this
+    private ScheduledFuture<?> idleSpill;          // Guarded by this
+
+    /**
+     * Work on one game, run while holding its lock.
+     *
+     * @param <T> the type of the result
+     * @param <E> the type of exception the work may throw
+     */
+    @FunctionalInterface
+    public interface SessionAction<T, E extends Exception> {
+        /**
+         * Works on a game.
+         *
+         * @param model the game; must not be used after this method returns
+         * @return the result
+         * @throws E if the work fails
+         */
+        T apply(SudokuModel model) throws E;
+    }
+
+    /**
+     * Creates a store with the default number of stripes that holds the expected number of sessions without resizing.
+     *
+     * @param puzzlePool       the pool new games are taken from
+     * @param expectedSessions the number of sessions the store is expected to hold
+     */
+    public SudokuSessionStore(SudokuPuzzlePool puzzlePool, int expectedSessions) {
+        this(puzzlePool, expectedSessions, defaultStripeCount());
+    }
+
+    /**
+     * Creates a store with the given number of lock stripes.
+     *
+     * @param puzzlePool       the pool new games are taken from
+     * @param expectedSessions the number of sessions the store is expected to hold
+     * @param stripeCount      the number of locks, rounded up to a power of two
+     * @throws IllegalArgumentException if the expected number of sessions is negative or the stripe count is not positive
+     */
+    public SudokuSessionStore(SudokuPuzzlePool puzzlePool, int expectedSessions, int stripeCount) {
+        this(puzzlePool, expectedSessions, stripeCount, null, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a store with the default number of stripes that moves games to a spill file when
+     * more than the given number of games, or of bytes, are in memory.
+     *
+     * @param puzzlePool       the pool new games are taken from
+     * @param expectedSessions the number of sessions the store is expected to hold
+     * @param spillFile        the file for games moved out of memory; replaced if it exists, and deleted by {@link #close()}
+     * @param maxResident      the number of games kept in memory
+     * @param maxResidentBytes the approximate heap size of the games kept in memory
+     * @throws IOException              if the spill file cannot be created
+     * @throws IllegalArgumentException if the expected number of sessions is negative or a limit is not positive
+     */
+    public SudokuSessionStore(SudokuPuzzlePool puzzlePool, int expectedSessions, Path spillFile,
+                              int maxResident, long maxResidentBytes) throws IOException {
+        this(puzzlePool, expectedSessions, defaultStripeCount(), openSpillFile(spillFile, maxResident, maxResidentBytes),
+                maxResident, maxResidentBytes);
+    }
+
+    private SudokuSessionStore(SudokuPuzzlePool puzzlePool, int expectedSessions, int stripeCount,
+                               SudokuSpillFile spillFile, int maxResident, long maxResidentBytes) {
+        if (expectedSessions < 0) throw new IllegalArgumentException("expected sessions " + expectedSessions);
+        if (stripeCount < 1 || stripeCount > 1 << 24) throw new IllegalArgumentException("stripe count " + stripeCount);
+        this.puzzlePool = puzzlePool;
+        this.spillFile = spillFile;
+        this.maxResident = maxResident;
+        this.maxResidentBytes = maxResidentBytes;
+        this.sessions = new ConcurrentHashMap<>(expectedSessions);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-session-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int length = 1;
+        while (length < stripeCount) {
+            length <<= 1;
+        }
+        this.stripes = new ReentrantLock[length];
+        for (int i = 0; i < length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Checks the limits before the file is created, so a refused store leaves no file behind
+    private static SudokuSpillFile openSpillFile(Path path, int maxResident, long maxResidentBytes) throws IOException {
+        if (maxResident < 1) throw new IllegalArgumentException("max resident " + maxResident);
+        if (maxResidentBytes < 1) throw new IllegalArgumentException("max resident bytes " + maxResidentBytes);
+        return new SudokuSpillFile(path);
+    }
+
+    private static int defaultStripeCount() {
+        return Math.max(MIN_STRIPES, Runtime.getRuntime().availableProcessors() * STRIPES_PER_PROCESSOR);
+    }
+
+    /**
+     * Starts a new game and opens a session for it.
+     *
+     * @param level the difficulty level of the game
+     * @return the id of the new session
+     */
+    public String create(SudokuUtilities.SudokuLevel level) {
+        return add(new SudokuModel(puzzlePool, level));
+    }
+
+    /**
+     * Opens a session for an existing game. The caller must not use the model afterwards except through the store.
+     *
+     * @param model the game
+     * @return the id of the new session
+     */
+    public String add(SudokuModel model) {
+        Session session = new Session(model);
+        resident.incrementAndGet();
+        residentBytes.addAndGet(session.size);
+        while (true) {
+            String id = newId();
+            if (sessions.putIfAbsent(id, session) == null) {
+                evictIfNeeded();
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Runs work on the game of a session while holding its lock, and marks the session as used.
+     * A game that was moved to the spill file is read back first.
+     *
+     * @param id     the session id
+     * @param action the work to run
+     * @param <T>    the type of the result
+     * @param <E>    the type of exception the work may throw
+     * @return the result of the work
+     * @throws NoSuchElementException if there is no session with the id
+     * @throws UncheckedIOException   if the game was spilled and cannot be read back
+     * @throws E                      if the work fails
+     */
+    public <T, E extends Exception> T withSession(String id, SessionAction<T, E> action) throws E {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new NoSuchElementException("no session " + id);
+        }
+        ReentrantLock lock = stripeOf(id);
+        lock.lock();
+        try {
+            if (session.closed) {
+                throw new NoSuchElementException("no session " + id);  // Removed while this thread waited for the lock
+            }
+            if (session.model == null) {
+                reload(session);
+            } else {
+                hits.increment();
+            }
+            session.lastAccess = System.nanoTime();
+            try {
+                return action.apply(session.model);
+            } finally {
+                long size = session.model.approximateSize();  // Moves and hints make the game grow
+                residentBytes.addAndGet(size - session.size);
+                session.size = size;
+            }
+        } finally {
+            lock.unlock();
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Checks whether a session exists.
+     *
+     * @param id the session id
+     * @return true if the session exists, false otherwise
+     */
+    public boolean contains(String id) {
+        return sessions.containsKey(id);
+    }
+
+    /**
+     * Closes a session, waiting for work running on its game to finish.
+     *
+     * @param id the session id
+     * @return true if the session was closed, false if there was none
+     */
+    public boolean remove(String id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return false;
+        }
+        ReentrantLock lock = stripeOf(id);
+        lock.lock();
+        try {
+            if (session.closed) {
+                return false;
+            }
+            end(id, session);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes every session whose game was not used for at least the given time. Games in use
+     * are skipped, and other sessions can be used and created while this runs.
+     *
+     * @param maxIdle the longest idle time a session survives
+     * @param unit    the unit of the idle time
+     * @return the number of sessions closed
+     */
+    public int expireIdle(long maxIdle, TimeUnit unit) {
+        long cutoff = System.nanoTime() - unit.toNanos(maxIdle);
+        int expired = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.lastAccess - cutoff > 0) {
+                continue;  // Used recently; read without the lock, checked again below
+            }
+            ReentrantLock lock = stripeOf(entry.getKey());
+            if (!lock.tryLock()) {
+                continue;  // Its stripe is busy, so the session may be in use; the next run gets it
+            }
+            try {
+                if (!session.closed && session.lastAccess - cutoff <= 0) {
+                    end(entry.getKey(), session);
+                    expired++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Moves every game that was not used for at least the given time to the spill file. Its
+     * session stays open. Games in use are skipped, as in {@link #expireIdle(long, TimeUnit)}.
+     *
+     * @param maxIdle the longest idle time a game stays in memory
+     * @param unit    the unit of the idle time
+     * @return the number of games moved
+     * @throws IllegalStateException if the store has no spill file
+     */
+    public int spillIdle(long maxIdle, TimeUnit unit) {
+        if (spillFile == null) throw new IllegalStateException("store has no spill file");
+        long cutoff = System.nanoTime() - unit.toNanos(maxIdle);
+        int spilled = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.lastAccess - cutoff <= 0 && session.model != null
+                    && trySpill(entry.getKey(), session, session.lastAccess)) {
+                spilled++;
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Starts closing idle sessions at a fixed rate on a daemon thread. Does nothing if expiry was already started.
+     *
+     * @param maxIdle the longest idle time a session survives
+     * @param period  the time between two runs
+     * @param unit    the unit of both times
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public synchronized void startExpiry(long maxIdle, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("period " + period);
+        if (expiry == null) {
+            expiry = maintenance.scheduleAtFixedRate(() -> expireIdle(maxIdle, unit), period, period, unit);
+        }
+    }
+
+    /**
+     * Stops the expiry started by {@link #startExpiry(long, long, TimeUnit)}.
+     */
+    public synchronized void stopExpiry() {
+        if (expiry != null) {
+            expiry.cancel(false);
+            expiry = null;
+        }
+    }
+
+    /**
+     * Starts moving idle games to the spill file at a fixed rate on a daemon thread. Does
+     * nothing if this was already started.
+     *
+     * @param maxIdle the longest idle time a game stays in memory
+     * @param period  the time between two runs
+     * @param unit    the unit of both times
+     * @throws IllegalArgumentException if the period is not positive
+     * @throws IllegalStateException    if the store has no spill file
+     */
+    public synchronized void startIdleSpill(long maxIdle, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("period " + period);
+        if (spillFile == null) throw new IllegalStateException("store has no spill file");
+        if (idleSpill == null) {
+            idleSpill = maintenance.scheduleAtFixedRate(() -> spillIdle(maxIdle, unit), period, period, unit);
+        }
+    }
+
+    /**
+     * Stops the spilling started by {@link #startIdleSpill(long, long, TimeUnit)}.
+     */
+    public synchronized void stopIdleSpill() {
+        if (idleSpill != null) {
+            idleSpill.cancel(false);
+            idleSpill = null;
+        }
+    }
+
+    /**
+     * Returns the number of games used while in memory.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of games used while in the spill file, and read back.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of times a game was moved to the spill file, for the limits or for being idle.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of games in memory.
+     *
+     * @return the number of resident games
+     */
+    public int getResidentCount() {
+        return resident.get();
+    }
+
+    /**
+     * Returns the approximate heap size of the games in memory.
+     *
+     * @return the size in bytes
+     */
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    /**
+     * Returns the number of games in the spill file.
+     *
+     * @return the number of spilled games
+     */
+    public int getSpilledCount() {
+        return spillFile == null ? 0 : spillFile.usedSlots();
+    }
+
+    /**
+     * Stops all background work and deletes the spill file. Games that were spilled are lost,
+     * so this is meant for shutting down.
+     *
+     * @throws IOException if the spill file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdown();  // Not interrupted, as that would close the spill file under a running write
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
+
+    /**
+     * Returns a one-line summary of the sessions and the cache statistics.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("sessions %d, resident %d (%d KiB), spilled %d, hits %d, misses %d, evictions %d",
+                size(), getResidentCount(), getResidentBytes() / 1024, getSpilledCount(),
+                getHits(), getMisses(), getEvictions());
+    }
+
+    // Reads a spilled game back; called with the session's stripe held
+    private void reload(Session session) {
+        SudokuModel model;
+        try {
+            model = spillFile.read(session.slot, puzzlePool);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read back a spilled game", e);
+        }
+        spillFile.free(session.slot);
+        session.slot = NOT_SPILLED;
+        session.model = model;
+        session.size = model.approximateSize();
+        resident.incrementAndGet();
+        residentBytes.addAndGet(session.size);
+        misses.increment();
+    }
+
+    // Called with the session's stripe held
+    private void end(String id, Session session) {
+        session.closed = true;
+        sessions.remove(id, session);
+        if (session.model != null) {
+            resident.decrementAndGet();
+            residentBytes.addAndGet(-session.size);
+            session.model = null;
+        } else {
+            spillFile.free(session.slot);
+        }
+    }
+
+    // Spills a game unless its stripe is busy or it was used since the caller looked at it
+    private boolean trySpill(String id, Session session, long seenAccess) {
+        ReentrantLock lock = stripeOf(id);
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (session.closed || session.model == null || session.lastAccess != seenAccess) {
+                return false;
+            }
+            session.slot = spillFile.write(session.model);
+            session.model = null;
+            resident.decrementAndGet();
+            residentBytes.addAndGet(-session.size);
+            evictions.increment();
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not spill a game, keeping it in memory", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean overLimit() {
+        return resident.get() > maxResident || residentBytes.get() > maxResidentBytes;
+    }
+
+    // Callers never wait for eviction; only one eviction runs at a time
+    private void evictIfNeeded() {
+        if (spillFile != null && overLimit() && !maintenance.isShutdown() && evicting.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(this::evict);
+            } catch (RejectedExecutionException e) {
+                evicting.set(false);  // The store was closed meanwhile
+            }
+        }
+    }
+
+    private void evict() {
+        int spilled = 0;
+        try {
+            spilled = spillLeastRecentlyUsed();
+        } finally {
+            evicting.set(false);
+        }
+        if (spilled > 0) {
+            evictIfNeeded();  // Players may have passed a limit again while this ran
+        }
+    }
+
+    // Spills the games unused for longest until the store is below both limits by the margin
+    private int spillLeastRecentlyUsed() {
+        List<Candidate> candidates = new ArrayList<>(resident.get());
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.model != null) {  // Read without the lock, checked again in trySpill
+                candidates.add(new Candidate(entry.getKey(), session));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+        int countTarget = maxResident - maxResident / EVICTION_MARGIN;
+        long bytesTarget = maxResidentBytes - maxResidentBytes / EVICTION_MARGIN;
+        int spilled = 0;
+        for (Candidate candidate : candidates) {
+            if (resident.get() <= countTarget && residentBytes.get() <= bytesTarget) {
+                break;
+            }
+            if (trySpill(candidate.id, candidate.session, candidate.lastAccess)) {
+                spilled++;
+            }
+        }
+        return spilled;
+    }
+
+    private ReentrantLock stripeOf(String id) {
+        int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    // 128 random bits, so ids cannot be guessed from other sessions
+    private String newId() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    // A resident game as seen by one eviction run
+    private static final class Candidate {
+        final String id;
+        final Session session;
+        final long lastAccess;
+
+        Candidate(String id, Session session) {
+            this.id = id;
+            this.session = session;
+            this.lastAccess = session.lastAccess;
+        }
+    }
+
+    // A game and its bookkeeping; all but lastAccess are guarded by the stripe lock. The model is
+    // null while the game is in the spill file, at the given slot, and once the session is closed.
+    private static final class Session {
+        SudokuModel model;
+        int slot = NOT_SPILLED;
+        long size;  // Approximate heap size of the model, as counted in residentBytes
+        volatile long lastAccess = System.nanoTime();
+        boolean closed;
+
+        Session(SudokuModel model) {
+            this.model = model;
+            this.size = model.approximateSize();
+        }
+    }
+}
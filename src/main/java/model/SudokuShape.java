@@ -0,0 +1,163 @@
+package model;
+
+/**
+ * The geometry of a Sudoku grid made of n×n boxes: a side of n² cells, n² rows, columns and
+ * boxes, and digits 1 to n². Box sizes 2 to 5 are supported, giving 4×4, 9×9, 16×16 and 25×25
+ * grids, so the digits of a house always fit in the low bits of an {@code int}.
+ * <p>
+ * Cells are numbered in row-major order. Houses are numbered like in {@link SudokuSolver}:
+ * rows first, then columns, then boxes. The lookup tables are built once per shape and
+ * shared, so instances are obtained with {@link #of(int)} and are immutable.
+ */
+public final class SudokuShape {
+
+    public static final int MIN_BOX_SIZE = 2;
+    public static final int MAX_BOX_SIZE = 5;
+
+    private static final SudokuShape[] SHAPES = new SudokuShape[MAX_BOX_SIZE + 1];
+
+    static {
+        for (int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++) {
+            SHAPES[boxSize] = new SudokuShape(boxSize);
+        }
+    }
+
+    /** The classic 9×9 grid. */
+    public static final SudokuShape CLASSIC = SHAPES[3];
+
+    private final int boxSize;
+    private final int size;
+    private final int cells;
+    private final int allDigits;
+    final int[] rowOf;
+    final int[] colOf;
+    final int[] boxOf;
+    final int[][] houses;  // Rows 0 to size-1, then columns, then boxes
+    final int[][] peers;   // The other cells sharing a row, column or box with each cell
+
+    private SudokuShape(int boxSize) {
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.cells = size * size;
+        this.allDigits = (1 << size) - 1;
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        houses = new int[3 * size][size];
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            int box = (row / boxSize) * boxSize + col / boxSize;
+            rowOf[cell] = row;
+            colOf[cell] = col;
+            boxOf[cell] = box;
+            houses[row][col] = cell;
+            houses[size + col][row] = cell;
+            houses[2 * size + box][(row % boxSize) * boxSize + col % boxSize] = cell;
+        }
+
+        // A cell sees the rest of its row and column, and the cells of its box outside both
+        int peerCount = 2 * (size - 1) + (boxSize - 1) * (boxSize - 1);
+        peers = new int[cells][peerCount];
+        for (int cell = 0; cell < cells; cell++) {
+            int count = 0;
+            for (int other = 0; other < cells; other++) {
+                if (other != cell && (rowOf[other] == rowOf[cell] || colOf[other] == colOf[cell]
+                        || boxOf[other] == boxOf[cell])) {
+                    peers[cell][count++] = other;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the shape of a grid made of boxes of the given size.
+     *
+     * @param boxSize the side of a box, 2 to 5
+     * @return the shared shape instance
+     * @throws IllegalArgumentException if the box size is not supported
+     */
+    public static SudokuShape of(int boxSize) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE) throw new IllegalArgumentException("box size " + boxSize);
+        return SHAPES[boxSize];
+    }
+
+    /**
+     * Returns the side of a box.
+     *
+     * @return the number of rows (and columns) of a box
+     */
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Returns the side of the grid, which is also the highest digit.
+     *
+     * @return the number of rows (and columns) of the grid
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cells of the grid.
+     *
+     * @return the side of the grid squared
+     */
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * Returns the number of rows, columns and boxes together.
+     *
+     * @return three times the side of the grid
+     */
+    public int getHouseCount() {
+        return 3 * size;
+    }
+
+    /**
+     * Returns the mask of all digits of the grid, bit d-1 for digit d.
+     *
+     * @return a mask with the lowest {@link #getSize()} bits set
+     */
+    public int getAllDigits() {
+        return allDigits;
+    }
+
+    /**
+     * Returns the character used to show a digit: 1-9, then A for 10, B for 11 and so on.
+     *
+     * @param digit the digit, 1 to {@link #getSize()}
+     * @return the symbol of the digit
+     */
+    public static char symbolOf(int digit) {
+        return digit <= 9 ? (char) ('0' + digit) : (char) ('A' + digit - 10);
+    }
+
+    /**
+     * Returns the digit shown by a character, the inverse of {@link #symbolOf(int)}.
+     * Letters may be given in either case.
+     *
+     * @param symbol the character to read
+     * @return the digit, or 0 if the character is not a digit of this shape
+     */
+    public int digitOf(char symbol) {
+        int digit;
+        if (symbol >= '1' && symbol <= '9') {
+            digit = symbol - '0';
+        } else if (Character.isLetter(symbol) && symbol < 128) {
+            digit = Character.toUpperCase(symbol) - 'A' + 10;
+        } else {
+            return 0;
+        }
+        return digit <= size ? digit : 0;
+    }
+
+    @Override
+    public String toString() {
+        return size + "x" + size;
+    }
+}
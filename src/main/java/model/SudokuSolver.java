@@ -0,0 +1,247 @@
+package model;
+
+/**
+ * A constraint-propagation Sudoku solver working on candidate bitmasks.
+ * Every row, column and box keeps a 9-bit mask of the digits already placed in it, so the
+ * candidates of a cell are the digits missing from all three of its houses. The solver
+ * repeatedly places naked singles (cells with one candidate) and hidden singles (digits with
+ * only one possible cell in a house), and when no more singles can be found it branches on
+ * the empty cell with the fewest candidates.
+ * <p>
+ * Boards are flat arrays of 81 values in row-major order, where 0 marks an empty cell.
+ * All search state is preallocated, so a solver instance does not allocate while solving.
+ * Instances are not thread-safe; use one solver per thread.
+ */
+public final class SudokuSolver {
+
+    static final int CELLS = 81;
+    static final int ALL_DIGITS = 0x1FF; // Bits 0-8 represent the digits 1-9
+
+    static final int[] ROW_OF = new int[CELLS];
+    static final int[] COL_OF = new int[CELLS];
+    static final int[] BOX_OF = new int[CELLS];
+    static final int[][] HOUSES = new int[27][9]; // Rows 0-8, columns 9-17, boxes 18-26
+    static final int[][] PEERS = new int[CELLS][20];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / 9;
+            int col = cell % 9;
+            int box = (row / 3) * 3 + col / 3;
+            ROW_OF[cell] = row;
+            COL_OF[cell] = col;
+            BOX_OF[cell] = box;
+            HOUSES[row][col] = cell;
+            HOUSES[9 + col][row] = cell;
+            HOUSES[18 + box][(row % 3) * 3 + col % 3] = cell;
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            int count = 0;
+            for (int other = 0; other < CELLS; other++) {
+                if (other != cell && (ROW_OF[other] == ROW_OF[cell] || COL_OF[other] == COL_OF[cell]
+                        || BOX_OF[other] == BOX_OF[cell])) {
+                    PEERS[cell][count++] = other;
+                }
+            }
+        }
+    }
+
+    // One frame per search depth; a frame holds the cell values and the used-digit masks of every house
+    private final int[][] cellStack = new int[CELLS + 1][CELLS];
+    private final int[][] usedStack = new int[CELLS + 1][27];
+    private final int[] firstSolution = new int[CELLS];
+    private int solutionCount;
+    private int solutionLimit;
+
+    /**
+     * Solves the puzzle and writes the first solution found into the given array.
+     *
+     * @param puzzle   81 values in row-major order, 0 for an empty cell
+     * @param solution an array of at least 81 elements receiving the solved grid
+     * @return true if the puzzle has at least one solution, false otherwise
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public boolean solve(byte[] puzzle, byte[] solution) {
+        if (search(puzzle, 1) == 0) {
+            return false;
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            solution[cell] = (byte) firstSolution[cell];
+        }
+        return true;
+    }
+
+    /**
+     * Counts the solutions of a puzzle, stopping as soon as the given limit is reached.
+     * A limit of 2 is enough to tell whether a puzzle has a unique solution.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @param limit  the number of solutions after which the search stops
+     * @return the number of solutions found, never more than the limit
+     * @throws IllegalArgumentException if the puzzle does not have 81 values between 0 and 9
+     */
+    public int countSolutions(byte[] puzzle, int limit) {
+        return search(puzzle, limit);
+    }
+
+    /**
+     * Checks whether a puzzle has exactly one solution.
+     *
+     * @param puzzle 81 values in row-major order, 0 for an empty cell
+     * @return true if the puzzle has exactly one solution, false otherwise
+     */
+    public boolean hasUniqueSolution(byte[] puzzle) {
+        return search(puzzle, 2) == 1;
+    }
+
+    /**
+     * Solves the initial values of a matrix in the format used by {@link SudokuUtilities}
+     * and fills in its solution layer.
+     *
+     * @param matrix a [row][col][2] matrix whose [row][col][0] layer holds the initial values
+     * @return true if the puzzle was solved, false if it has no solution
+     */
+    public boolean solve(int[][][] matrix) {
+        byte[] puzzle = new byte[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            puzzle[cell] = (byte) matrix[cell / 9][cell % 9][0];
+        }
+        if (search(puzzle, 1) == 0) {
+            return false;
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            matrix[cell / 9][cell % 9][1] = firstSolution[cell];
+        }
+        return true;
+    }
+
+    private int search(byte[] puzzle, int limit) {
+        if (puzzle.length != CELLS) throw new IllegalArgumentException("puzzle length " + puzzle.length);
+
+        int[] cells = cellStack[0];
+        int[] used = usedStack[0];
+        for (int house = 0; house < 27; house++) {
+            used[house] = 0;
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            int value = puzzle[cell];
+            if (value < 0 || value > 9) throw new IllegalArgumentException("value " + value);
+            cells[cell] = 0;
+            if (value != 0 && !place(cells, used, cell, value)) {
+                return 0; // The givens already contradict each other
+            }
+        }
+
+        solutionCount = 0;
+        solutionLimit = limit;
+        search(0);
+        return solutionCount;
+    }
+
+    private void search(int depth) {
+        int[] cells = cellStack[depth];
+        int[] used = usedStack[depth];
+        if (!propagate(cells, used)) {
+            return;
+        }
+
+        // Pick the empty cell with the fewest candidates
+        int bestCell = -1;
+        int bestCount = 10;
+        for (int cell = 0; cell < CELLS && bestCount > 2; cell++) {
+            if (cells[cell] == 0) {
+                int count = Integer.bitCount(candidates(used, cell));
+                if (count < bestCount) {
+                    bestCount = count;
+                    bestCell = cell;
+                }
+            }
+        }
+
+        if (bestCell < 0) {
+            if (solutionCount == 0) {
+                System.arraycopy(cells, 0, firstSolution, 0, CELLS);
+            }
+            solutionCount++;
+            return;
+        }
+
+        int[] nextCells = cellStack[depth + 1];
+        int[] nextUsed = usedStack[depth + 1];
+        for (int mask = candidates(used, bestCell); mask != 0 && solutionCount < solutionLimit; mask &= mask - 1) {
+            System.arraycopy(cells, 0, nextCells, 0, CELLS);
+            System.arraycopy(used, 0, nextUsed, 0, 27);
+            place(nextCells, nextUsed, bestCell, Integer.numberOfTrailingZeros(mask) + 1);
+            search(depth + 1);
+        }
+    }
+
+    /**
+     * Places naked and hidden singles until none are left.
+     *
+     * @return false if the board turned out to be contradictory
+     */
+    private static boolean propagate(int[] cells, int[] used) {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+
+            // Naked singles: cells with exactly one candidate left
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (cells[cell] == 0) {
+                    int mask = candidates(used, cell);
+                    if (mask == 0) {
+                        return false;
+                    }
+                    if ((mask & (mask - 1)) == 0) {
+                        place(cells, used, cell, Integer.numberOfTrailingZeros(mask) + 1);
+                        progress = true;
+                    }
+                }
+            }
+
+            // Hidden singles: digits that fit in exactly one cell of a house
+            for (int house = 0; house < 27; house++) {
+                int once = 0;
+                int twice = 0;
+                for (int cell : HOUSES[house]) {
+                    if (cells[cell] == 0) {
+                        int mask = candidates(used, cell);
+                        twice |= once & mask;
+                        once |= mask;
+                    }
+                }
+                if ((once | used[house]) != ALL_DIGITS) {
+                    return false; // Some digit has no place left in this house
+                }
+                for (int singles = once & ~twice; singles != 0; singles &= singles - 1) {
+                    int bit = singles & -singles;
+                    for (int cell : HOUSES[house]) {
+                        if (cells[cell] == 0 && (candidates(used, cell) & bit) != 0) {
+                            place(cells, used, cell, Integer.numberOfTrailingZeros(bit) + 1);
+                            progress = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int candidates(int[] used, int cell) {
+        return ~(used[ROW_OF[cell]] | used[9 + COL_OF[cell]] | used[18 + BOX_OF[cell]]) & ALL_DIGITS;
+    }
+
+    private static boolean place(int[] cells, int[] used, int cell, int value) {
+        int bit = 1 << (value - 1);
+        if ((candidates(used, cell) & bit) == 0) {
+            return false;
+        }
+        cells[cell] = value;
+        used[ROW_OF[cell]] |= bit;
+        used[9 + COL_OF[cell]] |= bit;
+        used[18 + BOX_OF[cell]] |= bit;
+        return true;
+    }
+}
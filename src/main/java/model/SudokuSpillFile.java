@@ -0,0 +1,136 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Games moved out of memory by {@link SudokuSessionStore}, in fixed-size slots of one file.
+ * A slot holds one game in the binary format of {@link SudokuIO}, with its solution and pencil
+ * marks, so a game takes {@value #SLOT_SIZE} bytes on disk and is brought back without
+ * solving. Slots are read and written with positional I/O, so many threads use the file at
+ * once, and freed slots are reused before the file grows.
+ * <p>
+ * The file only lives as long as its store: it is truncated when opened and deleted when
+ * closed. A {@link FileChannel} is closed when a thread using it is interrupted, so threads
+ * doing I/O on this file must not be interrupted.
+ */
+final class SudokuSpillFile implements Closeable {
+
+    static final int SLOT_SIZE = 256;
+
+    static {
+        if (SudokuIO.MAX_GAME_SIZE_WITH_MARKS > SLOT_SIZE) throw new AssertionError("slot too small for a game");
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private int[] freeSlots = new int[64];  // Guarded by this
+    private int freeCount;                  // Guarded by this
+    private int slotCount;                  // Guarded by this
+
+    /**
+     * Creates an empty spill file, replacing any file at the path.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be created
+     */
+    SudokuSpillFile(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes a game to a free slot.
+     *
+     * @param model the game
+     * @return the slot holding the game
+     * @throws IOException if writing fails
+     */
+    int write(SudokuModel model) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        SudokuIO.writeGame(buffer, model, true, true);
+        buffer.flip();
+        int slot = allocate();
+        try {
+            long position = (long) slot * SLOT_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            free(slot);
+            throw e;
+        }
+        return slot;
+    }
+
+    /**
+     * Reads the game in a slot into a new model. The slot stays in use until it is {@link #free(int) freed}.
+     *
+     * @param slot       the slot
+     * @param puzzlePool the pool the model takes new games from
+     * @return the game
+     * @throws IOException if reading fails or the slot does not hold a valid game
+     */
+    SudokuModel read(int slot, SudokuPuzzlePool puzzlePool) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        long position = (long) slot * SLOT_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;  // Only the game is written, so the last slot ends early
+            }
+        }
+        buffer.flip();
+        return new SudokuModel(puzzlePool, buffer);
+    }
+
+    /**
+     * Makes a slot available for another game.
+     *
+     * @param slot the slot
+     */
+    synchronized void free(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Returns the number of slots holding a game.
+     *
+     * @return the number of games in the file
+     */
+    synchronized int usedSlots() {
+        return slotCount - freeCount;
+    }
+
+    // The most recently freed slot first, as it is likely still in the page cache
+    private synchronized int allocate() throws IOException {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == Integer.MAX_VALUE) throw new IOException("spill file is full");
+        return slotCount++;
+    }
+
+    /**
+     * Closes and deletes the file. The games in it are lost.
+     *
+     * @throws IOException if the file cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
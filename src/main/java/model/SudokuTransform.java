@@ -0,0 +1,255 @@
+package model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A validity-preserving transformation of a Sudoku grid, kept as a single cell permutation
+ * together with a digit relabelling.
+ * Operations such as band, stack, row and column swaps, transposition, rotation and digit
+ * relabelling are composed into the permutation as they are added, so any combination of them
+ * is applied to a board in one pass by {@link #apply(byte[], byte[])}.
+ * <p>
+ * Boards are flat arrays of 81 values in row-major order, where 0 marks an empty cell.
+ * Composing and applying transforms does not allocate. Instances are not thread-safe.
+ */
+public final class SudokuTransform {
+
+    private static final int CELLS = SudokuSolver.CELLS;
+
+    private final int[] source = new int[CELLS];  // For every target cell, the cell it is copied from
+    private final byte[] digits = new byte[10];   // For every digit, the digit it is relabelled to
+    private final int[] scratch = new int[CELLS];
+    private final int[] lines = new int[9];
+    private final int[] groups = new int[3];
+
+    /**
+     * Creates an identity transform.
+     */
+    public SudokuTransform() {
+        reset();
+    }
+
+    /**
+     * Resets this transform to the identity.
+     *
+     * @return this transform
+     */
+    public SudokuTransform reset() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            source[cell] = cell;
+        }
+        for (int digit = 0; digit <= 9; digit++) {
+            digits[digit] = (byte) digit;
+        }
+        return this;
+    }
+
+    /**
+     * Swaps two bands, i.e. two horizontal groups of three rows.
+     *
+     * @param first  the index of the first band (0-2)
+     * @param second the index of the second band (0-2)
+     * @return this transform
+     */
+    public SudokuTransform swapBands(int first, int second) {
+        identityLines();
+        for (int i = 0; i < 3; i++) {
+            lines[first * 3 + i] = second * 3 + i;
+            lines[second * 3 + i] = first * 3 + i;
+        }
+        return permuteRows();
+    }
+
+    /**
+     * Swaps two stacks, i.e. two vertical groups of three columns.
+     *
+     * @param first  the index of the first stack (0-2)
+     * @param second the index of the second stack (0-2)
+     * @return this transform
+     */
+    public SudokuTransform swapStacks(int first, int second) {
+        identityLines();
+        for (int i = 0; i < 3; i++) {
+            lines[first * 3 + i] = second * 3 + i;
+            lines[second * 3 + i] = first * 3 + i;
+        }
+        return permuteColumns();
+    }
+
+    /**
+     * Swaps two rows within the same band.
+     *
+     * @param first  the first row (0-8)
+     * @param second the second row (0-8)
+     * @return this transform
+     * @throws IllegalArgumentException if the rows are in different bands
+     */
+    public SudokuTransform swapRows(int first, int second) {
+        if (first / 3 != second / 3) throw new IllegalArgumentException("rows " + first + " and " + second);
+        identityLines();
+        lines[first] = second;
+        lines[second] = first;
+        return permuteRows();
+    }
+
+    /**
+     * Swaps two columns within the same stack.
+     *
+     * @param first  the first column (0-8)
+     * @param second the second column (0-8)
+     * @return this transform
+     * @throws IllegalArgumentException if the columns are in different stacks
+     */
+    public SudokuTransform swapColumns(int first, int second) {
+        if (first / 3 != second / 3) throw new IllegalArgumentException("columns " + first + " and " + second);
+        identityLines();
+        lines[first] = second;
+        lines[second] = first;
+        return permuteColumns();
+    }
+
+    /**
+     * Mirrors the grid across its main diagonal.
+     *
+     * @return this transform
+     */
+    public SudokuTransform transpose() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            scratch[cell] = source[(cell % 9) * 9 + cell / 9];
+        }
+        return commit();
+    }
+
+    /**
+     * Rotates the grid a quarter turn clockwise.
+     *
+     * @return this transform
+     */
+    public SudokuTransform rotate() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / 9;
+            int col = cell % 9;
+            scratch[cell] = source[(8 - col) * 9 + row];
+        }
+        return commit();
+    }
+
+    /**
+     * Relabels the digits of the grid.
+     *
+     * @param mapping an array where mapping[d - 1] is the new label of digit d;
+     *                it must be a permutation of the digits 1-9
+     * @return this transform
+     */
+    public SudokuTransform relabel(int[] mapping) {
+        for (int digit = 1; digit <= 9; digit++) {
+            digits[digit] = (byte) mapping[digits[digit] - 1];
+        }
+        return this;
+    }
+
+    /**
+     * Swaps two digits everywhere in the grid.
+     *
+     * @param first  the first digit (1-9)
+     * @param second the second digit (1-9)
+     * @return this transform
+     */
+    public SudokuTransform swapDigits(int first, int second) {
+        for (int digit = 1; digit <= 9; digit++) {
+            if (digits[digit] == first) {
+                digits[digit] = (byte) second;
+            } else if (digits[digit] == second) {
+                digits[digit] = (byte) first;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Resets this transform to a uniformly random element of the symmetry group: a random order
+     * of bands, stacks and of the rows and columns within them, an optional transposition and a
+     * random digit relabelling.
+     *
+     * @param random the random number source to use
+     * @return this transform
+     */
+    SudokuTransform randomize(RandomGenerator random) {
+        reset();
+        if (random.nextBoolean()) {
+            transpose();
+        }
+        shuffleLines(random);
+        permuteRows();
+        shuffleLines(random);
+        permuteColumns();
+
+        for (int i = 0; i < 9; i++) {
+            lines[i] = i + 1;
+        }
+        shuffle(lines, 0, 9, random);
+        return relabel(lines);
+    }
+
+    /**
+     * Applies this transform to a board.
+     *
+     * @param board  the 81 values to transform
+     * @param target an array of 81 elements receiving the transformed board; must not be the same array
+     */
+    public void apply(byte[] board, byte[] target) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            target[cell] = digits[board[source[cell]]];
+        }
+    }
+
+    private void identityLines() {
+        for (int i = 0; i < 9; i++) {
+            lines[i] = i;
+        }
+    }
+
+    // Shuffles the three groups, then the three lines inside every group
+    private void shuffleLines(RandomGenerator random) {
+        for (int group = 0; group < 3; group++) {
+            groups[group] = group;
+        }
+        shuffle(groups, 0, 3, random);
+        for (int group = 0; group < 3; group++) {
+            for (int i = 0; i < 3; i++) {
+                lines[group * 3 + i] = groups[group] * 3 + i;
+            }
+            shuffle(lines, group * 3, 3, random);
+        }
+    }
+
+    // Row r of the result is row lines[r] of the current result
+    private SudokuTransform permuteRows() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            scratch[cell] = source[lines[cell / 9] * 9 + cell % 9];
+        }
+        return commit();
+    }
+
+    // Column c of the result is column lines[c] of the current result
+    private SudokuTransform permuteColumns() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            scratch[cell] = source[(cell / 9) * 9 + lines[cell % 9]];
+        }
+        return commit();
+    }
+
+    private SudokuTransform commit() {
+        System.arraycopy(scratch, 0, source, 0, CELLS);
+        return this;
+    }
+
+    private static void shuffle(int[] values, int from, int length, RandomGenerator random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = values[from + i];
+            values[from + i] = values[from + j];
+            values[from + j] = temp;
+        }
+    }
+}
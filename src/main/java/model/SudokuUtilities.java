@@ -1,47 +1,36 @@
 package model;
 
-import java.util.Random;
-
 /**
- * Utility class for handling various Sudoku-related operations, including generating Sudoku grids,
- * randomizing start positions, and converting between string and matrix representations.
+ * Utility class for handling various Sudoku-related operations, including generating Sudoku grids
+ * and converting between string and matrix representations.
  */
 public class SudokuUtilities {
 
     /**
-     * Enum representing the difficulty levels of a Sudoku puzzle: EASY, MEDIUM, and HARD.
+     * Enum representing the difficulty levels of a Sudoku puzzle: EASY, MEDIUM, HARD, EXPERT and EXTREME.
+     * Each level is defined by the hardest technique needed to solve the puzzle, see {@link SudokuRater}.
+     * New levels must be added at the end, since saved games store the ordinal.
      */
-    public enum SudokuLevel {EASY, MEDIUM, HARD}
+    public enum SudokuLevel {EASY, MEDIUM, HARD, EXPERT, EXTREME}
 
     public static final int GRID_SIZE = 9;
     public static final int SECTIONS_PER_ROW = 3;
     public static final int SECTION_SIZE = 3;
 
+    private static final ThreadLocal<SudokuGenerator> GENERATOR = ThreadLocal.withInitial(SudokuGenerator::new);
+
     /**
-     * Generates a 3-dimensional matrix representing a Sudoku grid based on the specified difficulty level.
+     * Generates a 3-dimensional matrix representing a new, randomly generated Sudoku grid
+     * with a unique solution for the specified difficulty level.
      * The matrix contains both the initial values and the solution.
      *
-     * @param level The difficulty level of the Sudoku grid (EASY, MEDIUM, or HARD).
+     * @param level The difficulty level of the Sudoku grid (EASY, MEDIUM, HARD, EXPERT or EXTREME).
      * @return A 3-dimensional int matrix where:
      * [row][col][0] represents the initial values, with zero indicating an empty cell.
      * [row][col][1] represents the solution values.
-     * @throws IllegalArgumentException if the generated matrix string has an invalid format.
      */
     public static int[][][] generateSudokuMatrix(SudokuLevel level) {
-        String representationString;
-        Random random = new Random();
-        int randomNumber = random.nextInt(4);
-        switch (level) {
-            case EASY: representationString = easy; break;
-            case MEDIUM: representationString = medium; break;
-            case HARD: representationString = hard; break;
-            default: representationString = medium;
-        }
-        if (randomNumber != 0) {
-            String newMatrix = randomizeStartMatrix(representationString);
-            return convertStringToIntMatrix(newMatrix);
-        }
-        return convertStringToIntMatrix(representationString);
+        return GENERATOR.get().generateMatrix(level);
     }
 
     /**
@@ -83,6 +72,27 @@ public class SudokuUtilities {
         return values;
     }
 
+    /**
+     * Converts a string representation of a Sudoku grid into two flat boards in row-major order.
+     *
+     * @param stringRepresentation A string of 162 characters in the format described in
+     *                             {@link #convertStringToIntMatrix(String)}.
+     * @param puzzle               An array of 81 elements receiving the initial values.
+     * @param solution             An array of 81 elements receiving the solution.
+     * @throws IllegalArgumentException if the string is not exactly 162 characters long or contains invalid characters.
+     */
+    /*package private*/
+    static void convertStringToBoards(String stringRepresentation, byte[] puzzle, byte[] solution) {
+        int cells = GRID_SIZE * GRID_SIZE;
+        if (stringRepresentation.length() != cells * 2)
+            throw new IllegalArgumentException("representation length " + stringRepresentation.length());
+
+        for (int cell = 0; cell < cells; cell++) {
+            puzzle[cell] = (byte) convertCharToSudokuInt(stringRepresentation.charAt(cell));
+            solution[cell] = (byte) convertCharToSudokuInt(stringRepresentation.charAt(cells + cell));
+        }
+    }
+
     /**
      * Converts a character ('0'-'9') to its corresponding integer value for the Sudoku grid.
      *
@@ -95,24 +105,6 @@ public class SudokuUtilities {
         return ch - '0';
     }
 
-    /**
-     * Randomizes the initial Sudoku grid by applying one of several transformations (mirror horizontally,
-     * mirror vertically, or swap pairs).
-     *
-     * @param stringRepresentation The string representation of the Sudoku grid.
-     * @return A new string with a randomized start configuration.
-     */
-    private static String randomizeStartMatrix(String stringRepresentation) {
-        Random random = new Random();
-        int randomNumber = random.nextInt(3);
-        switch (randomNumber) {
-            case 0: return GenerateNewStartPositions.mirrorHorizontally(stringRepresentation);
-            case 1: return GenerateNewStartPositions.mirrorVertically(stringRepresentation);
-            case 2: return GenerateNewStartPositions.swapPair(stringRepresentation);
-        }
-        return null;
-    }
-
     /**
      * Converts a 3-dimensional Sudoku matrix back into its string representation.
      * The first half of the string contains the initial values, and the second half contains the solution.
@@ -140,64 +132,20 @@ public class SudokuUtilities {
         return builder.toString();
     }
 
-    // Predefined string representations of easy, medium, and hard Sudoku puzzles and their solutions.
-    private static final String easy =
-                    "000914070" +
-                    "010000054" +
-                    "040002000" +
-                    "007569001" +
-                    "401000500" +
-                    "300100000" +
-                    "039000408" +
-                    "650800030" +
-                    "000403260" + // Solution values after this substring
-                    "583914672" +
-                    "712386954" +
-                    "946752183" +
-                    "827569341" +
-                    "461238597" +
-                    "395147826" +
-                    "239675418" +
-                    "654821739" +
-                    "178493265";
-
-    private static final String medium =
-                    "300000010" +
-                    "000050906" +
-                    "050401200" +
-                    "030000080" +
-                    "002069400" +
-                    "000000002" +
-                    "900610000" +
-                    "200300058" +
-                    "100800090" +
-                    "324976815" +
-                    "718253946" +
-                    "659481273" +
-                    "536142789" +
-                    "872569431" +
-                    "491738562" +
-                    "985617324" +
-                    "267394158" +
-                    "143825697";
-
-    private static final String hard =
-                    "030600000" +
-                    "000010070" +
-                    "080000000" +
-                    "000020000" +
-                    "340000800" +
-                    "500030094" +
-                    "000400000" +
-                    "150800200" +
-                    "700006050" +
-                    "931687542" +
-                    "465219378" +
-                    "287345916" +
-                    "876924135" +
-                    "349561827" +
-                    "512738694" +
-                    "693452781" +
-                    "154873269" +
-                    "728196453";
+    /**
+     * Converts two flat boards back into the string representation of a Sudoku grid.
+     *
+     * @param puzzle   The 81 initial values in row-major order.
+     * @param solution The 81 solution values in row-major order.
+     * @return A string of 162 characters, the initial values followed by the solution.
+     */
+    static String convertBoardsToString(byte[] puzzle, byte[] solution) {
+        int cells = GRID_SIZE * GRID_SIZE;
+        char[] chars = new char[cells * 2];
+        for (int cell = 0; cell < cells; cell++) {
+            chars[cell] = (char) ('0' + puzzle[cell]);
+            chars[cells + cell] = (char) ('0' + solution[cell]);
+        }
+        return new String(chars);
+    }
 }
@@ -0,0 +1,56 @@
+package model.legacy;
+
+import java.io.Serializable;
+
+/**
+ * The field layout of {@code model.SudokuCell} as it was written by the original
+ * object-serialization save format. It exists only so that such files can still be imported.
+ */
+public final class SudokuCell implements Serializable {
+
+    private static final long serialVersionUID = 8756463152803548137L;
+
+    private int initialValue;
+    private int solutionValue;
+    private boolean isVisible;
+    private int userValue;
+
+    private SudokuCell() {
+    }
+
+    /**
+     * Retrieves the saved initial value of the cell.
+     *
+     * @return the initial value, 0 if the cell started empty
+     */
+    public int getInitialValue() {
+        return initialValue;
+    }
+
+    /**
+     * Retrieves the saved solution value of the cell.
+     *
+     * @return the solution value
+     */
+    public int getSolutionValue() {
+        return solutionValue;
+    }
+
+    /**
+     * Checks if the saved initial value was shown to the user.
+     *
+     * @return true if the initial value was shown; false otherwise
+     */
+    public boolean isVisible() {
+        return isVisible;
+    }
+
+    /**
+     * Retrieves the saved user value of the cell.
+     *
+     * @return the user value, 0 if none was entered
+     */
+    public int getUserValue() {
+        return userValue;
+    }
+}
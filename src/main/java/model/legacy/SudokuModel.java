@@ -0,0 +1,44 @@
+package model.legacy;
+
+import model.SudokuUtilities;
+
+import java.io.Serializable;
+
+/**
+ * The field layout of {@code model.SudokuModel} as it was written by the original
+ * object-serialization save format. It exists only so that such files can still be imported;
+ * {@link model.SudokuIO} maps the old class name onto this class while reading.
+ */
+public final class SudokuModel implements Serializable {
+
+    private static final long serialVersionUID = -8641141791917240253L;
+
+    private SudokuCell[][] board;
+    private SudokuCell[][] copiedBoard;
+    private boolean[][] initialEmptyCells;
+    private SudokuUtilities.SudokuLevel currentLevel;
+    private int[][][] matrix;
+
+    private SudokuModel() {
+    }
+
+    /**
+     * Retrieves a cell of the saved board.
+     *
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return the saved cell
+     */
+    public SudokuCell getCell(int row, int col) {
+        return board[row][col];
+    }
+
+    /**
+     * Retrieves the saved difficulty level.
+     *
+     * @return the difficulty level, or null if none was saved
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return currentLevel;
+    }
+}
@@ -2,6 +2,8 @@ module com.lab4 {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.desktop;
+    requires java.management;
+    requires jdk.httpserver;
 
     opens com.lab4 to javafx.fxml; // Lägg till detta om du använder FXML
     opens view to javafx.fxml;
@@ -10,4 +12,5 @@ module com.lab4 {
     exports model;
     exports com.lab4; // Lägg till detta om du vill exportera huvudklassen
     exports view;
+    exports service;
 }
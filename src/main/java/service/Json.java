@@ -0,0 +1,160 @@
+package service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The little JSON the service needs: request bodies are flat objects whose values are strings,
+ * numbers, booleans or null, and responses are built by appending to a {@link StringBuilder}.
+ * This class cannot be instantiated.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object. Values are returned as their text: strings unquoted and
+     * unescaped, numbers, booleans and null as written.
+     *
+     * @param text the JSON text, blank for an empty object
+     * @return the members of the object
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static Map<String, String> parseObject(String text) {
+        Map<String, String> members = new HashMap<>();
+        Parser parser = new Parser(text);
+        parser.skipWhitespace();
+        if (parser.atEnd()) {
+            return members;
+        }
+        parser.expect('{');
+        parser.skipWhitespace();
+        if (parser.peek() == '}') {
+            parser.next();
+        } else {
+            while (true) {
+                parser.skipWhitespace();
+                String name = parser.string();
+                parser.skipWhitespace();
+                parser.expect(':');
+                parser.skipWhitespace();
+                members.put(name, parser.peek() == '"' ? parser.string() : parser.literal());
+                parser.skipWhitespace();
+                if (parser.peek() == '}') {
+                    parser.next();
+                    break;
+                }
+                parser.expect(',');
+            }
+        }
+        parser.skipWhitespace();
+        if (!parser.atEnd()) throw new IllegalArgumentException("text after the object at " + parser.position);
+        return members;
+    }
+
+    /**
+     * Appends a string as a quoted JSON string.
+     *
+     * @param out   the text to append to
+     * @param value the string to quote
+     * @return the text appended to
+     */
+    static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() {
+            return position >= text.length();
+        }
+
+        char peek() {
+            if (atEnd()) throw new IllegalArgumentException("unexpected end of JSON");
+            return text.charAt(position);
+        }
+
+        char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        void expect(char expected) {
+            if (next() != expected) throw new IllegalArgumentException("expected '" + expected + "' at " + (position - 1));
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) throw new IllegalArgumentException("unexpected end of JSON");
+                        try {
+                            value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("bad escape at " + position);
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);  // '"', '\\' and '/'
+                }
+            }
+        }
+
+        // A number, true, false or null; nested objects and arrays are not needed and rejected
+        String literal() {
+            int start = position;
+            while (!atEnd() && "-+.eE0123456789truefalsn".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) throw new IllegalArgumentException("unexpected '" + peek() + "' at " + position);
+            return text.substring(start, position);
+        }
+    }
+}
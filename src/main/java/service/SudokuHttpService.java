@@ -0,0 +1,348 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.SudokuHint;
+import model.SudokuIO;
+import model.SudokuModel;
+import model.SudokuSessionStore;
+import model.SudokuUtilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves games over HTTP with JSON bodies, using the JDK's built-in server and one virtual
+ * thread per request, so a request that waits for a puzzle or the disk does not hold a
+ * platform thread. Every game is a {@link SudokuModel} identified by a random id:
+ * <pre>
+ * POST   /games                {"level": "HARD"}                  new game, level optional
+ * GET    /games/{id}                                              the game
+ * DELETE /games/{id}                                              ends the game
+ * POST   /games/{id}/moves     {"row": 0, "col": 4, "value": 7}   enters a value, 0 clears the cell
+ * POST   /games/{id}/hint                                         applies a hint
+ * GET    /games/{id}/check                                        compares the board with the solution
+ * POST   /games/{id}/save                                         saves the game with {@link SudokuIO}
+ * POST   /games/{id}/load                                         restores the last save
+ * </pre>
+ * A game is returned as {@code {"id", "level", "givens", "values", "filled"}}, where givens and
+ * values are 81 digits in row-major order, 0 for an empty cell. A move into a given cell or
+ * one that repeats a digit of its row, column or box is refused with 409; malformed requests
+ * get 400, unknown games 404 and a load of a damaged save 422, all with an {@code {"error"}} body.
+ * <p>
+ * Games live in a {@link SudokuSessionStore}, which serializes requests on the same game;
+ * requests on different games run in parallel. A game the store cannot read back from its
+ * spill file, a failed save and any other failure are answered with 500.
+ */
+public final class SudokuHttpService {
+
+    private static final int MAX_BODY_SIZE = 4096;
+    private static final String GAMES = "/games";
+    private static final String JSON = "application/json";
+
+    // The JDK server writes the headers and the body of a response separately; with Nagle's algorithm
+    // the body then waits for the client's delayed acknowledgement, about 40 ms on Linux. The
+    // property is read when the first server is created, and an explicit setting is kept.
+    static {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sudoku-http-", 0).factory());
+    private final SudokuSessionStore sessions;
+    private final Path saveDirectory;
+
+    /**
+     * Creates a service that listens on the given address once {@link #start() started}.
+     *
+     * @param address       the address to listen on; port 0 picks a free port
+     * @param saveDirectory the directory saved games are written to; created if missing
+     * @param sessions      the games being played
+     * @throws IOException if the address cannot be bound or the directory cannot be created
+     */
+    public SudokuHttpService(InetSocketAddress address, Path saveDirectory, SudokuSessionStore sessions)
+            throws IOException {
+        this.sessions = sessions;
+        this.saveDirectory = Files.createDirectories(saveDirectory);
+        server = HttpServer.create(address, 0);
+        server.createContext(GAMES, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waiting up to the given time for running requests to finish.
+     *
+     * @param delaySeconds the longest time to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the service listens on.
+     *
+     * @return the port number
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int status = 200;
+            String body;
+            try {
+                body = route(exchange);
+                if (isCollection(exchange.getRequestURI().getPath())) {
+                    status = 201;  // Only POST is routed to the collection
+                }
+            } catch (RequestException e) {
+                status = e.status;
+                body = error(e.getMessage());
+            } catch (NoSuchElementException e) {
+                status = 404;
+                body = error(e.getMessage());
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } catch (IOException e) {
+                status = 500;
+                body = error(e.getMessage());
+            } catch (UncheckedIOException e) {
+                status = 500;  // A game the store moved to disk could not be read back
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;  // Answered rather than leaving the client without a response
+                body = error(e.toString());
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    // Splits /games/{id}/{action} and dispatches on the method and the action
+    private String route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if (isCollection(path)) {
+            requireMethod(method, "POST");
+            return newGame(readBody(exchange));
+        }
+        if (!path.startsWith(GAMES + "/")) {
+            throw new RequestException(404, "not found");
+        }
+        String rest = path.substring(GAMES.length() + 1);
+        int slash = rest.indexOf('/');
+        String id = slash < 0 ? rest : rest.substring(0, slash);
+        String action = slash < 0 ? "" : rest.substring(slash + 1);
+
+        // The body is read before the game is locked, so a slow client does not hold the lock
+        switch (action) {
+            case "":
+                if (method.equals("DELETE")) {
+                    if (!sessions.remove(id)) {
+                        throw new RequestException(404, "no game " + id);
+                    }
+                    return "{}";
+                }
+                requireMethod(method, "GET");
+                return sessions.withSession(id, model -> game(id, model));
+            case "moves":
+                requireMethod(method, "POST");
+                Map<String, String> request = readBody(exchange);
+                return sessions.withSession(id, model -> move(id, model, request));
+            case "hint":
+                requireMethod(method, "POST");
+                return sessions.withSession(id, model -> hint(id, model));
+            case "check":
+                requireMethod(method, "GET");
+                return sessions.withSession(id, SudokuHttpService::check);
+            case "save":
+                requireMethod(method, "POST");
+                return sessions.withSession(id, model -> save(id, model));
+            case "load":
+                requireMethod(method, "POST");
+                return sessions.withSession(id, model -> load(id, model));
+            default:
+                throw new RequestException(404, "not found");
+        }
+    }
+
+    private static boolean isCollection(String path) {
+        return path.equals(GAMES) || path.equals(GAMES + "/");
+    }
+
+    private String newGame(Map<String, String> request) {
+        String levelName = request.getOrDefault("level", SudokuUtilities.SudokuLevel.EASY.name());
+        SudokuUtilities.SudokuLevel level;
+        try {
+            level = SudokuUtilities.SudokuLevel.valueOf(levelName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("level " + levelName);
+        }
+        String id = sessions.create(level);
+        return sessions.withSession(id, model -> game(id, model));
+    }
+
+    // The methods below run while the store holds the game's lock
+    private static String move(String id, SudokuModel model, Map<String, String> request) {
+        int row = intMember(request, "row", 0, SudokuUtilities.GRID_SIZE - 1);
+        int col = intMember(request, "col", 0, SudokuUtilities.GRID_SIZE - 1);
+        int value = intMember(request, "value", 0, SudokuUtilities.GRID_SIZE);
+        if (!model.isCellEditable(row, col)) {
+            throw new RequestException(409, "cell is given");
+        }
+        if (value != 0 && model.wouldConflict(row, col, value)) {
+            throw new RequestException(409, "value " + value + " is already in the row, column or box");
+        }
+        model.updateCell(row, col, value);
+        return game(id, model);
+    }
+
+    private static String hint(String id, SudokuModel model) {
+        SudokuHint hint = model.provideHint();  // Only valid until the next hint, so read it under the lock
+        StringBuilder json = new StringBuilder("{\"hint\":");
+        if (hint == null) {
+            json.append("null");
+        } else {
+            json.append("{\"row\":").append(hint.getRow())
+                    .append(",\"col\":").append(hint.getCol())
+                    .append(",\"value\":").append(hint.getValue())
+                    .append(",\"kind\":");
+            Json.quote(json, hint.getKind().name());
+            if (hint.getTechnique() != null) {
+                Json.quote(json.append(",\"technique\":"), hint.getTechnique().name());
+            }
+            json.append('}');
+        }
+        return json.append(",\"game\":").append(game(id, model)).append('}').toString();
+    }
+
+    private static String check(SudokuModel model) {
+        boolean correct = model.checkFilledNumbers();
+        boolean filled = model.isBoardFilled();
+        return "{\"correct\":" + correct + ",\"filled\":" + filled + ",\"solved\":" + (correct && filled) + '}';
+    }
+
+    private String save(String id, SudokuModel model) throws IOException {
+        Path file = saveFile(id);
+        SudokuIO.saveGameToFile(file.toString(), model);
+        return "{\"bytes\":" + Files.size(file) + '}';
+    }
+
+    private String load(String id, SudokuModel model) throws IOException {
+        ByteBuffer saved;
+        try {
+            saved = SudokuIO.readGameFile(saveFile(id).toString());
+        } catch (IOException e) {
+            if (e.getCause() instanceof NoSuchFileException) {
+                throw new RequestException(404, "game " + id + " was not saved");
+            }
+            throw e;
+        }
+        try {
+            SudokuIO.loadGame(saved, model);  // Checks the whole file before the game is changed
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RequestException(422, "saved game " + id + " is damaged: " + e.getMessage());
+        }
+        return game(id, model);
+    }
+
+    // Ids are generated by the store and looked up before they reach this method, so they are safe file names
+    private Path saveFile(String id) {
+        return saveDirectory.resolve(id + ".sdk");
+    }
+
+    private static String game(String id, SudokuModel model) {
+        int size = SudokuUtilities.GRID_SIZE;
+        StringBuilder json = new StringBuilder(256);
+        Json.quote(json.append("{\"id\":"), id);
+        Json.quote(json.append(",\"level\":"), model.getLevel().name());
+        json.append(",\"givens\":\"");
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                json.append(model.isCellEditable(row, col) ? 0 : model.getDisplayValue(row, col));
+            }
+        }
+        json.append("\",\"values\":\"");
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                json.append(model.getDisplayValue(row, col));
+            }
+        }
+        return json.append("\",\"filled\":").append(model.isBoardFilled()).append('}').toString();
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), message == null ? "" : message).append('}').toString();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new RequestException(405, "method " + method);
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                throw new RequestException(413, "body larger than " + MAX_BODY_SIZE + " bytes");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int intMember(Map<String, String> request, String name, int min, int max) {
+        String text = request.get(name);
+        if (text == null) throw new IllegalArgumentException("missing " + name);
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " " + text);
+        }
+        if (value < min || value > max) throw new IllegalArgumentException(name + " " + value);
+        return value;
+    }
+
+    // A request that cannot be served, answered with the given status; unchecked so it passes through the store
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -5,47 +5,80 @@ import javafx.stage.Stage;
 import model.*;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class SudokuController {
 
     final SudokuModel model; // Reference to the model (where data logic exists)
     final SudokuView view;   // Reference to the view (where UI handling occurs)
+    private final SudokuTaskRunner tasks; // Runs generation and file I/O off the JavaFX thread
+    private volatile SudokuJournal journal; // Autosave of the current game, null until it is opened
+    private SudokuGrid grid; // Game on a 4x4, 16x16 or 25x25 grid, null while the classic 9x9 board is shown
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000; // How long closing waits for a save in progress
+    private static final System.Logger LOGGER = System.getLogger(SudokuController.class.getName());
 
     public SudokuController(SudokuModel model, SudokuView view) {
         this.model = model;
         this.view = view;
+        this.tasks = new SudokuTaskRunner(view::setBusy, view::showError);
         this.view.addEventHandlers(this); // Add event handlers to the view
+        openAutosave();
+    }
+
+    // 0. Continue the game from the last session, or start autosaving the new one
+    private void openAutosave() {
+        Path path = Path.of(System.getProperty("user.home"), ".sudoku", "autosave.journal");
+        tasks.run(() -> { // Replays into the model off the JavaFX thread; every control stays disabled until it is done
+            Files.createDirectories(path.getParent());
+            journal = SudokuJournal.open(path, model);
+        });
     }
 
     // 1. Generate a new game with the selected difficulty level
     void generateNewGame() {
-        model.initializeBoard(model.currentLevel); // Initializes a new board
-        view.updateNumberTiles(); // Updates the UI with the new board
+        if (grid != null) {
+            generateGrid(grid.getShape(), grid.getLevel()); // Same size and level as the current grid
+            return;
+        }
+        SudokuUtilities.SudokuLevel level = model.getLevel();
+        // Take the puzzle in the background and show it on the JavaFX thread, which owns the model
+        tasks.run(() -> model.takePuzzle(level), model::initializeBoard);
     }
 
-    // 2. Choose difficulty level (easy, medium, hard) and generate a new game round
+    // 2. Choose difficulty level (easy, medium, hard, expert or extreme) and generate a new game round
     void chooseDifficulty(SudokuUtilities.SudokuLevel level) {
-        model.setDifficulty(level); // Reinitialize the board
-        view.updateNumberTiles(); // Update the view with the board
+        if (grid != null) {
+            generateGrid(grid.getShape(), level);
+            return;
+        }
+        tasks.run(() -> model.takePuzzle(level), model::initializeBoard); // Only the pool is used in the background
     }
 
     // 3. Save an unfinished game to a file
-    void saveGameToFile(Stage stage) throws IOException {
+    void saveGameToFile(Stage stage) {
         // Kalla på vyns metod för att spara spelet, som hanterar filväljaren
         String filePath = view.saveGame(stage); // Denna metod ska returnera sökvägen till den sparade filen
         if (filePath != null) { // Kontrollera att filen valdes
-            SudokuIO.saveGameToFile(filePath, model); // Anropa modellens metod för att spara spelet
+            tasks.run(() -> SudokuIO.saveGameToFile(filePath, model)); // Skriv filen i bakgrunden
         }
     }
 
 
     // 4. Load a saved game from a file
-    void loadGameFromFile(Stage stage) throws IOException, ClassNotFoundException {
+    void loadGameFromFile(Stage stage) {
         // Kalla på vyns metod för att ladda spelet, som hanterar filväljaren
         String filePath = view.loadGame(stage); // Denna metod ska returnera sökvägen till den laddade filen
         if (filePath != null) { // Kontrollera att filen valdes
-            SudokuIO.loadGameFromFile(filePath, model); // Anropa modellens metod för att ladda spelet
-            view.updateNumberTiles(); // Uppdatera vyn med den laddade spelstatusen
+            // Läs filen i bakgrunden och ladda spelet i modellen på JavaFX-tråden
+            tasks.run(() -> SudokuIO.readGameFile(filePath), buffer -> {
+                try {
+                    SudokuIO.loadGame(buffer, model);
+                } catch (IOException | ClassNotFoundException e) {
+                    view.showError(e);
+                }
+            });
         }
     }
 
@@ -54,14 +87,7 @@ public class SudokuController {
     void fillCell(int row, int col, int number) {
         if (model.isCellEditable(row, col)) { // Check if the cell is editable
             model.updateCell(row, col, number); // Update the model
-            view.updateNumberTiles(); // Update the UI to show the new value
-            if (model.isBoardFilled()) {
-                if (model.isDone()) {
-                    view.showAlert("Congratulations!", Alert.AlertType.INFORMATION);
-                } else {
-                    view.showAlert("Board is not filled with correct values", Alert.AlertType.WARNING);
-                }
-            }
+            checkIfDone();
         }
     }
 
@@ -69,19 +95,37 @@ public class SudokuController {
     void clearCell(int row, int col) {
         if (model.isCellEditable(row, col)) { // Check if the cell is editable
             model.updateCell(row, col, 0); // Set the cell to empty (0)
-            view.updateNumberTiles(); // Update the UI
+        }
+    }
+
+    // 6b. Note or remove a possible number (1-9) in a cell (which was initially empty)
+    void togglePencilMark(int row, int col, int number) {
+        model.togglePencilMark(row, col, number); // Ignored for given cells
+    }
+
+    // 6c. Fill in or clear (0) a cell of a grid of another size than 9x9
+    void fillGridCell(int row, int col, int number) {
+        if (grid.setValue(row, col, number)) { // Given cells are left unchanged
+            view.redrawGrid();
+            if (number != 0) {
+                checkIfDone();
+            }
         }
     }
 
     // 7. Clear
     void clearAllFilledCells() {
+        if (grid != null) {
+            grid.clearUserValues();
+            view.redrawGrid();
+            return;
+        }
         model.clearAllEmptyCells(); // Clear all empty cells in the model
-        view.updateNumberTiles(); // Update view to reflect model changes
     }
 
     // 8. Check if currently filled numbers are correct
     void checkFilledNumbers() {
-        if (model.checkFilledNumbers()) {
+        if (grid != null ? !grid.hasWrongEntries() : model.checkFilledNumbers()) {
             view.showAlert("All numbers are correct!", Alert.AlertType.INFORMATION);
         } else {
             view.showAlert("There are incorrect numbers. Please check your entries.", Alert.AlertType.WARNING);
@@ -93,12 +137,65 @@ public class SudokuController {
         view.showAlert(model.getGameRules(), Alert.AlertType.INFORMATION);
     }
 
-    // 10. Get help by filling a randomly selected cell with the correct solution
+    // 10. Get help by filling in the next logical move and explaining it
     void getHint() {
-        model.provideHint(); // Provide a hint
-        view.updateNumberTiles(); // Update the UI to reflect the hint
-        if (model.isBoardFilled()) {
-            if (model.isDone()) {
+        if (grid != null) {
+            grid.provideHint(); // Only reveals a value; the hint engine knows the 9x9 board only
+            view.redrawGrid();
+            checkIfDone();
+            return;
+        }
+        SudokuHint hint = model.provideHint(); // Tens of microseconds, so it runs on the JavaFX thread that owns the model
+        if (hint != null && !model.isBoardFilled()) {
+            view.showAlert(hint.toString(), Alert.AlertType.INFORMATION); // Förklara varför värdet gäller
+        }
+        checkIfDone();
+    }
+
+    // 11. Undo or redo the last move
+    void undo() {
+        model.undo();
+    }
+
+    void redo() {
+        model.redo();
+    }
+
+    // 12. Stop background work and write the last moves when the application closes
+    public void shutdown() {
+        if (!tasks.shutdown(SHUTDOWN_TIMEOUT_MILLIS)) { // The autosave may still be opening
+            LOGGER.log(System.Logger.Level.WARNING, "Background work did not finish before shutdown");
+        }
+        SudokuJournal autosave = journal;
+        if (autosave != null) {
+            try {
+                autosave.close();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not write the autosave", e);
+            }
+        }
+    }
+
+    // 13. Choose the board size; 9x9 plays on the classic board, other sizes on a generated grid
+    void chooseBoardSize(int boxSize) {
+        if (boxSize == SudokuShape.CLASSIC.getBoxSize()) {
+            grid = null;
+            view.showGrid(null);
+        } else {
+            generateGrid(SudokuShape.of(boxSize), model.getLevel());
+        }
+    }
+
+    private void generateGrid(SudokuShape shape, SudokuUtilities.SudokuLevel level) {
+        tasks.run(() -> new SudokuGridGenerator(shape).generate(level), generated -> { // Generate in the background
+            grid = generated;
+            view.showGrid(generated);
+        });
+    }
+
+    private void checkIfDone() {
+        if (grid != null ? grid.isFilled() : model.isBoardFilled()) {
+            if (grid != null ? grid.isSolved() : model.isDone()) {
                 view.showAlert("Congratulations!", Alert.AlertType.INFORMATION);
             } else {
                 view.showAlert("Board is not filled with correct values", Alert.AlertType.WARNING);
@@ -0,0 +1,141 @@
+package view;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import model.SudokuGrid;
+import model.SudokuShape;
+
+/**
+ * Draws a {@link SudokuGrid} of any size on a single canvas. A 25×25 grid would need 625
+ * labels with their own layout and styling; one canvas keeps the scene graph small and a
+ * redraw is a few hundred text calls. Digits above 9 are shown as letters, see
+ * {@link SudokuShape#symbolOf(int)}. The canvas tracks the selected cell for keyboard input.
+ */
+final class SudokuGridCanvas extends Canvas {
+
+    private static final double BOARD_SIZE = 450;  // Samma storlek som 9x9-rutnätet med etiketter
+    private static final Color SELECTED = Color.web("#dde8f5");
+
+    private SudokuGrid grid;
+    private String[] symbols = new String[0];  // Text per siffra, index 0 är tom
+    private Font userFont, givenFont;
+    private int selectedRow, selectedCol;
+
+    SudokuGridCanvas() {
+        super(BOARD_SIZE, BOARD_SIZE);
+        setFocusTraversable(true);
+    }
+
+    /**
+     * Shows another grid and selects its top left cell.
+     *
+     * @param grid the grid to draw
+     */
+    void setGrid(SudokuGrid grid) {
+        this.grid = grid;
+        int size = grid.getShape().getSize();
+        symbols = new String[size + 1];
+        symbols[0] = "";
+        for (int digit = 1; digit <= size; digit++) {
+            symbols[digit] = String.valueOf(SudokuShape.symbolOf(digit));
+        }
+        double fontSize = BOARD_SIZE / size * 0.55;
+        userFont = Font.font("Monospaced", FontWeight.LIGHT, fontSize);
+        givenFont = Font.font("Monospaced", FontWeight.BOLD, fontSize);
+        selectedRow = 0;
+        selectedCol = 0;
+        redraw();
+    }
+
+    SudokuGrid getGrid() {
+        return grid;
+    }
+
+    int getSelectedRow() {
+        return selectedRow;
+    }
+
+    int getSelectedCol() {
+        return selectedCol;
+    }
+
+    /**
+     * Selects the cell at a position on the canvas.
+     *
+     * @param x the horizontal position in pixels
+     * @param y the vertical position in pixels
+     * @return true if the position is inside the grid, false otherwise
+     */
+    boolean selectAt(double x, double y) {
+        int size = grid.getShape().getSize();
+        int row = (int) (y / (BOARD_SIZE / size));
+        int col = (int) (x / (BOARD_SIZE / size));
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            return false;
+        }
+        select(row, col);
+        return true;
+    }
+
+    /**
+     * Moves the selection, wrapping around the edges of the grid.
+     *
+     * @param rowDelta rows to move down, negative to move up
+     * @param colDelta columns to move right, negative to move left
+     */
+    void moveSelection(int rowDelta, int colDelta) {
+        int size = grid.getShape().getSize();
+        select((selectedRow + rowDelta + size) % size, (selectedCol + colDelta + size) % size);
+    }
+
+    private void select(int row, int col) {
+        selectedRow = row;
+        selectedCol = col;
+        redraw();
+    }
+
+    /**
+     * Draws the whole grid.
+     */
+    void redraw() {
+        if (grid == null) {
+            return;
+        }
+        GraphicsContext g = getGraphicsContext2D();
+        SudokuShape shape = grid.getShape();
+        int size = shape.getSize();
+        double cell = BOARD_SIZE / size;
+
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, BOARD_SIZE, BOARD_SIZE);
+        g.setFill(SELECTED);
+        g.fillRect(selectedCol * cell, selectedRow * cell, cell, cell);
+
+        // Siffror: fasta i fetstil, användarens i tunn stil och dubbletter i rött
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = grid.getValue(row, col);
+                if (value != 0) {
+                    g.setFont(grid.isCellEditable(row, col) ? userFont : givenFont);
+                    g.setFill(grid.isConflicting(row, col) ? Color.RED : Color.BLACK);
+                    g.fillText(symbols[value], (col + 0.5) * cell, (row + 0.5) * cell);
+                }
+            }
+        }
+
+        // Tunna linjer mellan rutor och tjocka runt varje box
+        g.setStroke(Color.BLACK);
+        for (int line = 0; line <= size; line++) {
+            g.setLineWidth(line % shape.getBoxSize() == 0 ? 2 : 0.5);
+            g.strokeLine(0, line * cell, BOARD_SIZE, line * cell);
+            g.strokeLine(line * cell, 0, line * cell, BOARD_SIZE);
+        }
+    }
+}
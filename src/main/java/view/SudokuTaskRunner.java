@@ -0,0 +1,109 @@
+package view;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs slow model and file work on virtual threads so that the JavaFX application thread never blocks.
+ * Results and failures are handed back on the application thread with {@link Platform#runLater}.
+ * While any task is running the busy handler is told to disable the controls that could
+ * interfere with it. All methods must be called on the JavaFX application thread.
+ */
+final class SudokuTaskRunner {
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sudoku-task-", 0).factory());
+    private final Consumer<Boolean> busyHandler;   // Called with true when work starts and false when all work is done
+    private final Consumer<Exception> errorHandler;
+    private int running;  // Tasks started and not yet finished
+
+    SudokuTaskRunner(Consumer<Boolean> busyHandler, Consumer<Exception> errorHandler) {
+        this.busyHandler = busyHandler;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Runs work in the background and passes its result to a callback on the application thread.
+     *
+     * @param work      the work to run, off the application thread
+     * @param onSuccess receives the result on the application thread
+     * @param <T>       the type of the result
+     */
+    <T> void run(Callable<T> work, Consumer<T> onSuccess) {
+        if (running++ == 0) {
+            busyHandler.accept(true);
+        }
+        executor.execute(() -> {
+            try {
+                T result = work.call();
+                Platform.runLater(() -> {
+                    finished();
+                    onSuccess.accept(result);
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    finished();
+                    errorHandler.accept(e);
+                });
+            }
+        });
+    }
+
+    /**
+     * Runs work in the background.
+     *
+     * @param work the work to run, off the application thread
+     */
+    void run(Action work) {
+        run(work, () -> { });
+    }
+
+    /**
+     * Runs work in the background and then a callback on the application thread.
+     *
+     * @param work       the work to run, off the application thread
+     * @param onFinished runs on the application thread when the work has succeeded
+     */
+    void run(Action work, Runnable onFinished) {
+        run(() -> {
+            work.run();
+            return null;
+        }, result -> onFinished.run());
+    }
+
+    /**
+     * Stops accepting work and waits for the tasks already running to complete, so that
+     * nothing they write is cut off. Their callbacks are not run.
+     *
+     * @param timeoutMillis how long to wait at most
+     * @return true if all tasks completed, false if the wait timed out or was interrupted
+     */
+    boolean shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void finished() {
+        if (--running == 0) {
+            busyHandler.accept(false);
+        }
+    }
+
+    /**
+     * Work without a result that may fail with a checked exception.
+     */
+    @FunctionalInterface
+    interface Action {
+        void run() throws Exception;
+    }
+}
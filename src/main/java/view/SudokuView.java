@@ -1,9 +1,12 @@
 package view;
 
-import javafx.event.EventHandler;
 import javafx.geometry.Insets;
+import javafx.scene.Cursor;
 import javafx.scene.control.*;
-import javafx.scene.input.MouseEvent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.geometry.Pos;
 import javafx.scene.paint.Color;
@@ -11,36 +14,62 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import model.SudokuGrid;
+import model.SudokuGridGenerator;
 import model.SudokuModel;
+import model.SudokuShape;
 import model.SudokuUtilities;
 import javafx.application.Platform;
 
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class SudokuView  {
     private static final int GRID_SIZE = 9;
     private static final int SECTION_SIZE = 3;
     private static final int SECTIONS_PER_ROW = 3;
 
+    // Delas av alla rutor så att en uppdatering inte skapar nya objekt
+    private static final Font USER_FONT = Font.font("Monospaced", FontWeight.LIGHT, 20);   // Användarens ifyllda nummer
+    private static final Font GIVEN_FONT = Font.font("Monospaced", FontWeight.BOLD, 20);   // Fasta värden
+    private static final String TILE_STYLE = "-fx-border-color: black; -fx-border-width: 0.5px;";
+    private static final String FOCUSED_TILE_STYLE = TILE_STYLE + " -fx-background-color: #dde8f5;";
+    private static final String[] DIGITS = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    private static final Font MARK_FONT = Font.font("Monospaced", 10);                     // Anteckningar i tomma rutor
+    private static final String[] MARK_TEXTS = new String[1 << GRID_SIZE];                 // 3x3-text per mask, skapas vid behov
+
     private SudokuModel model;
     private int selectedNumber;
+    private boolean showCandidates; // Visa modellens kandidater i stället för användarens anteckningar
+    private boolean gridMode;       // Ett rutnät av annan storlek än 9x9 visas
+    private boolean busy;
+    private final boolean[] dirtyTiles = new boolean[GRID_SIZE * GRID_SIZE]; // Rutor att rita om, nollställs efter varje uppdatering
 
     // GUI elements
     private MenuBar menuBar;
     private VBox mainLayout;
+    private BorderPane root;
     private GridPane numberPane;
+    private VBox numberSelector;
+    private SudokuGridCanvas gridCanvas; // Ritar rutnät av alla storlekar på en enda yta
     private VBox leftButtons;
     private Label[][] numberTiles;
     private MenuItem clearBoardItem;
+    private MenuItem undoItem, redoItem;
+    private CheckMenuItem showCandidatesItem;
+    private ToggleButton notesButton;
     private Button clearButton;
     private Button hintButton;
     private Button checkButton;
     private MenuItem getGameRulesItem;
     private MenuItem newGame;
     private Menu selectDifficultyMenu;
-    private MenuItem easy, medium, hard;
+    private Menu boardSizeMenu;
+    private RadioMenuItem[] boardSizeItems; // Index är boxens storlek
+    private MenuItem easy, medium, hard, expert, extreme;
+    private SudokuUtilities.SudokuLevel hardestLevel = SudokuUtilities.SudokuLevel.EXTREME; // Svåraste nivån för visad storlek
     private MenuItem loadGameItem, saveGameItem, exitItem;
 
     // Konstruktor och layoutinitialisering
@@ -49,17 +78,21 @@ public class SudokuView  {
         this.numberTiles = new Label[GRID_SIZE][GRID_SIZE]; // Initialize number tiles
 
         initLayout(); // Initialize layout components
+        model.addChangeListener(this::cellsChanged); // Rita bara om de rutor som ändrats
     }
 
     private void initLayout() {
+        createNumberTiles();
         updateNumberTiles();
         numberPane = makeNumberPane(); // Create number pane
         numberPane.setPrefWidth(100); // Adjust to appropriate size
 
-        VBox numberSelector = createNmrButtons(); // Create number selection buttons
+        gridCanvas = new SudokuGridCanvas();
+
+        numberSelector = createNmrButtons(); // Create number selection buttons
         leftButtons = createLeftButtons(); // Create left side buttons
 
-        BorderPane root = new BorderPane();
+        root = new BorderPane();
         root.setLeft(leftButtons);
         root.setCenter(numberPane);
         root.setRight(numberSelector);
@@ -108,8 +141,9 @@ public class SudokuView  {
 
         checkButton = new Button("Check");
         hintButton = new Button("Hint");
+        notesButton = new ToggleButton("Notes"); // Klick och siffror skriver anteckningar när knappen är nedtryckt
 
-        leftSideButtons.getChildren().addAll(spacerTop, checkButton, hintButton, spacerBottom);
+        leftSideButtons.getChildren().addAll(spacerTop, checkButton, hintButton, notesButton, spacerBottom);
         return leftSideButtons;
     }
 
@@ -127,85 +161,176 @@ public class SudokuView  {
         easy = new MenuItem("Easy");
         medium = new MenuItem("Medium");
         hard = new MenuItem("Hard");
+        expert = new MenuItem("Expert");
+        extreme = new MenuItem("Extreme");
+        boardSizeMenu = new Menu("Board size");
+        boardSizeItems = new RadioMenuItem[SudokuShape.MAX_BOX_SIZE + 1];
+        ToggleGroup boardSizeGroup = new ToggleGroup();
+        for (int boxSize = SudokuShape.MIN_BOX_SIZE; boxSize <= SudokuShape.MAX_BOX_SIZE; boxSize++) {
+            RadioMenuItem item = new RadioMenuItem(SudokuShape.of(boxSize).toString());
+            item.setToggleGroup(boardSizeGroup);
+            boardSizeItems[boxSize] = item;
+            boardSizeMenu.getItems().add(item);
+        }
+        boardSizeItems[SudokuShape.CLASSIC.getBoxSize()].setSelected(true);
+
+        Menu editMenu = new Menu("Edit");
+        undoItem = new MenuItem("Undo");
+        undoItem.setAccelerator(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN));
+        redoItem = new MenuItem("Redo");
+        redoItem.setAccelerator(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN));
+        showCandidatesItem = new CheckMenuItem("Show candidates");
 
         Menu helpMenu = new Menu("Help");
         clearBoardItem = new MenuItem("Clear board");
         getGameRulesItem = new MenuItem("Get game rules");
 
         fileMenu.getItems().addAll(loadGameItem, saveGameItem, exitItem);
-        gameMenu.getItems().addAll(newGame, selectDifficultyMenu);
+        gameMenu.getItems().addAll(newGame, selectDifficultyMenu, boardSizeMenu);
+        editMenu.getItems().addAll(undoItem, redoItem, new SeparatorMenuItem(), showCandidatesItem);
         helpMenu.getItems().addAll(clearBoardItem, getGameRulesItem);
-        menuBar.getMenus().addAll(fileMenu, gameMenu, helpMenu);
-        selectDifficultyMenu.getItems().addAll(easy, medium, hard);
+        menuBar.getMenus().addAll(fileMenu, gameMenu, editMenu, helpMenu);
+        selectDifficultyMenu.getItems().addAll(easy, medium, hard, expert, extreme);
 
         return menuBar;
     }
 
     // Modell- och layoutuppdatering
-    void updateNumberTiles() {
-        int[][] boardState = model.getBoardState(); // Get current state
+    private void createNumberTiles() {
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                Label tile = new Label();
+                tile.setPrefWidth(50);
+                tile.setPrefHeight(50);
+                tile.setAlignment(Pos.CENTER);
+                tile.setStyle(TILE_STYLE);
+                tile.setTextFill(Color.BLACK); // Samma färg för initiala och ifyllda nummer
+                tile.setFocusTraversable(true); // Rutan kan ta emot tangenttryckningar
+                tile.focusedProperty().addListener((obs, wasFocused, isFocused) ->
+                        tile.setStyle(isFocused ? FOCUSED_TILE_STYLE : TILE_STYLE));
+                numberTiles[row][col] = tile; // Lägg till i rutnätet
+            }
+        }
+    }
 
+    // Uppdaterar alla rutor, t.ex. när vyn skapas
+    void updateNumberTiles() {
         for (int row = 0; row < GRID_SIZE; row++) {
             for (int col = 0; col < GRID_SIZE; col++) {
-                if (numberTiles[row][col] == null) {
-                    // Om rutan inte finns ännu, skapa den
-                    Label tile = new Label();
-                    tile.setPrefWidth(50);
-                    tile.setPrefHeight(50);
-                    tile.setAlignment(Pos.CENTER);
-                    tile.setStyle("-fx-border-color: black; -fx-border-width: 0.5px;");
-                    numberTiles[row][col] = tile; // Lägg till i rutnätet
-                }
+                updateTile(row, col);
+            }
+        }
+    }
 
-                // Uppdatera rutans innehåll
-                if (boardState[row][col] == 0) {
-                    numberTiles[row][col].setText(""); // Töm rutan om värdet är 0
-                } else {
-                    if (model.copiedBoard[row][col].getInitialValue() == 0){
-                        numberTiles[row][col].setFont(Font.font("Monospaced", FontWeight.LIGHT, 20)); // Ändra till önskat teckensnitt
-                        numberTiles[row][col].setTextFill(Color.BLACK); // Färg för användarens ifyllda nummer
-                    } else {
-                        // För fasta värden, använd annan stil
-                        numberTiles[row][col].setFont(Font.font("Monospaced", FontWeight.BOLD, 20));
-                        numberTiles[row][col].setTextFill(Color.BLACK); // Färg för initiala värden
-                    }
-                    numberTiles[row][col].setText(String.valueOf(boardState[row][col])); // Uppdatera rutans nummer
-                }
+    // Modellen kan ändras av bakgrundsarbete; rutorna får bara röras från JavaFX-tråden
+    private void cellsChanged(int[] cells, int count) {
+        if (Platform.isFxApplicationThread()) {
+            updateChangedTiles(cells, count);
+        } else {
+            int[] changed = Arrays.copyOf(cells, count); // Modellen återanvänder arrayen
+            Platform.runLater(() -> updateChangedTiles(changed, changed.length));
+        }
+    }
+
+    // Uppdaterar bara de rutor som modellen rapporterat som ändrade, och de grannar vars visning kan ha ändrats
+    private void updateChangedTiles(int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            int row = cells[i] / GRID_SIZE;
+            int col = cells[i] % GRID_SIZE;
+            int boxRow = row - row % SECTION_SIZE;
+            int boxCol = col - col % SECTION_SIZE;
+            dirtyTiles[cells[i]] = true;
+            // Ett ändrat värde kan skapa eller lösa upp konflikter i raden, kolumnen och rutan,
+            // och ändrar kandidaterna där; anteckningar i tomma grannrutor påverkas inte
+            for (int j = 0; j < GRID_SIZE; j++) {
+                markPeer(row, j);
+                markPeer(j, col);
+                markPeer(boxRow + j / SECTION_SIZE, boxCol + j % SECTION_SIZE);
+            }
+        }
+        for (int cell = 0; cell < dirtyTiles.length; cell++) {
+            if (dirtyTiles[cell]) {
+                dirtyTiles[cell] = false;
+                updateTile(cell / GRID_SIZE, cell % GRID_SIZE);
             }
         }
     }
 
+    private void markPeer(int row, int col) {
+        if (showCandidates || model.getDisplayValue(row, col) != 0) {
+            dirtyTiles[row * GRID_SIZE + col] = true;
+        }
+    }
 
-    // Händelsehantering
-    public void addEventHandlers(SudokuController controller) {
-        EventHandler<MouseEvent> tileClickHandler = new EventHandler<MouseEvent>() {
-            @Override
-            public void handle(MouseEvent event) {
-                // Bestäm vilken cell som klickades
-                for (int row = 0; row < GRID_SIZE; row++) {
-                    for (int col = 0; col < GRID_SIZE; col++) {
-                        if (event.getSource() == numberTiles[row][col]) {
-                            if (selectedNumber == 10) {
-                                controller.clearCell(row, col); // Rensa cell om "C" är valt
-                            } else {
-                                controller.fillCell(row, col, selectedNumber); // Fyll cellen
-                            }
-                            return; // Avsluta efter att cellen har hanterats
-                        }
-                    }
+    private void updateTile(int row, int col) {
+        Label tile = numberTiles[row][col];
+        int value = model.getDisplayValue(row, col);
+        if (value != 0) {
+            // Fasta värden visas i fetstil, användarens nummer i tunn stil
+            tile.setFont(model.isCellEditable(row, col) ? USER_FONT : GIVEN_FONT);
+            tile.setTextFill(model.isConflicting(row, col) ? Color.RED : Color.BLACK); // Dubbletter visas i rött
+            tile.setText(DIGITS[value]);
+        } else {
+            // Tomma rutor visar kandidaterna eller användarens anteckningar i ett litet 3x3-rutnät
+            int marks = showCandidates ? model.getCandidates(row, col) : model.getPencilMarks(row, col);
+            tile.setFont(MARK_FONT);
+            tile.setTextFill(Color.BLACK);
+            tile.setText(markText(marks));
+        }
+    }
+
+    private static String markText(int marks) {
+        String text = MARK_TEXTS[marks];
+        if (text == null) {
+            StringBuilder builder = new StringBuilder(2 * GRID_SIZE);
+            for (int digit = 1; digit <= GRID_SIZE; digit++) {
+                builder.append((marks & (1 << (digit - 1))) != 0 ? (char) ('0' + digit) : ' ');
+                if (digit < GRID_SIZE) {
+                    builder.append(digit % SECTION_SIZE == 0 ? '\n' : ' ');
                 }
             }
-        };
+            text = marks == 0 ? "" : builder.toString();
+            MARK_TEXTS[marks] = text;
+        }
+        return text;
+    }
+
 
-        // Sätt event handler för varje cell
+    // Händelsehantering
+    public void addEventHandlers(SudokuController controller) {
+        // Varje ruta får en egen hanterare som redan vet sin rad och kolumn
         for (int row = 0; row < GRID_SIZE; row++) {
             for (int col = 0; col < GRID_SIZE; col++) {
-                numberTiles[row][col].setOnMouseClicked(tileClickHandler);
+                Label tile = numberTiles[row][col];
+                int tileRow = row;
+                int tileCol = col;
+                tile.setOnMouseClicked(e -> {
+                    tile.requestFocus(); // Gör att tangentbordet skriver i den klickade rutan
+                    enterNumber(controller, tileRow, tileCol, selectedNumber);
+                });
+                tile.setOnKeyPressed(e -> handleTileKey(controller, tileRow, tileCol, e));
             }
         }
 
+        // Rutnät av andra storlekar: klick väljer ruta, tangenter skriver 1-9 och A-P
+        gridCanvas.setOnMouseClicked(e -> {
+            gridCanvas.requestFocus();
+            gridCanvas.selectAt(e.getX(), e.getY());
+        });
+        gridCanvas.setOnKeyPressed(e -> handleGridKey(controller, e));
+        for (int boxSize = SudokuShape.MIN_BOX_SIZE; boxSize <= SudokuShape.MAX_BOX_SIZE; boxSize++) {
+            int size = boxSize;
+            boardSizeItems[boxSize].setOnAction(e -> controller.chooseBoardSize(size));
+        }
+
         // Hantering av övriga kontroller
         clearBoardItem.setOnAction(e -> controller.clearAllFilledCells());
+        undoItem.setOnAction(e -> controller.undo());
+        redoItem.setOnAction(e -> controller.redo());
+        showCandidatesItem.setOnAction(e -> {
+            showCandidates = showCandidatesItem.isSelected();
+            updateNumberTiles();
+        });
         hintButton.setOnAction(e -> controller.getHint());
         checkButton.setOnAction(e -> controller.checkFilledNumbers());
         getGameRulesItem.setOnAction(e -> controller.getGameRules());
@@ -213,32 +338,141 @@ public class SudokuView  {
         easy.setOnAction(e -> controller.chooseDifficulty(SudokuUtilities.SudokuLevel.EASY));
         medium.setOnAction(e -> controller.chooseDifficulty(SudokuUtilities.SudokuLevel.MEDIUM));
         hard.setOnAction(e -> controller.chooseDifficulty(SudokuUtilities.SudokuLevel.HARD));
-        loadGameItem.setOnAction(e -> {
-            try {
-                controller.loadGameFromFile((Stage) mainLayout.getScene().getWindow());
-            } catch (IOException | ClassNotFoundException ex) {
-                throw new RuntimeException(ex);
-            }
-        });
-        saveGameItem.setOnAction(e -> {
-            try {
-                controller.saveGameToFile((Stage) mainLayout.getScene().getWindow());
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
-        });
-        exitItem.setOnAction(e -> Platform.exit());
+        expert.setOnAction(e -> controller.chooseDifficulty(SudokuUtilities.SudokuLevel.EXPERT));
+        extreme.setOnAction(e -> controller.chooseDifficulty(SudokuUtilities.SudokuLevel.EXTREME));
+        loadGameItem.setOnAction(e -> controller.loadGameFromFile((Stage) mainLayout.getScene().getWindow()));
+        saveGameItem.setOnAction(e -> controller.saveGameToFile((Stage) mainLayout.getScene().getWindow()));
+        exitItem.setOnAction(e -> Platform.exit()); // SudokuMain.stop() sparar och stänger
     }
 
 
     // Hjälpmetoder
+    private void enterNumber(SudokuController controller, int row, int col, int number) {
+        if (number == 0 || number == 10) {
+            controller.clearCell(row, col); // Rensa cell om "C" är valt, även i anteckningsläge
+        } else if (notesButton.isSelected()) {
+            controller.togglePencilMark(row, col, number); // Anteckna eller ta bort en möjlig siffra
+        } else {
+            controller.fillCell(row, col, number); // Fyll cellen
+        }
+    }
+
+    // Siffror fyller rutan, 0, Delete och Backspace tömmer den och piltangenterna flyttar fokus
+    private void handleTileKey(SudokuController controller, int row, int col, KeyEvent event) {
+        KeyCode code = event.getCode();
+        String text = event.getText();
+        if (text.length() == 1 && text.charAt(0) >= '0' && text.charAt(0) <= '9') {
+            enterNumber(controller, row, col, text.charAt(0) - '0');
+        } else if (code == KeyCode.DELETE || code == KeyCode.BACK_SPACE) {
+            enterNumber(controller, row, col, 0);
+        } else if (code == KeyCode.UP) {
+            numberTiles[(row + GRID_SIZE - 1) % GRID_SIZE][col].requestFocus();
+        } else if (code == KeyCode.DOWN) {
+            numberTiles[(row + 1) % GRID_SIZE][col].requestFocus();
+        } else if (code == KeyCode.LEFT) {
+            numberTiles[row][(col + GRID_SIZE - 1) % GRID_SIZE].requestFocus();
+        } else if (code == KeyCode.RIGHT) {
+            numberTiles[row][(col + 1) % GRID_SIZE].requestFocus();
+        } else {
+            return;
+        }
+        event.consume(); // Hindra att piltangenterna flyttar fokus till andra kontroller
+    }
+
+    // Samma tangenter som för 9x9-rutorna, men siffror över 9 skrivs som bokstäver
+    private void handleGridKey(SudokuController controller, KeyEvent event) {
+        KeyCode code = event.getCode();
+        String text = event.getText();
+        int row = gridCanvas.getSelectedRow();
+        int col = gridCanvas.getSelectedCol();
+        int digit = text.length() == 1 ? gridCanvas.getGrid().getShape().digitOf(text.charAt(0)) : 0;
+        if (digit != 0) {
+            controller.fillGridCell(row, col, digit);
+        } else if (code == KeyCode.DIGIT0 || code == KeyCode.DELETE || code == KeyCode.BACK_SPACE) {
+            controller.fillGridCell(row, col, 0);
+        } else if (code == KeyCode.UP) {
+            gridCanvas.moveSelection(-1, 0);
+        } else if (code == KeyCode.DOWN) {
+            gridCanvas.moveSelection(1, 0);
+        } else if (code == KeyCode.LEFT) {
+            gridCanvas.moveSelection(0, -1);
+        } else if (code == KeyCode.RIGHT) {
+            gridCanvas.moveSelection(0, 1);
+        } else {
+            return;
+        }
+        event.consume();
+    }
+
+    // Visar ett rutnät av annan storlek, eller 9x9-brädet igen om grid är null
+    void showGrid(SudokuGrid grid) {
+        gridMode = grid != null;
+        if (gridMode) {
+            gridCanvas.setGrid(grid);
+            root.setCenter(gridCanvas);
+            root.setRight(null); // Sifferknapparna räcker inte till större rutnät, tangentbordet används
+            boardSizeItems[grid.getShape().getBoxSize()].setSelected(true);
+            hardestLevel = SudokuGridGenerator.hardestLevel(grid.getShape());
+            gridCanvas.requestFocus();
+        } else {
+            root.setCenter(numberPane);
+            root.setRight(numberSelector);
+            boardSizeItems[SudokuShape.CLASSIC.getBoxSize()].setSelected(true);
+            hardestLevel = SudokuUtilities.SudokuLevel.EXTREME;
+        }
+        updateControls();
+    }
+
+    void redrawGrid() {
+        gridCanvas.redraw();
+    }
+
     void showAlert(String message, Alert.AlertType alertType) {
         Alert alert = new Alert(alertType);
-        alert.setTitle(alertType == Alert.AlertType.INFORMATION ? "Information" : "Warning");
+        alert.setTitle(alertType == Alert.AlertType.INFORMATION ? "Information"
+                : alertType == Alert.AlertType.ERROR ? "Error" : "Warning");
         alert.setContentText(message);
         alert.showAndWait();
     }
 
+    // Visar ett fel från bakgrundsarbete, t.ex. en fil som inte kunde läsas
+    void showError(Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (e instanceof IOException || e instanceof ClassNotFoundException) {
+            message = "The game file could not be read or written: " + message;
+        }
+        showAlert(message, Alert.AlertType.ERROR);
+    }
+
+    // Stänger av kontrollerna som kan störa pågående bakgrundsarbete
+    void setBusy(boolean busy) {
+        this.busy = busy;
+        updateControls();
+        mainLayout.setCursor(busy ? Cursor.WAIT : Cursor.DEFAULT);
+    }
+
+    private void updateControls() {
+        numberPane.setDisable(busy);
+        gridCanvas.setDisable(busy);
+        leftButtons.setDisable(busy);
+        newGame.setDisable(busy);
+        selectDifficultyMenu.setDisable(busy);
+        boardSizeMenu.setDisable(busy);
+        clearBoardItem.setDisable(busy);
+        // Stora rutnät genereras bara upp till en viss nivå
+        medium.setDisable(hardestLevel.compareTo(SudokuUtilities.SudokuLevel.MEDIUM) < 0);
+        hard.setDisable(hardestLevel.compareTo(SudokuUtilities.SudokuLevel.HARD) < 0);
+        expert.setDisable(hardestLevel.compareTo(SudokuUtilities.SudokuLevel.EXPERT) < 0);
+        extreme.setDisable(hardestLevel.compareTo(SudokuUtilities.SudokuLevel.EXTREME) < 0);
+        // Sparade spel, ångra och anteckningar finns bara för 9x9-brädet
+        loadGameItem.setDisable(busy || gridMode);
+        saveGameItem.setDisable(busy || gridMode);
+        undoItem.setDisable(busy || gridMode);
+        redoItem.setDisable(busy || gridMode);
+        notesButton.setDisable(gridMode);
+        showCandidatesItem.setDisable(busy || gridMode);  // Ritar om brädet från modellen
+    }
+
     private GridPane makeNumberPane() {
         GridPane root = new GridPane();
         root.setStyle("-fx-border-color: black; -fx-border-width: 1.0px; -fx-background-color: white;");
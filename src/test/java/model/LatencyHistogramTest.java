@@ -0,0 +1,90 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);  // Counted as 0
+        assertEquals(17, histogram.count());
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(7, histogram.percentile(50));
+        assertEquals(15, histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesAreWithinTheRelativeError() {
+        SplittableRandom random = new SplittableRandom(1);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 40);  // Spread over many powers of two
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long reported = histogram.percentile(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " " + reported + " below " + exact);
+            assertTrue(reported <= exact + exact / 16 + 1, "p" + percentile + " " + reported + " too far above " + exact);
+        }
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    @Test
+    void histogramsAreAddedAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            first.record(1000);
+            second.record(1_000_000);
+        }
+        first.add(second);
+        assertEquals(200, first.count());
+        assertTrue(first.percentile(50) < 1100);
+        assertTrue(first.percentile(51) >= 1_000_000);
+        assertEquals(100, second.count());
+
+        first.reset();
+        assertEquals(0, first.count());
+        assertEquals(0, first.percentile(100));
+    }
+
+    @Test
+    void recordingFromManyThreadsLosesNothing() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int thread = 0; thread < 8; thread++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        histogram.record(i % 50);  // Few buckets, so the threads contend
+                    }
+                });
+            }
+        }
+        assertEquals(800_000, histogram.count());
+        assertEquals(49, histogram.percentile(100));
+    }
+}
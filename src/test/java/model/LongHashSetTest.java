@@ -0,0 +1,74 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void keepsLongsWhileGrowing() {
+        LongHashSet set = new LongHashSet(0);
+        Set<Long> expected = new HashSet<>();
+        SplittableRandom random = new SplittableRandom(6);
+        for (int i = 0; i < 100_000; i++) {
+            // A quarter of the values differ only in their high bits
+            long value = random.nextInt(4) == 0 ? random.nextLong(1000) << 40 : random.nextLong();
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value : expected) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains(1L << 62 | 12345));
+    }
+
+    @Test
+    void zeroIsAValue() {
+        LongHashSet set = new LongHashSet(4);
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+
+        LongHashSet pairs = LongHashSet.ofPairs(4);
+        assertTrue(pairs.add(0, 0));
+        assertTrue(pairs.add(0, 1));
+        assertTrue(pairs.add(1, 0));
+        assertTrue(pairs.contains(0, 0));
+        assertEquals(3, pairs.size());
+    }
+
+    @Test
+    void keepsPairsThatShareAHalf() {
+        LongHashSet set = LongHashSet.ofPairs(0);
+        for (long high = 1; high <= 300; high++) {
+            for (long low = 1; low <= 300; low++) {
+                assertTrue(set.add(high, low));
+            }
+        }
+        assertEquals(90_000, set.size());
+        for (long high = 1; high <= 300; high++) {
+            for (long low = 1; low <= 300; low++) {
+                assertTrue(set.contains(high, low));
+                assertFalse(set.add(high, low));
+            }
+        }
+        assertFalse(set.contains(1, 301));
+        assertFalse(set.contains(301, 1));
+    }
+
+    @Test
+    void rejectsInvalidUse() {
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(4).add(1, 2));
+    }
+}
@@ -0,0 +1,125 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static model.SudokuTestGames.editableCells;
+import static model.SudokuTestGames.values;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuArchiveTest {
+
+    // The file layout documented in SudokuArchive
+    private static final int HEADER_SIZE = 16;
+    private static final int HALF_SIZE = (SudokuIO.MAX_GAME_SIZE + 3) & ~3;
+    private static final int SLOT_SIZE = 8 + 2 * HALF_SIZE;
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void gamesAreKeptAcrossReopening() throws IOException {
+        Path path = directory.resolve("games.archive");
+        SudokuModel[] models = new SudokuModel[10];
+        int[] slots = new int[models.length];
+        try (SudokuArchive archive = SudokuArchive.open(path, 100)) {
+            for (int i = 0; i < models.length; i++) {
+                models[i] = new SudokuModel(pool, SudokuUtilities.SudokuLevel.values()[i % 3]);
+                int cell = editableCells(models[i])[0];
+                models[i].updateCell(cell / 9, cell % 9, 1 + i % 9);
+                slots[i] = archive.saveNew(models[i]);
+            }
+            archive.free(slots[3]);
+            assertFalse(archive.isUsed(slots[3]));
+        }
+
+        try (SudokuArchive archive = SudokuArchive.open(path, 5)) {
+            assertEquals(100, archive.getSlotCount(), "an existing archive keeps its slot count");
+            SudokuModel loaded = new SudokuModel(pool);
+            for (int i = 0; i < models.length; i++) {
+                assertEquals(i != 3, archive.load(slots[i], loaded));
+                if (i != 3) {
+                    assertEquals(values(models[i]), values(loaded));
+                    assertEquals(models[i].getLevel(), loaded.getLevel());
+                }
+            }
+            assertEquals(slots[3], archive.allocateSlot(), "a freed slot is handed out again");
+        }
+    }
+
+    @Test
+    void saveReplacesTheGameInASlot() throws IOException {
+        try (SudokuArchive archive = SudokuArchive.open(directory.resolve("games.archive"), 2)) {
+            SudokuModel model = new SudokuModel(pool);
+            int slot = archive.saveNew(model);
+            int cell = editableCells(model)[0];
+            for (int value = 1; value <= 9; value++) {
+                model.updateCell(cell / 9, cell % 9, value);
+                archive.save(slot, model);
+            }
+            SudokuModel loaded = new SudokuModel(pool);
+            assertTrue(archive.load(slot, loaded));
+            assertEquals(values(model), values(loaded));
+
+            archive.allocateSlot();
+            assertThrows(IOException.class, archive::allocateSlot, "every slot is in use");
+        }
+    }
+
+    @Test
+    void damagedGameFallsBackToTheOneSavedBefore() throws IOException {
+        Path path = directory.resolve("games.archive");
+        SudokuModel model = new SudokuModel(pool);
+        int cell = editableCells(model)[0];
+        String before;
+        try (SudokuArchive archive = SudokuArchive.open(path, 4)) {
+            model.updateCell(cell / 9, cell % 9, 4);
+            archive.save(0, model);  // Generation 1, in the odd half
+            before = values(model);
+            model.updateCell(cell / 9, cell % 9, 5);
+            archive.save(0, model);  // Generation 2, in the even half
+            archive.save(1, model);  // Generation 1 only
+        }
+
+        // As if the generation reached the disk but the game it publishes did not
+        damage(path, HEADER_SIZE + 8);
+        damage(path, HEADER_SIZE + SLOT_SIZE + 8 + HALF_SIZE);
+
+        try (SudokuArchive archive = SudokuArchive.open(path, 4)) {
+            SudokuModel loaded = new SudokuModel(pool);
+            assertTrue(archive.load(0, loaded));
+            assertEquals(before, values(loaded));
+            assertNotEquals(values(model), values(loaded));
+            assertThrows(IOException.class, () -> archive.load(1, loaded), "no earlier game to fall back to");
+        }
+    }
+
+    // Flips a bit in the packed givens of the game stored at a file offset
+    private static void damage(Path path, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(1);
+            long position = offset + SudokuIO.HEADER_SIZE + 3;
+            channel.read(bytes, position);
+            bytes.put(0, (byte) (bytes.get(0) ^ 0x10));
+            channel.write(bytes.rewind(), position);
+        }
+    }
+}
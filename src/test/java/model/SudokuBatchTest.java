@@ -0,0 +1,102 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static model.SudokuTestGames.board;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SudokuBatchTest {
+
+    private static final String PUZZLE =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    private static final String DOTTED =
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+    private static final String OTHER =
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+    private static final String CONFLICT =
+            "550070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    private static final String EMPTY = "0".repeat(81);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void puzzlesAreSolvedInInputOrder() throws IOException {
+        String input = PUZZLE + "\r\n" + "\n" + DOTTED + "  \n" + CONFLICT + "\n" + PUZZLE.substring(1) + "\n"
+                + PUZZLE.replace('7', 'x') + "\n";
+        assertEquals(SOLUTION + "\n" + SOLUTION + "\nNO_SOLUTION\nINVALID\nINVALID\n",
+                run(input, SudokuBatch.Mode.SOLVE, 5));
+    }
+
+    @Test
+    void puzzlesAreValidated() throws IOException {
+        assertEquals("UNIQUE\nMULTIPLE\nNONE\nINVALID\n",
+                run(PUZZLE + "\n" + EMPTY + "\n" + CONFLICT + "\nshort\n", SudokuBatch.Mode.VALIDATE, 4));
+    }
+
+    @Test
+    void equivalentPuzzlesShareTheirCanonicalForm() throws IOException {
+        SudokuCanonicalizer canonicalizer = new SudokuCanonicalizer();
+        String canonical = digits(canonicalizer.canonicalize(board(PUZZLE)));
+        String input = PUZZLE + "\n" + transformed(PUZZLE, 1) + "\n" + "x\n";
+        assertEquals(canonical + "\n" + canonical + "\nINVALID\n", run(input, SudokuBatch.Mode.CANONICALIZE, 3));
+    }
+
+    @Test
+    void duplicatesAreFoundAcrossChunks() throws IOException {
+        // More lines than fit in one chunk, so later chunks find puzzles seen in earlier ones
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < 20_000; i++) {
+            if (i == 0) {
+                input.append(PUZZLE);
+                expected.append("NEW\n");
+            } else if (i == 17_000) {
+                input.append(OTHER);
+                expected.append("NEW\n");
+            } else {
+                input.append(transformed(i > 17_000 ? OTHER : PUZZLE, random.nextLong()));
+                expected.append("DUPLICATE\n");
+            }
+            input.append('\n');
+        }
+        assertEquals(expected.toString(), run(input.toString(), SudokuBatch.Mode.DEDUPLICATE, 20_000));
+    }
+
+    private String run(String input, SudokuBatch.Mode mode, long puzzles) throws IOException {
+        StringWriter out = new StringWriter();
+        SudokuBatch.Report report = SudokuBatch.process(new BufferedReader(new StringReader(input)), out, mode, pool);
+        assertEquals(puzzles, report.getCount());
+        assertEquals(puzzles, report.getLatencies().count());
+        return out.toString();
+    }
+
+    private static String transformed(String puzzle, long seed) {
+        byte[] result = new byte[81];
+        new SudokuTransform().randomize(new SplittableRandom(seed)).apply(board(puzzle), result);
+        return digits(result);
+    }
+
+    private static String digits(byte[] board) {
+        StringBuilder digits = new StringBuilder(81);
+        for (byte value : board) {
+            digits.append(value);
+        }
+        return digits.toString();
+    }
+}
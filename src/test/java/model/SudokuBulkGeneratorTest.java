@@ -0,0 +1,76 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuBulkGeneratorTest {
+
+    private final SudokuSolver solver = new SudokuSolver();
+    private final SudokuRater rater = new SudokuRater();
+
+    @Test
+    void puzzlesAreDistinctAndRatedAtTheLevel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+                int count = level == SudokuUtilities.SudokuLevel.EXPERT ? 1 : 30;  // EXPERT puzzles are rare, see SudokuGenerator
+                List<SudokuPuzzle> puzzles = SudokuBulkGenerator.generate(level, count, 1, pool);
+                assertEquals(count, puzzles.size());
+                Set<String> distinct = new HashSet<>();
+                for (SudokuPuzzle puzzle : puzzles) {
+                    byte[] givens = givens(puzzle);
+                    assertEquals(level, puzzle.getLevel());
+                    assertEquals(level, rater.rate(givens).getLevel());
+                    assertTrue(solver.hasUniqueSolution(givens));
+                    assertTrue(distinct.add(Arrays.toString(givens)), "a puzzle was generated twice");
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void sameSeedGivesSamePuzzlesWithAnyNumberOfThreads() throws IOException {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool several = new ForkJoinPool(4);
+        try {
+            List<SudokuPuzzle> first = SudokuBulkGenerator.generate(SudokuUtilities.SudokuLevel.HARD, 50, 2, single);
+            List<SudokuPuzzle> second = SudokuBulkGenerator.generate(SudokuUtilities.SudokuLevel.HARD, 50, 2, several);
+            for (int i = 0; i < first.size(); i++) {
+                assertArrayEquals(givens(first.get(i)), givens(second.get(i)));
+            }
+
+            StringWriter out = new StringWriter();
+            SudokuBatch.Report report = SudokuBulkGenerator.generate(SudokuUtilities.SudokuLevel.HARD, 50, 2, out, several);
+            assertEquals(50, report.getCount());
+            String[] lines = out.toString().split("\n");
+            assertEquals(50, lines.length);
+            for (int i = 0; i < lines.length; i++) {
+                assertArrayEquals(givens(first.get(i)), SudokuTestGames.board(lines[i]));
+            }
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+    }
+
+    private static byte[] givens(SudokuPuzzle puzzle) {
+        byte[] givens = new byte[81];
+        for (int cell = 0; cell < 81; cell++) {
+            givens[cell] = (byte) puzzle.getGiven(cell);
+        }
+        return givens;
+    }
+}
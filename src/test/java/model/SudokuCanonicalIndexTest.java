@@ -0,0 +1,54 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuCanonicalIndexTest {
+
+    @Test
+    void equivalentPuzzlesAreAddedOnce() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(7));
+        SplittableRandom random = new SplittableRandom(8);
+        SudokuTransform transform = new SudokuTransform();
+        SudokuCanonicalIndex index = new SudokuCanonicalIndex(0);
+        byte[][] puzzles = new byte[50][81];
+        byte[] transformed = new byte[81];
+        for (byte[] puzzle : puzzles) {
+            generator.generate(SudokuUtilities.SudokuLevel.EASY, puzzle, new byte[81]);
+            transform.randomize(random).apply(puzzle, transformed);
+            assertFalse(index.contains(transformed));
+            assertTrue(index.add(transformed));
+        }
+        assertEquals(puzzles.length, index.size());
+
+        for (byte[] puzzle : puzzles) {
+            assertTrue(index.contains(puzzle));
+            transform.randomize(random).apply(puzzle, transformed);
+            assertFalse(index.add(transformed), "a transformed puzzle is a duplicate");
+        }
+        assertEquals(puzzles.length, index.size());
+    }
+
+    @Test
+    void puzzlesThatDifferOnlyInTheFirstRowAreDistinct() {
+        // Both are a single row of three clues, which fill one stack or all three
+        byte[] spread = new byte[81];
+        byte[] bunched = new byte[81];
+        spread[0] = 1;
+        spread[3] = 2;
+        spread[6] = 3;
+        bunched[0] = 1;
+        bunched[1] = 2;
+        bunched[2] = 3;
+        SudokuCanonicalIndex index = new SudokuCanonicalIndex(2);
+        assertTrue(index.add(spread));
+        assertFalse(index.contains(bunched));
+        assertTrue(index.add(bunched));
+        assertEquals(2, index.size());
+    }
+}
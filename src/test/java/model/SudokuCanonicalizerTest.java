@@ -0,0 +1,133 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static model.SudokuTestGames.board;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SudokuCanonicalizerTest {
+
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    // For every one of the 1296 orders of rows (or columns) that keep the bands, the source line at every output line
+    private static final int[][] LINE_ORDERS = lineOrders();
+
+    private final SudokuCanonicalizer canonicalizer = new SudokuCanonicalizer();
+
+    @Test
+    void canonicalFormIsTheSmallestMemberOfTheClass() {
+        for (byte[] puzzle : puzzles()) {
+            assertArrayEquals(smallestMember(puzzle), canonicalizer.canonicalize(puzzle));
+        }
+    }
+
+    @Test
+    void canonicalFormDoesNotDependOnTheTransform() {
+        SplittableRandom random = new SplittableRandom(4);
+        SudokuTransform transform = new SudokuTransform();
+        byte[] transformed = new byte[81];
+        for (byte[] puzzle : puzzles()) {
+            byte[] canonical = canonicalizer.canonicalize(puzzle);
+            for (int i = 0; i < 20; i++) {
+                transform.randomize(random).apply(puzzle, transformed);
+                assertArrayEquals(canonical, canonicalizer.canonicalize(transformed));
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidPuzzle() {
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(new byte[80]));
+        byte[] puzzle = new byte[81];
+        puzzle[40] = 10;
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(puzzle));
+    }
+
+    // Generated puzzles, one with a clue in every stack of every row and column, a sparse one and a full grid
+    private static byte[][] puzzles() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(5));
+        byte[][] puzzles = new byte[6][81];
+        for (int i = 0; i < 3; i++) {
+            generator.generate(SudokuUtilities.SudokuLevel.values()[i], puzzles[i], new byte[81]);
+        }
+        byte[] solution = board(SOLUTION);
+        for (int cell = 0; cell < 81; cell++) {
+            int row = cell / 9;
+            int col = cell % 9;
+            if (col % 3 == (row + col / 3) % 3) {
+                puzzles[3][cell] = solution[cell];
+            }
+        }
+        puzzles[4][13] = 7;
+        puzzles[4][50] = 2;
+        puzzles[4][66] = 7;
+        puzzles[5] = solution;
+        return puzzles;
+    }
+
+    // Tries every arrangement of the board, numbering the digits in order of first appearance
+    private static byte[] smallestMember(byte[] puzzle) {
+        byte[] transposed = new byte[81];
+        for (int cell = 0; cell < 81; cell++) {
+            transposed[(cell % 9) * 9 + cell / 9] = puzzle[cell];
+        }
+        byte[] smallest = null;
+        byte[] candidate = new byte[81];
+        int[] labels = new int[10];
+        for (byte[] view : new byte[][] {puzzle, transposed}) {
+            for (int[] rows : LINE_ORDERS) {
+                for (int[] columns : LINE_ORDERS) {
+                    Arrays.fill(labels, 0);
+                    int nextLabel = 1;
+                    boolean smaller = smallest == null;
+                    boolean larger = false;
+                    for (int cell = 0; cell < 81 && !larger; cell++) {
+                        int value = view[rows[cell / 9] * 9 + columns[cell % 9]];
+                        if (value != 0) {
+                            if (labels[value] == 0) {
+                                labels[value] = nextLabel++;
+                            }
+                            value = labels[value];
+                        }
+                        candidate[cell] = (byte) value;
+                        if (!smaller) {
+                            smaller = value < smallest[cell];
+                            larger = value > smallest[cell];
+                        }
+                    }
+                    if (smaller) {
+                        smallest = candidate.clone();
+                    }
+                }
+            }
+        }
+        return smallest;
+    }
+
+    private static int[][] lineOrders() {
+        int[][] permutations = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        int[][] orders = new int[1296][9];
+        int index = 0;
+        for (int[] groups : permutations) {
+            for (int[] first : permutations) {
+                for (int[] second : permutations) {
+                    for (int[] third : permutations) {
+                        int[][] inner = {first, second, third};
+                        for (int group = 0; group < 3; group++) {
+                            for (int i = 0; i < 3; i++) {
+                                orders[index][group * 3 + i] = groups[group] * 3 + inner[group][i];
+                            }
+                        }
+                        index++;
+                    }
+                }
+            }
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,65 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuGeneratorTest {
+
+    private static final int PUZZLES_PER_LEVEL = 20;
+
+    private final SudokuSolver solver = new SudokuSolver();
+
+    @Test
+    void puzzlesHaveUniqueSolution() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(1));
+        byte[] puzzle = new byte[81];
+        byte[] solution = new byte[81];
+        byte[] solved = new byte[81];
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            for (int i = 0; i < PUZZLES_PER_LEVEL; i++) {
+                generator.generate(level, puzzle, solution);
+                assertTrue(solver.hasUniqueSolution(puzzle), level + " puzzle has more than one solution");
+                assertTrue(solver.solve(puzzle, solved));
+                assertArrayEquals(solution, solved, level + " puzzle comes with another solution");
+                for (int cell = 0; cell < 81; cell++) {
+                    assertTrue(puzzle[cell] == 0 || puzzle[cell] == solution[cell]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void returnedLevelIsTheRating() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(2));
+        SudokuRater rater = new SudokuRater();
+        byte[] puzzle = new byte[81];
+        byte[] solution = new byte[81];
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            int easy = 0;
+            for (int i = 0; i < PUZZLES_PER_LEVEL; i++) {
+                SudokuUtilities.SudokuLevel rated = generator.generate(level, puzzle, solution);
+                assertEquals(rated, rater.rate(puzzle).getLevel());
+                if (rated == SudokuUtilities.SudokuLevel.EASY) {
+                    easy++;
+                }
+            }
+            if (level == SudokuUtilities.SudokuLevel.EASY) {
+                assertTrue(easy >= PUZZLES_PER_LEVEL * 3 / 4, easy + " of " + PUZZLES_PER_LEVEL + " EASY puzzles");
+            }
+        }
+    }
+
+    @Test
+    void sameSeedGivesSamePuzzles() {
+        byte[] first = new byte[81];
+        byte[] second = new byte[81];
+        new SudokuGenerator(new SplittableRandom(3)).generate(SudokuUtilities.SudokuLevel.HARD, first, new byte[81]);
+        new SudokuGenerator(new SplittableRandom(3)).generate(SudokuUtilities.SudokuLevel.HARD, second, new byte[81]);
+        assertArrayEquals(first, second);
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuGridGeneratorTest {
+
+    @Test
+    void puzzlesHaveUniqueSolution() {
+        for (int boxSize = SudokuShape.MIN_BOX_SIZE; boxSize <= SudokuShape.MAX_BOX_SIZE; boxSize++) {
+            SudokuShape shape = SudokuShape.of(boxSize);
+            SudokuGridGenerator generator = new SudokuGridGenerator(shape, new SplittableRandom(boxSize));
+            SudokuGridSolver solver = new SudokuGridSolver(shape);
+            byte[] puzzle = new byte[shape.getCells()];
+            byte[] solution = new byte[shape.getCells()];
+            byte[] solved = new byte[shape.getCells()];
+            int puzzles = boxSize < 4 ? 20 : boxSize == 4 ? 3 : 1;  // 25×25 puzzles take about a second
+            for (int i = 0; i < puzzles; i++) {
+                generator.generate(SudokuUtilities.SudokuLevel.EXTREME, puzzle, solution);
+                assertValidGrid(shape, solution);
+                assertEquals(1, solver.countSolutions(puzzle, 2), shape + " puzzle has more than one solution");
+                assertTrue(solver.solve(puzzle, solved));
+                assertArrayEquals(solution, solved, shape + " puzzle comes with another solution");
+                for (int cell = 0; cell < shape.getCells(); cell++) {
+                    assertTrue(puzzle[cell] == 0 || puzzle[cell] == solution[cell]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void easyPuzzlesKeepTheTargetNumberOfClues() {
+        for (int boxSize = 2; boxSize <= 4; boxSize++) {
+            SudokuShape shape = SudokuShape.of(boxSize);
+            SudokuGridGenerator generator = new SudokuGridGenerator(shape, new SplittableRandom(10 + boxSize));
+            SudokuGrid grid = generator.generate(SudokuUtilities.SudokuLevel.EASY);
+            int clues = 0;
+            for (int cell = 0; cell < shape.getCells(); cell++) {
+                if (!grid.isCellEditable(cell / shape.getSize(), cell % shape.getSize())) {
+                    clues++;
+                }
+            }
+            assertEquals(SudokuGridGenerator.targetClues(shape, SudokuUtilities.SudokuLevel.EASY), clues, shape.toString());
+        }
+    }
+
+    @Test
+    void levelIsLoweredToTheHardestOfTheShape() {
+        assertEquals(SudokuUtilities.SudokuLevel.EXTREME, SudokuGridGenerator.hardestLevel(SudokuShape.of(2)));
+        assertEquals(SudokuUtilities.SudokuLevel.EXTREME, SudokuGridGenerator.hardestLevel(SudokuShape.CLASSIC));
+        assertEquals(SudokuUtilities.SudokuLevel.HARD, SudokuGridGenerator.hardestLevel(SudokuShape.of(4)));
+        assertEquals(SudokuUtilities.SudokuLevel.MEDIUM, SudokuGridGenerator.hardestLevel(SudokuShape.of(5)));
+
+        SudokuGrid grid = new SudokuGridGenerator(SudokuShape.of(4), new SplittableRandom(20))
+                .generate(SudokuUtilities.SudokuLevel.EXPERT);
+        assertEquals(SudokuUtilities.SudokuLevel.HARD, grid.getLevel());
+        assertEquals(SudokuUtilities.SudokuLevel.EXPERT,
+                new SudokuGridGenerator(SudokuShape.of(2)).generate(SudokuUtilities.SudokuLevel.EXPERT).getLevel());
+    }
+
+    @Test
+    void sameSeedGivesSamePuzzles() {
+        SudokuShape shape = SudokuShape.of(4);
+        byte[] first = new byte[shape.getCells()];
+        byte[] second = new byte[shape.getCells()];
+        byte[] solution = new byte[shape.getCells()];
+        new SudokuGridGenerator(shape, new SplittableRandom(30)).generate(SudokuUtilities.SudokuLevel.MEDIUM, first, solution);
+        new SudokuGridGenerator(shape, new SplittableRandom(30)).generate(SudokuUtilities.SudokuLevel.MEDIUM, second, solution);
+        assertArrayEquals(first, second);
+    }
+
+    // Every house holds every digit of the shape once
+    private static void assertValidGrid(SudokuShape shape, byte[] grid) {
+        for (int[] house : shape.houses) {
+            int digits = 0;
+            for (int cell : house) {
+                digits |= 1 << (grid[cell] - 1);
+            }
+            assertEquals(shape.getAllDigits(), digits);
+        }
+    }
+}
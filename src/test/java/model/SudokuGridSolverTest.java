@@ -0,0 +1,69 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static model.SudokuTestGames.board;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuGridSolverTest {
+
+    private static final String PUZZLE =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    void solvesClassicPuzzleLikeSudokuSolver() {
+        SudokuGridSolver solver = new SudokuGridSolver(SudokuShape.CLASSIC);
+        byte[] solution = new byte[81];
+        assertTrue(solver.solve(board(PUZZLE), solution));
+        assertArrayEquals(board(SOLUTION), solution);
+        assertEquals(1, solver.countSolutions(board(PUZZLE), 10));
+    }
+
+    @Test
+    void countsEveryFourByFourGrid() {
+        SudokuGridSolver solver = new SudokuGridSolver(SudokuShape.of(2));
+        assertEquals(288, solver.countSolutions(new byte[16], 1000));  // The number of 4×4 Sudoku grids
+        assertEquals(10, solver.countSolutions(new byte[16], 10));
+    }
+
+    @Test
+    void contradictoryGivensHaveNoSolution() {
+        SudokuGridSolver solver = new SudokuGridSolver(SudokuShape.of(4));
+        byte[] puzzle = new byte[256];
+        puzzle[0] = 16;
+        puzzle[17] = 16;  // Same box as cell 0
+        assertFalse(solver.solve(puzzle, new byte[256]));
+        assertEquals(0, solver.countSolutions(puzzle, 2));
+        assertFalse(solver.hasSolutionWithout(puzzle, 2, 1, 1000));
+    }
+
+    @Test
+    void findsSolutionWithoutAValue() {
+        SudokuGridSolver solver = new SudokuGridSolver(SudokuShape.CLASSIC);
+        byte[] puzzle = board(PUZZLE);
+        puzzle[0] = 0;  // Still determined by the other givens
+        assertFalse(solver.hasSolutionWithout(puzzle, 0, 5, Long.MAX_VALUE));
+
+        byte[] open = board(SOLUTION);
+        int[] rectangle = {3, 4, 30, 31};  // 6 and 7 can swap at r1c4, r1c5, r4c4 and r4c5
+        for (int cell : rectangle) {
+            open[cell] = 0;
+        }
+        assertTrue(solver.hasSolutionWithout(open, 3, 6, Long.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsPuzzleOfAnotherShape() {
+        SudokuGridSolver solver = new SudokuGridSolver(SudokuShape.of(2));
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(new byte[81], 2));
+        byte[] puzzle = new byte[16];
+        puzzle[3] = 5;
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(puzzle, new byte[16]));
+    }
+}
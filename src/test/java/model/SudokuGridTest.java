@@ -0,0 +1,139 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuGridTest {
+
+    @Test
+    void shapesDescribeTheirGrids() {
+        for (int boxSize = SudokuShape.MIN_BOX_SIZE; boxSize <= SudokuShape.MAX_BOX_SIZE; boxSize++) {
+            SudokuShape shape = SudokuShape.of(boxSize);
+            int size = boxSize * boxSize;
+            assertSame(shape, SudokuShape.of(boxSize));
+            assertEquals(size, shape.getSize());
+            assertEquals(size * size, shape.getCells());
+            assertEquals(3 * size, shape.getHouseCount());
+            assertEquals(size + "x" + size, shape.toString());
+            int[] seen = new int[shape.getCells()];
+            for (int[] house : shape.houses) {
+                for (int cell : house) {
+                    seen[cell]++;
+                }
+            }
+            for (int cell = 0; cell < shape.getCells(); cell++) {
+                assertEquals(3, seen[cell]);  // Once in its row, its column and its box
+                assertEquals(2 * (size - 1) + (boxSize - 1) * (boxSize - 1), shape.peers[cell].length);
+            }
+            for (int digit = 1; digit <= size; digit++) {
+                assertEquals(digit, shape.digitOf(SudokuShape.symbolOf(digit)));
+                assertEquals(digit, shape.digitOf(Character.toLowerCase(SudokuShape.symbolOf(digit))));
+            }
+            assertEquals(0, shape.digitOf(SudokuShape.symbolOf(size + 1)));
+            assertEquals(0, shape.digitOf('0'));
+        }
+        assertSame(SudokuShape.CLASSIC, SudokuShape.of(3));
+        assertEquals('G', SudokuShape.symbolOf(16));
+        assertThrows(IllegalArgumentException.class, () -> SudokuShape.of(6));
+    }
+
+    @Test
+    void entriesAreCheckedAgainstTheRulesAndTheSolution() {
+        SudokuGrid grid = new SudokuGridGenerator(SudokuShape.of(4), new SplittableRandom(1))
+                .generate(SudokuUtilities.SudokuLevel.EASY);
+        int given = firstCell(grid, false);
+        int empty = firstCell(grid, true);
+        int row = empty / 16;
+        int col = empty % 16;
+        int solution = grid.getSolutionValue(row, col);
+
+        assertFalse(grid.setValue(given / 16, given % 16, grid.getValue(given / 16, given % 16) % 16 + 1));
+        assertEquals(0, grid.getValue(row, col));
+        assertTrue((grid.getCandidates(row, col) & 1 << (solution - 1)) != 0);
+
+        int wrong = firstConflict(grid, row, col);
+        assertTrue(grid.setValue(row, col, wrong));
+        assertTrue(grid.isConflicting(row, col));
+        assertTrue(grid.hasConflicts());
+        assertTrue(grid.hasWrongEntries());
+        assertEquals(0, grid.getCandidates(row, col));
+
+        assertTrue(grid.setValue(row, col, solution));
+        assertFalse(grid.hasConflicts());
+        assertFalse(grid.hasWrongEntries());
+        assertFalse(grid.wouldConflict(row, col, solution));
+        assertTrue(grid.wouldConflict(row, col, wrong));
+
+        grid.clearUserValues();
+        assertEquals(0, grid.getValue(row, col));
+        assertThrows(IllegalArgumentException.class, () -> grid.setValue(row, col, 17));
+    }
+
+    @Test
+    void hintsCorrectMistakesAndSolveTheGrid() {
+        SudokuGrid grid = new SudokuGridGenerator(SudokuShape.of(4), new SplittableRandom(2))
+                .generate(SudokuUtilities.SudokuLevel.HARD);
+        int last = lastCell(grid);
+        int lastSolution = grid.getSolutionValue(last / 16, last % 16);
+        grid.setValue(last / 16, last % 16, lastSolution % 16 + 1);
+        assertEquals(last, grid.provideHint());  // The wrong entry comes first, even after empty cells
+        assertEquals(lastSolution, grid.getValue(last / 16, last % 16));
+
+        int hints = 0;
+        while (grid.provideHint() >= 0) {
+            hints++;
+        }
+        assertTrue(hints > 0);
+        assertTrue(grid.isFilled());
+        assertTrue(grid.isSolved());
+        assertEquals(-1, grid.provideHint());
+    }
+
+    @Test
+    void rejectsArraysOfAnotherShape() {
+        SudokuShape shape = SudokuShape.of(2);
+        assertThrows(IllegalArgumentException.class,
+                () -> new SudokuGrid(shape, SudokuUtilities.SudokuLevel.EASY, new byte[81], new byte[16]));
+        byte[] givens = new byte[16];
+        givens[0] = 5;
+        assertThrows(IllegalArgumentException.class,
+                () -> new SudokuGrid(shape, SudokuUtilities.SudokuLevel.EASY, givens, new byte[16]));
+    }
+
+    private static int firstCell(SudokuGrid grid, boolean editable) {
+        int size = grid.getShape().getSize();
+        for (int cell = 0; cell < size * size; cell++) {
+            if (grid.isCellEditable(cell / size, cell % size) == editable) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastCell(SudokuGrid grid) {
+        int size = grid.getShape().getSize();
+        for (int cell = size * size - 1; cell >= 0; cell--) {
+            if (grid.isCellEditable(cell / size, cell % size)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    // A digit that is already displayed in the row, column or box of the cell
+    private static int firstConflict(SudokuGrid grid, int row, int col) {
+        for (int digit = 1; digit <= grid.getShape().getSize(); digit++) {
+            if (grid.wouldConflict(row, col, digit)) {
+                return digit;
+            }
+        }
+        throw new AssertionError("no digit conflicts");
+    }
+}
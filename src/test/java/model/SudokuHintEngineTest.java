@@ -0,0 +1,85 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static model.SudokuTestGames.editableCells;
+import static model.SudokuTestGames.state;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuHintEngineTest {
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void hintsSolveTheGame() {
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            SudokuModel model = new SudokuModel(pool, level);
+            int empty = editableCells(model).length;
+            int hints = 0;
+            for (SudokuHint hint = model.provideHint(); hint != null; hint = model.provideHint()) {
+                assertNotEquals(SudokuHint.Kind.WRONG_ENTRY, hint.getKind());
+                assertEquals(model.getCell(hint.getRow(), hint.getCol()).getSolutionValue(), hint.getValue());
+                if (level == SudokuUtilities.SudokuLevel.EASY) {
+                    assertEquals(SudokuHint.Kind.DEDUCED, hint.getKind());  // Singles are enough for an easy game
+                }
+                hints++;
+            }
+            assertEquals(empty, hints, level + " game");
+            assertTrue(model.isDone());
+        }
+    }
+
+    @Test
+    void deducedValueIsTheOnlyCandidate() {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        for (SudokuHint hint = model.getHint(); hint != null; hint = model.getHint()) {
+            if (hint.getTechnique() == SudokuRater.Technique.NAKED_SINGLE) {
+                assertEquals(1 << (hint.getValue() - 1), model.getCandidates(hint.getRow(), hint.getCol()));
+            }
+            model.updateCell(hint.getRow(), hint.getCol(), hint.getValue());
+        }
+        assertTrue(model.isDone());
+    }
+
+    @Test
+    void wrongEntryIsPointedOutFirst() {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        int[] cells = editableCells(model);
+        int wrongCell = cells[cells.length - 1];  // Reported before the singles still open on the board
+        int row = wrongCell / 9;
+        int col = wrongCell % 9;
+        int solution = model.getCell(row, col).getSolutionValue();
+        model.updateCell(row, col, solution % 9 + 1);
+
+        String before = state(model);
+        SudokuHint hint = model.getHint();
+        assertEquals(before, state(model));  // Finding a hint does not make the move
+        assertEquals(SudokuHint.Kind.WRONG_ENTRY, hint.getKind());
+        assertEquals(wrongCell, hint.getRow() * 9 + hint.getCol());
+        assertEquals(solution, hint.getValue());
+        assertNull(hint.getTechnique());
+
+        model.provideHint();
+        assertEquals(solution, model.getDisplayValue(row, col));
+        assertTrue(model.checkFilledNumbers());
+    }
+
+    @Test
+    void solvedBoardHasNoHint() {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.MEDIUM);
+        for (int cell : editableCells(model)) {
+            model.updateCell(cell / 9, cell % 9, model.getCell(cell / 9, cell % 9).getSolutionValue());
+        }
+        assertNull(model.getHint());
+        assertNull(model.provideHint());
+    }
+}
@@ -0,0 +1,143 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static model.SudokuTestGames.editableCells;
+import static model.SudokuTestGames.state;
+import static model.SudokuTestGames.values;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuIOTest {
+
+    // The game in legacy.sudoku, saved by the original serialization-based SudokuIO with 7 and 3 filled in
+    private static final String LEGACY_VALUES =
+            "730924070020000054040001000007569002402000500300200000039000408650800030000403160";
+    private static final String LEGACY_EDITABLE =
+            "eeegggegeegeeeeeggegeeegeeeeeggggeeggegeeegeegeegeeeeeeggeeegegggegeeegeeeegeggge";
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void gameWithoutMarksIsSavedInVersion1() throws IOException, ClassNotFoundException {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        int[] cells = editableCells(model);
+        model.updateCell(cells[0] / 9, cells[0] % 9, 5);
+        model.updateCell(cells[1] / 9, cells[1] % 9, 9);
+        Path path = directory.resolve("game.sudoku");
+
+        SudokuIO.saveGameToFile(path.toString(), model);
+        assertEquals(SudokuIO.MAX_GAME_SIZE, Files.size(path));
+        assertEquals(SudokuIO.VERSION, Files.readAllBytes(path)[4]);
+
+        SudokuModel loaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuIO.loadGameFromFile(path.toString(), loaded);
+        assertEquals(state(model), state(loaded));
+        assertEquals(model.checkFilledNumbers(), loaded.checkFilledNumbers());
+    }
+
+    @Test
+    void gameWithMarksIsSavedInVersion2() throws IOException, ClassNotFoundException {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.MEDIUM);
+        int[] cells = editableCells(model);
+        model.updateCell(cells[0] / 9, cells[0] % 9, 2);
+        model.togglePencilMark(cells[1] / 9, cells[1] % 9, 1);
+        model.togglePencilMark(cells[1] / 9, cells[1] % 9, 9);
+        model.togglePencilMark(cells[cells.length - 1] / 9, cells[cells.length - 1] % 9, 5);
+        Path path = directory.resolve("game.sudoku");
+
+        SudokuIO.saveGameToFile(path.toString(), model);
+        assertEquals(SudokuIO.MAX_GAME_SIZE_WITH_MARKS, Files.size(path));
+        assertEquals(SudokuIO.VERSION_MARKS, Files.readAllBytes(path)[4]);
+
+        SudokuModel loaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuIO.loadGameFromFile(path.toString(), loaded);
+        assertEquals(state(model), state(loaded));
+        assertEquals(1 | 1 << 8, loaded.getPencilMarks(cells[1] / 9, cells[1] % 9));
+    }
+
+    @Test
+    void gameWithoutSolutionIsSolvedWhenRead() throws IOException {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EXPERT);
+        int[] cells = editableCells(model);
+        model.updateCell(cells[0] / 9, cells[0] % 9, 4);
+        ByteBuffer buffer = ByteBuffer.allocate(SudokuIO.MAX_GAME_SIZE);
+        SudokuIO.writeGame(buffer, model, false);
+        buffer.flip();
+        assertTrue(buffer.remaining() < SudokuIO.MAX_GAME_SIZE);
+
+        SudokuModel loaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuIO.readGame(buffer, loaded);
+        assertEquals(state(model), state(loaded));
+        assertEquals(model.checkFilledNumbers(), loaded.checkFilledNumbers());
+    }
+
+    @Test
+    void legacyGameIsImported() throws IOException, ClassNotFoundException, URISyntaxException {
+        Path path = Path.of(SudokuIOTest.class.getResource("legacy.sudoku").toURI());
+        SudokuModel loaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        SudokuIO.loadGameFromFile(path.toString(), loaded);
+
+        assertEquals(SudokuUtilities.SudokuLevel.EASY, loaded.getLevel());
+        assertEquals(LEGACY_VALUES, values(loaded));
+        StringBuilder editable = new StringBuilder();
+        for (int cell = 0; cell < 81; cell++) {
+            editable.append(loaded.isCellEditable(cell / 9, cell % 9) ? 'e' : 'g');
+        }
+        assertEquals(LEGACY_EDITABLE, editable.toString());
+
+        // Saving an imported game writes the binary format, which reads back the same
+        Path saved = directory.resolve("imported.sudoku");
+        SudokuIO.saveGameToFile(saved.toString(), loaded);
+        SudokuModel reloaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        SudokuIO.loadGameFromFile(saved.toString(), reloaded);
+        assertEquals(state(loaded), state(reloaded));
+
+        // The imported solution is the solution of the givens
+        byte[] givens = new byte[81];
+        for (int cell = 0; cell < 81; cell++) {
+            givens[cell] = LEGACY_EDITABLE.charAt(cell) == 'g' ? (byte) (LEGACY_VALUES.charAt(cell) - '0') : 0;
+        }
+        byte[] solution = new byte[81];
+        assertTrue(new SudokuSolver().solve(givens, solution));
+        for (int cell : editableCells(loaded)) {
+            loaded.updateCell(cell / 9, cell % 9, solution[cell]);
+        }
+        assertTrue(loaded.isDone());
+    }
+
+    @Test
+    void corruptGameIsRejected() throws IOException {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        Path path = directory.resolve("game.sudoku");
+        SudokuIO.saveGameToFile(path.toString(), model);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[SudokuIO.HEADER_SIZE + 3] ^= 0x10;
+        Files.write(path, bytes);
+
+        SudokuModel loaded = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        String before = state(loaded);
+        assertThrows(IOException.class, () -> SudokuIO.loadGameFromFile(path.toString(), loaded));
+        assertEquals(before, state(loaded), "a rejected file leaves the game unchanged");
+        assertThrows(IOException.class,
+                () -> SudokuIO.loadGameFromFile(directory.resolve("missing.sudoku").toString(), loaded));
+    }
+}
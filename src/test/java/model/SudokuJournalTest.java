@@ -0,0 +1,209 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static model.SudokuTestGames.editableCells;
+import static model.SudokuTestGames.state;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuJournalTest {
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void undoAndRedoRevertWholeSteps() {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        model.setJournal(new SudokuJournal());
+        int[] cells = editableCells(model);
+        String empty = state(model);
+        play(model, cells[0], 1);
+        String one = state(model);
+        play(model, cells[1], 2);
+        String two = state(model);
+
+        model.clearAllEmptyCells();
+        assertEquals(empty, state(model));
+        assertTrue(model.undo());
+        assertEquals(two, state(model), "clearing the board is one step");
+        assertTrue(model.undo());
+        assertEquals(one, state(model));
+        assertTrue(model.redo());
+        assertEquals(two, state(model));
+
+        model.undo();
+        play(model, cells[2], 3);
+        assertFalse(model.redo(), "a new move drops the undone steps");
+    }
+
+    @Test
+    void reopenRestoresGameAndHistory() throws IOException {
+        Path path = directory.resolve("game.journal");
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.MEDIUM);
+        SudokuJournal journal = SudokuJournal.open(path, model);
+        int[] cells = editableCells(model);
+        play(model, cells[0], 4);
+        String one = state(model);
+        play(model, cells[1], 5);
+        model.togglePencilMark(cells[2] / 9, cells[2] % 9, 7);
+        String marked = state(model);
+        model.undo();
+        String two = state(model);
+        journal.close();
+
+        SudokuModel reopened = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        SudokuJournal reopenedJournal = SudokuJournal.open(path, reopened);
+        assertEquals(two, state(reopened));
+        assertTrue(reopened.redo());
+        assertEquals(marked, state(reopened), "pencil marks are part of the history");
+        assertTrue(reopened.undo());
+        assertTrue(reopened.undo());
+        assertEquals(one, state(reopened));
+        reopenedJournal.close();
+    }
+
+    @Test
+    void tornLastRecordIsDropped() throws IOException {
+        Path path = directory.resolve("game.journal");
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal journal = SudokuJournal.open(path, model);
+        int[] cells = editableCells(model);
+        play(model, cells[0], 6);
+        play(model, cells[1], 7);
+        String saved = state(model);
+        journal.close();
+
+        // A crash while writing the next record leaves only its first bytes
+        Files.write(path, new byte[]{1, (byte) cells[2], 0x08}, StandardOpenOption.APPEND);
+        long tornSize = Files.size(path);
+
+        SudokuModel reopened = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal reopenedJournal = SudokuJournal.open(path, reopened);
+        assertEquals(saved, state(reopened));
+        assertEquals(tornSize - 3, Files.size(path), "the torn record is cut off before appending");
+        assertTrue(reopened.undo());
+        play(reopened, cells[2], 8);
+        String afterRepair = state(reopened);
+        reopenedJournal.close();
+
+        SudokuModel again = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal.open(path, again).close();
+        assertEquals(afterRepair, state(again));
+    }
+
+    @Test
+    void unfinishedStepIsDropped() throws IOException {
+        Path path = directory.resolve("game.journal");
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal journal = SudokuJournal.open(path, model);
+        int[] cells = editableCells(model);
+        play(model, cells[0], 1);
+        play(model, cells[1], 2);
+        model.togglePencilMark(cells[2] / 9, cells[2] % 9, 4);
+        String beforeClear = state(model);
+        model.clearAllEmptyCells();  // One step of two moves and a mark toggle, in cell order
+        journal.close();
+
+        // A crash before the end of the step was written leaves its moves without the step marker
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        SudokuModel reopened = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal reopenedJournal = SudokuJournal.open(path, reopened);
+        assertEquals(beforeClear, state(reopened), "a step is replayed completely or not at all");
+        assertFalse(reopened.redo());
+        assertTrue(reopened.undo());
+        assertEquals(0, reopened.getPencilMarks(cells[2] / 9, cells[2] % 9));
+        assertTrue(reopened.undo());
+        assertEquals(0, reopened.getDisplayValue(cells[1] / 9, cells[1] % 9));
+        assertEquals(1, reopened.getDisplayValue(cells[0] / 9, cells[0] % 9));
+        assertTrue(reopened.redo());
+        assertTrue(reopened.redo());
+        play(reopened, cells[3], 3);
+        String afterMove = state(reopened);
+        reopenedJournal.close();
+
+        // The dropped step must not come back as part of the step written after it
+        SudokuModel again = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal againJournal = SudokuJournal.open(path, again);
+        assertEquals(afterMove, state(again));
+        assertTrue(again.undo());
+        assertEquals(beforeClear, state(again));
+        againJournal.close();
+    }
+
+    @Test
+    void compactionKeepsGameAndHistory() throws IOException {
+        Path path = directory.resolve("game.journal");
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal journal = SudokuJournal.open(path, model);
+        int[] cells = editableCells(model);
+        play(model, cells[0], 9);
+        String kept = state(model);
+        for (int i = 0; i < 3000; i++) {
+            play(model, cells[1], 1 + i % 9);  // Each replaces the undone step before it
+            model.undo();
+        }
+        play(model, cells[2], 5);
+        play(model, cells[3], 6);
+        model.undo();
+        String last = state(model);
+        journal.flush();
+        journal.flush();  // Compacts the records the first write appended, if it did not compact already
+        long uncompacted = 3000L * 3 * 4;  // A move, its end of step and an undo per round
+        assertTrue(Files.size(path) < uncompacted / 2, "file of " + Files.size(path) + " bytes was not compacted");
+        journal.close();
+        assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".tmp")));
+
+        SudokuModel reopened = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        SudokuJournal reopenedJournal = SudokuJournal.open(path, reopened);
+        assertEquals(last, state(reopened));
+        assertTrue(reopened.redo());
+        assertNotEquals(last, state(reopened));
+        assertTrue(reopened.undo());
+        assertTrue(reopened.undo());
+        assertEquals(kept, state(reopened));
+        assertTrue(reopened.undo());
+        assertFalse(reopened.undo());
+        reopenedJournal.close();
+    }
+
+    @Test
+    void fileWithoutJournalStartsNewHistory() throws IOException {
+        Path path = directory.resolve("game.journal");
+        Files.write(path, new byte[]{'n', 'o', 't', ' ', 'a', ' ', 'j', 'o', 'u', 'r', 'n', 'a', 'l'});
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+        String game = state(model);
+        SudokuJournal journal = SudokuJournal.open(path, model);
+        assertEquals(game, state(model));
+        assertFalse(journal.canUndo());
+        journal.close();
+
+        SudokuModel reopened = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+        SudokuJournal.open(path, reopened).close();
+        assertEquals(game, state(reopened));
+    }
+
+    private static void play(SudokuModel model, int cell, int value) {
+        model.updateCell(cell / 9, cell % 9, value);
+    }
+}
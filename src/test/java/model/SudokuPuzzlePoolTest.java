@@ -0,0 +1,50 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuPuzzlePoolTest {
+
+    @Test
+    void takenPuzzlesAreRatedAtTheRequestedLevel() {
+        SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Mostly generates on the calling thread
+        SudokuRater rater = new SudokuRater();
+        byte[] givens = new byte[81];
+        try {
+            for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+                for (int i = 0; i < 3; i++) {
+                    SudokuPuzzle puzzle = pool.take(level);
+                    assertEquals(level, puzzle.getLevel());
+                    for (int cell = 0; cell < 81; cell++) {
+                        givens[cell] = (byte) puzzle.getGiven(cell);
+                    }
+                    assertEquals(level, rater.rate(givens).getLevel());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void refillKeepsPuzzlesOfOtherLevels() throws InterruptedException {
+        SudokuPuzzlePool pool = new SudokuPuzzlePool(4, 8, 1);
+        try {
+            // Filling EXTREME turns up many EASY, MEDIUM and HARD puzzles on the way
+            long deadline = System.nanoTime() + 30_000_000_000L;
+            while (pool.available(SudokuUtilities.SudokuLevel.MEDIUM) < 8 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(8, pool.available(SudokuUtilities.SudokuLevel.MEDIUM));
+            SudokuPuzzle first = pool.take(SudokuUtilities.SudokuLevel.MEDIUM);
+            SudokuPuzzle second = pool.take(SudokuUtilities.SudokuLevel.MEDIUM);
+            assertNotSame(first, second);
+            assertTrue(pool.available(SudokuUtilities.SudokuLevel.MEDIUM) <= 6);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static model.SudokuTestGames.board;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuRaterTest {
+
+    // Solved with naked singles alone
+    private static final String SINGLES =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    // Needs guessing; none of the rated techniques makes enough progress
+    private static final String BEYOND_TECHNIQUES =
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private final SudokuRater rater = new SudokuRater();
+
+    @Test
+    void singlesMakeAPuzzleEasy() {
+        SudokuRating rating = rater.rate(board(SINGLES));
+        assertTrue(rating.isSolved());
+        assertEquals(SudokuUtilities.SudokuLevel.EASY, rating.getLevel());
+        assertEquals(51, rating.getSteps(SudokuRater.Technique.NAKED_SINGLE)
+                + rating.getSteps(SudokuRater.Technique.HIDDEN_SINGLE));  // One step per empty cell
+    }
+
+    @Test
+    void completeGridNeedsNoTechnique() {
+        SudokuRating rating = rater.rate(board(SOLUTION));
+        assertTrue(rating.isSolved());
+        assertNull(rating.getHardestTechnique());
+        assertEquals(SudokuUtilities.SudokuLevel.EASY, rating.getLevel());
+    }
+
+    @Test
+    void puzzleBeyondTheTechniquesIsExtreme() {
+        SudokuRating rating = rater.rate(board(BEYOND_TECHNIQUES));
+        assertFalse(rating.isSolved());
+        assertEquals(SudokuUtilities.SudokuLevel.EXTREME, rating.getLevel());
+    }
+
+    @Test
+    void hardestTechniqueDeterminesTheLevel() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(6));
+        byte[] puzzle = new byte[81];
+        byte[] solution = new byte[81];
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            for (int i = 0; i < 50; i++) {
+                generator.generate(level, puzzle, solution);
+                SudokuRating rating = rater.rate(puzzle);
+                assertEquals(rating.toString(), rater.rate(puzzle).toString());  // Nothing is left over from the last puzzle
+                SudokuRater.Technique hardest = rating.getHardestTechnique();  // Every generated puzzle needs a step
+                if (rating.isSolved()) {
+                    assertEquals(hardest.getLevel(), rating.getLevel());
+                }
+                assertTrue(rating.getSteps(hardest) > 0);
+                for (SudokuRater.Technique technique : SudokuRater.Technique.values()) {
+                    if (technique.compareTo(hardest) > 0) {
+                        assertEquals(0, rating.getSteps(technique), technique + " is harder than " + hardest);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void levelDoesNotDependOnTheTransform() {
+        SudokuGenerator generator = new SudokuGenerator(new SplittableRandom(7));
+        SudokuTransform transform = new SudokuTransform();
+        SplittableRandom random = new SplittableRandom(8);
+        byte[] puzzle = new byte[81];
+        byte[] solution = new byte[81];
+        byte[] transformed = new byte[81];
+        for (int i = 0; i < 200; i++) {
+            SudokuUtilities.SudokuLevel level = generator.generate(SudokuUtilities.SudokuLevel.HARD, puzzle, solution);
+            for (int j = 0; j < 5; j++) {
+                transform.randomize(random).apply(puzzle, transformed);
+                assertEquals(level, rater.rate(transformed).getLevel());
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidPuzzle() {
+        assertThrows(IllegalArgumentException.class, () -> rater.rate(new byte[80]));
+        byte[] puzzle = new byte[81];
+        puzzle[0] = 10;
+        assertThrows(IllegalArgumentException.class, () -> rater.rate(puzzle));
+    }
+}
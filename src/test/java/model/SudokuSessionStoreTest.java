@@ -0,0 +1,227 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuSessionStoreTest {
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void sessionsAreUsedByOneThreadAtATime() throws IOException, InterruptedException, ExecutionException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 2000, 16)) {  // Few stripes, so games share locks
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                ids.add(store.create(SudokuUtilities.SudokuLevel.EASY));
+            }
+            assertEquals(2000, store.size());
+
+            Map<SudokuModel, AtomicInteger> inside = new ConcurrentHashMap<>();
+            AtomicInteger overlaps = new AtomicInteger();
+            List<Future<?>> players = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int player = 0; player < 32; player++) {
+                    SplittableRandom random = new SplittableRandom(player);
+                    players.add(executor.submit(() -> {
+                        for (int move = 0; move < 5000; move++) {
+                            store.withSession(ids.get(random.nextInt(ids.size())), model -> {
+                                AtomicInteger threads = inside.computeIfAbsent(model, key -> new AtomicInteger());
+                                if (threads.incrementAndGet() != 1) {
+                                    overlaps.incrementAndGet();
+                                }
+                                int row = random.nextInt(9);
+                                int col = random.nextInt(9);
+                                if (model.isCellEditable(row, col)) {
+                                    model.updateCell(row, col, random.nextInt(10));
+                                }
+                                Thread.yield();  // Gives other players a chance to reach the same game meanwhile
+                                threads.decrementAndGet();
+                                return null;
+                            });
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> player : players) {
+                player.get();  // Rethrows what went wrong in the player
+            }
+            assertEquals(0, overlaps.get(), "a game was used by two threads at once");
+            assertEquals(2000, store.size());
+            assertEquals(32 * 5000, store.getHits());
+        }
+    }
+
+    @Test
+    void removedSessionIsGone() throws IOException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 4)) {
+            String id = store.create(SudokuUtilities.SudokuLevel.MEDIUM);
+            assertTrue(store.contains(id));
+            assertNotNull(store.withSession(id, SudokuModel::getLevel));
+
+            assertTrue(store.remove(id));
+            assertFalse(store.remove(id));
+            assertFalse(store.contains(id));
+            assertThrows(NoSuchElementException.class, () -> store.withSession(id, SudokuModel::getLevel));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void idleSessionsExpire() throws IOException, InterruptedException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 16)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                ids.add(store.create(SudokuUtilities.SudokuLevel.EASY));
+            }
+            Thread.sleep(50);
+            for (int i = 0; i < 5; i++) {
+                store.withSession(ids.get(i), model -> null);
+            }
+
+            assertEquals(5, store.expireIdle(40, TimeUnit.MILLISECONDS));
+            assertEquals(5, store.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i < 5, store.contains(ids.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void addedGameIsKept() throws IOException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 4)) {
+            SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.HARD);
+            String state = SudokuTestGames.state(model);
+            String id = store.add(model);
+            assertEquals(state, store.withSession(id, SudokuTestGames::state));
+        }
+    }
+
+    @Test
+    void spilledGamesAreReadBackUnchanged() throws IOException, InterruptedException {
+        Path spillFile = directory.resolve("sessions.spill");
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 1000, spillFile, 100, Long.MAX_VALUE)) {
+            SplittableRandom random = new SplittableRandom(1);
+            List<String> ids = new ArrayList<>();
+            Map<String, String> states = new ConcurrentHashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                String id = store.create(i % 2 == 0 ? SudokuUtilities.SudokuLevel.EASY : SudokuUtilities.SudokuLevel.MEDIUM);
+                ids.add(id);
+                states.put(id, store.withSession(id, model -> {
+                    int[] cells = SudokuTestGames.editableCells(model);
+                    for (int move = 0; move < 10; move++) {
+                        int cell = cells[random.nextInt(cells.length)];
+                        if (move % 2 == 0) {
+                            model.updateCell(cell / 9, cell % 9, 1 + random.nextInt(9));
+                        } else {
+                            model.togglePencilMark(cell / 9, cell % 9, 1 + random.nextInt(9));
+                        }
+                    }
+                    return SudokuTestGames.state(model);
+                }));
+            }
+            await(() -> store.getResidentCount() <= 100, "games are spilled down to the limit");
+            await(() -> store.getResidentCount() + store.getSpilledCount() == store.size(), "every game is in one place");
+            assertTrue(store.getEvictions() >= 900);
+
+            for (String id : ids) {
+                assertEquals(states.get(id), store.withSession(id, SudokuTestGames::state));
+            }
+            assertTrue(store.getMisses() >= 800, store.getMisses() + " games read back");
+            await(() -> store.getResidentCount() <= 100, "read-back games are spilled again");
+            await(() -> store.getResidentCount() + store.getSpilledCount() == store.size(), "every game is in one place");
+
+            for (int i = 0; i < 500; i++) {
+                assertTrue(store.remove(ids.get(i)));
+            }
+            assertEquals(500, store.size());
+            await(() -> store.getResidentCount() + store.getSpilledCount() == 500, "removed games are gone from both places");
+        }
+        assertFalse(Files.exists(spillFile), "the spill file is deleted when the store is closed");
+    }
+
+    @Test
+    void idleGamesAreSpilled() throws IOException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 16, directory.resolve("sessions.spill"), 1000, Long.MAX_VALUE)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ids.add(store.create(SudokuUtilities.SudokuLevel.EASY));
+            }
+            String state = store.withSession(ids.get(7), SudokuTestGames::state);
+
+            assertEquals(20, store.spillIdle(0, TimeUnit.NANOSECONDS));
+            assertEquals(0, store.getResidentCount());
+            assertEquals(0, store.getResidentBytes());
+            assertEquals(20, store.getSpilledCount());
+
+            assertEquals(state, store.withSession(ids.get(7), SudokuTestGames::state));
+            assertEquals(1, store.getResidentCount());
+            assertEquals(19, store.getSpilledCount());
+            assertEquals(1, store.getMisses());
+        }
+    }
+
+    @Test
+    void residentBytesStayNearTheLimit() throws IOException, InterruptedException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 300, directory.resolve("sessions.spill"),
+                Integer.MAX_VALUE, 200_000)) {
+            for (int i = 0; i < 300; i++) {
+                store.create(SudokuUtilities.SudokuLevel.EASY);
+            }
+            await(() -> store.getResidentBytes() <= 200_000, "games are spilled down to the byte limit");
+            assertTrue(store.getResidentCount() > 0);
+            await(() -> store.getResidentCount() + store.getSpilledCount() == 300, "every game is in one place");
+        }
+    }
+
+    @Test
+    void storeWithoutSpillFileRefusesToSpill() throws IOException {
+        try (SudokuSessionStore store = new SudokuSessionStore(pool, 4)) {
+            assertThrows(IllegalStateException.class, () -> store.spillIdle(0, TimeUnit.NANOSECONDS));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new SudokuSessionStore(pool, 4, directory.resolve("refused.spill"), 0, 1));
+        assertFalse(Files.exists(directory.resolve("refused.spill")));
+    }
+
+    // Eviction runs in the background, so its effects are waited for
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) throw new AssertionError("timed out: " + what);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static model.SudokuTestGames.board;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuSolverTest {
+
+    private static final String PUZZLE =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private final SudokuSolver solver = new SudokuSolver();
+
+    @Test
+    void solvesPuzzleWithUniqueSolution() {
+        byte[] solution = new byte[81];
+        assertTrue(solver.solve(board(PUZZLE), solution));
+        assertArrayEquals(board(SOLUTION), solution);
+        assertTrue(solver.hasUniqueSolution(board(PUZZLE)));
+        assertEquals(1, solver.countSolutions(board(PUZZLE), 10));
+    }
+
+    @Test
+    void detectsSecondSolution() {
+        // Clearing the four corners of a rectangle of two digits lets them swap
+        byte[] puzzle = board(SOLUTION);
+        int[] rectangle = {3, 4, 30, 31};  // 6 and 7 at r1c4, r1c5, r4c4 and r4c5
+        for (int cell : rectangle) {
+            puzzle[cell] = 0;
+        }
+        assertEquals(2, solver.countSolutions(puzzle, 10));
+        assertFalse(solver.hasUniqueSolution(puzzle));
+
+        assertEquals(2, solver.countSolutions(new byte[81], 2), "the count stops at the limit");
+    }
+
+    @Test
+    void detectsPuzzleWithoutSolution() {
+        byte[] puzzle = board(PUZZLE);
+        puzzle[2] = 5;  // A second 5 in the first row
+        assertFalse(solver.solve(puzzle, new byte[81]));
+        assertEquals(0, solver.countSolutions(puzzle, 2));
+    }
+
+    @Test
+    void rejectsInvalidPuzzle() {
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(new byte[80], 2));
+        byte[] puzzle = board(PUZZLE);
+        puzzle[0] = 10;
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(puzzle, 2));
+    }
+}
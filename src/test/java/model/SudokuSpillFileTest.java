@@ -0,0 +1,74 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static model.SudokuTestGames.editableCells;
+import static model.SudokuTestGames.state;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuSpillFileTest {
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void gameIsReadBackWithValuesAndMarks() throws IOException {
+        SudokuModel model = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EXPERT);
+        int[] cells = editableCells(model);
+        model.updateCell(cells[0] / 9, cells[0] % 9, 8);
+        model.togglePencilMark(cells[1] / 9, cells[1] % 9, 2);
+        model.togglePencilMark(cells[1] / 9, cells[1] % 9, 6);
+
+        try (SudokuSpillFile file = new SudokuSpillFile(directory.resolve("games.spill"))) {
+            int slot = file.write(model);
+            SudokuModel read = file.read(slot, pool);
+            assertEquals(state(model), state(read));
+            assertEquals(model.checkFilledNumbers(), read.checkFilledNumbers());
+        }
+    }
+
+    @Test
+    void freedSlotsAreReused() throws IOException {
+        Path path = directory.resolve("games.spill");
+        try (SudokuSpillFile file = new SudokuSpillFile(path)) {
+            SudokuModel[] models = new SudokuModel[8];
+            int[] slots = new int[models.length];
+            for (int i = 0; i < models.length; i++) {
+                models[i] = new SudokuModel(pool, SudokuUtilities.SudokuLevel.EASY);
+                slots[i] = file.write(models[i]);
+            }
+            assertEquals(8, file.usedSlots());
+            long size = Files.size(path);
+            assertTrue(size <= 8L * SudokuSpillFile.SLOT_SIZE);
+
+            file.free(slots[2]);
+            file.free(slots[5]);
+            assertEquals(6, file.usedSlots());
+            int first = file.write(models[5]);
+            int second = file.write(models[2]);
+            assertEquals(slots[5], first, "the most recently freed slot is used first");
+            assertEquals(slots[2], second);
+            assertEquals(size, Files.size(path), "the file does not grow while slots are free");
+
+            for (int i = 0; i < models.length; i++) {
+                assertEquals(state(models[i]), state(file.read(slots[i], pool)));
+            }
+        }
+        assertFalse(Files.exists(path), "the file is deleted when closed");
+    }
+}
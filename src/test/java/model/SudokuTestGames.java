@@ -0,0 +1,78 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Helpers shared by the model tests for comparing games and finding cells to play.
+ */
+final class SudokuTestGames {
+
+    private SudokuTestGames() {
+    }
+
+    /**
+     * Returns everything a player sees of a game: its level and, for every cell, the displayed
+     * value, whether it can be edited and its pencil marks.
+     *
+     * @param model the game
+     * @return a string that is equal for two games exactly when they look the same
+     */
+    static String state(SudokuModel model) {
+        StringBuilder state = new StringBuilder(model.getLevel().name());
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                state.append(' ').append(model.getDisplayValue(row, col))
+                        .append(model.isCellEditable(row, col) ? 'e' : 'g')
+                        .append(model.getPencilMarks(row, col));
+            }
+        }
+        return state.toString();
+    }
+
+    /**
+     * Returns the displayed values of a game as 81 digits in row-major order.
+     *
+     * @param model the game
+     * @return the values, 0 for an empty cell
+     */
+    static String values(SudokuModel model) {
+        StringBuilder values = new StringBuilder(81);
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                values.append(model.getDisplayValue(row, col));
+            }
+        }
+        return values.toString();
+    }
+
+    /**
+     * Returns the cells a player can fill in, in row-major order.
+     *
+     * @param model the game
+     * @return the cell indexes of the editable cells
+     */
+    static int[] editableCells(SudokuModel model) {
+        int[] cells = new int[81];
+        int count = 0;
+        for (int cell = 0; cell < 81; cell++) {
+            if (model.isCellEditable(cell / 9, cell % 9)) {
+                cells[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Parses 81 digits in row-major order into a board.
+     *
+     * @param digits the digits, 0 for an empty cell
+     * @return the board
+     */
+    static byte[] board(String digits) {
+        byte[] board = new byte[81];
+        for (int cell = 0; cell < 81; cell++) {
+            board[cell] = (byte) (digits.charAt(cell) - '0');
+        }
+        return board;
+    }
+}
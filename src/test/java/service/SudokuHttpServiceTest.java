@@ -0,0 +1,132 @@
+package service;
+
+import model.SudokuPuzzlePool;
+import model.SudokuSessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SudokuHttpServiceTest {
+
+    private final SudokuPuzzlePool pool = new SudokuPuzzlePool(0, 1, 1);  // Generates on the calling thread
+    private final SudokuSessionStore sessions = new SudokuSessionStore(pool, 16);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SudokuHttpService service;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void startService() throws IOException {
+        service = new SudokuHttpService(new InetSocketAddress("127.0.0.1", 0), directory, sessions);
+        service.start();
+    }
+
+    @AfterEach
+    void stopService() throws IOException {
+        service.stop(0);
+        sessions.close();
+        pool.shutdown();
+    }
+
+    @Test
+    void gameIsPlayedWithMoves() throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "/games", "{\"level\": \"easy\"}");
+        assertEquals(201, created.statusCode());
+        Map<String, String> game = Json.parseObject(created.body());
+        String id = game.get("id");
+        assertEquals("EASY", game.get("level"));
+        assertEquals(game.get("givens"), game.get("values"));
+
+        int given = firstGiven(game);
+        int empty = game.get("givens").indexOf('0');
+        assertEquals(409, send("POST", "/games/" + id + "/moves", move(given, 5)).statusCode());
+        assertEquals(400, send("POST", "/games/" + id + "/moves", move(empty, 10)).statusCode());
+        assertEquals(400, send("POST", "/games/" + id + "/moves", "{\"row\": ").statusCode());
+
+        assertEquals(200, send("POST", "/games/" + id + "/hint", "").statusCode());
+        assertNotEquals(game.get("values"), Json.parseObject(send("GET", "/games/" + id, null).body()).get("values"));
+
+        HttpResponse<String> check = send("GET", "/games/" + id + "/check", null);
+        assertEquals("{\"correct\":true,\"filled\":false,\"solved\":false}", check.body());
+
+        assertEquals(200, send("DELETE", "/games/" + id, null).statusCode());
+        assertEquals(404, send("GET", "/games/" + id, null).statusCode());
+    }
+
+    @Test
+    void malformedRequestsAreRefused() throws IOException, InterruptedException {
+        assertEquals(400, send("POST", "/games", "{\"level\": \"impossible\"}").statusCode());
+        assertEquals(404, send("GET", "/games/unknown", null).statusCode());
+        assertEquals(404, send("GET", "/elsewhere", null).statusCode());
+        assertEquals(405, send("GET", "/games", null).statusCode());
+        String id = Json.parseObject(send("POST", "/games", "{}").body()).get("id");
+        assertEquals(404, send("POST", "/games/" + id + "/unknown", "").statusCode());
+        HttpResponse<String> wrongMethod = send("PUT", "/games/" + id + "/moves", move(0, 1));
+        assertEquals(405, wrongMethod.statusCode());
+        assertTrue(Json.parseObject(wrongMethod.body()).containsKey("error"));
+    }
+
+    @Test
+    void savedGameIsLoadedBack() throws IOException, InterruptedException {
+        String id = Json.parseObject(send("POST", "/games", "{}").body()).get("id");
+        assertEquals(404, send("POST", "/games/" + id + "/load", "").statusCode());
+
+        String saved = Json.parseObject(send("GET", "/games/" + id, null).body()).get("values");
+        assertEquals(200, send("POST", "/games/" + id + "/save", "").statusCode());
+        send("POST", "/games/" + id + "/hint", "");
+        HttpResponse<String> loaded = send("POST", "/games/" + id + "/load", "");
+        assertEquals(200, loaded.statusCode());
+        assertEquals(saved, Json.parseObject(loaded.body()).get("values"));
+    }
+
+    @Test
+    void damagedSaveIsRefused() throws IOException, InterruptedException {
+        String id = Json.parseObject(send("POST", "/games", "{}").body()).get("id");
+        assertEquals(200, send("POST", "/games/" + id + "/save", "").statusCode());
+        String values = Json.parseObject(send("GET", "/games/" + id, null).body()).get("values");
+
+        Path file = directory.resolve(id + ".sdk");
+        byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;  // Caught by the checksum
+        Files.write(file, content);
+        assertEquals(422, send("POST", "/games/" + id + "/load", "").statusCode());
+        assertEquals(values, Json.parseObject(send("GET", "/games/" + id, null).body()).get("values"));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + service.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String move(int cell, int value) {
+        return "{\"row\": " + cell / 9 + ", \"col\": " + cell % 9 + ", \"value\": " + value + '}';
+    }
+
+    private static int firstGiven(Map<String, String> game) {
+        String givens = game.get("givens");
+        for (int cell = 0; cell < givens.length(); cell++) {
+            if (givens.charAt(cell) != '0') {
+                return cell;
+            }
+        }
+        throw new AssertionError("no given cell");
+    }
+}